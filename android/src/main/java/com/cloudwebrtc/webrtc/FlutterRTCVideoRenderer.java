@@ -4,13 +4,17 @@ import android.util.Log;
 import android.graphics.SurfaceTexture;
 import android.view.Surface;
 
+import com.cloudwebrtc.webrtc.facedetection.FaceOverlayDrawer;
+import com.cloudwebrtc.webrtc.facedetection.LatestFaceResultSlot;
 import com.cloudwebrtc.webrtc.utils.AnyThreadSink;
 import com.cloudwebrtc.webrtc.utils.ConstraintsMap;
 import com.cloudwebrtc.webrtc.utils.EglUtils;
+import com.cloudwebrtc.webrtc.video.RemoteVideoTrack;
 
 import java.util.List;
 
 import org.webrtc.EglBase;
+import org.webrtc.GlRectDrawer;
 import org.webrtc.MediaStream;
 import org.webrtc.RendererCommon.RendererEvents;
 import org.webrtc.VideoTrack;
@@ -26,9 +30,14 @@ public class FlutterRTCVideoRenderer implements EventChannel.StreamHandler {
     private MediaStream mediaStream;
 
     private String ownerTag;
+    /** Owner the current track's sink was attached with; ownerTag may change before detach */
+    private String sinkOwnerId;
 
     public void Dispose() {
         //destroy
+        if (videoTrack != null) {
+            removeRendererFromVideoTrack();
+        }
         if (surfaceTextureRenderer != null) {
             surfaceTextureRenderer.release();
         }
@@ -92,6 +101,12 @@ public class FlutterRTCVideoRenderer implements EventChannel.StreamHandler {
 
     private final SurfaceTextureRenderer surfaceTextureRenderer;
 
+    /**
+     * Draws frames and, when enabled, face detection results on top of them.
+     * Reused across renderer re-inits; the renderer releases it each time.
+     */
+    private final FaceOverlayDrawer overlayDrawer = new FaceOverlayDrawer(new GlRectDrawer());
+
     /**
      * The {@code VideoTrack}, if any, rendered by this {@code FlutterRTCVideoRenderer}.
      */
@@ -103,7 +118,8 @@ public class FlutterRTCVideoRenderer implements EventChannel.StreamHandler {
     public FlutterRTCVideoRenderer(TextureRegistry.SurfaceProducer producer) {
         this.surfaceTextureRenderer = new SurfaceTextureRenderer("");
         listenRendererEvents();
-        surfaceTextureRenderer.init(EglUtils.getRootEglBaseContext(), rendererEvents);
+        surfaceTextureRenderer.init(EglUtils.getRootEglBaseContext(), rendererEvents,
+                EglBase.CONFIG_PLAIN, overlayDrawer);
         surfaceTextureRenderer.surfaceCreated(producer);
 
         this.eventSink = null;
@@ -111,6 +127,17 @@ public class FlutterRTCVideoRenderer implements EventChannel.StreamHandler {
         this.ownerTag = null;
     }
 
+    /**
+     * Draw the face detection results from {@code source} over the rendered video.
+     *
+     * @param source Latest result slot of a face detection processor, or {@code null}.
+     * @param flags  {@link com.cloudwebrtc.webrtc.facedetection.FaceOverlayStyle} flags;
+     *               0 turns the overlay off.
+     */
+    public void setFaceOverlay(LatestFaceResultSlot source, int flags) {
+        overlayDrawer.setSource(source, flags);
+    }
+
     public void setEventChannel(EventChannel eventChannel) {
         this.eventChannel = eventChannel;
     }
@@ -134,7 +161,10 @@ public class FlutterRTCVideoRenderer implements EventChannel.StreamHandler {
      * resources (if rendering is in progress).
      */
     private void removeRendererFromVideoTrack() {
-        videoTrack.removeSink(surfaceTextureRenderer);
+        if (sinkOwnerId != null) {
+            RemoteVideoTrack.detachSink(sinkOwnerId, videoTrack, surfaceTextureRenderer);
+            sinkOwnerId = null;
+        }
     }
 
     /**
@@ -236,10 +266,12 @@ public class FlutterRTCVideoRenderer implements EventChannel.StreamHandler {
 
             surfaceTextureRenderer.release();
             listenRendererEvents();
-            surfaceTextureRenderer.init(sharedContext, rendererEvents);
+            surfaceTextureRenderer.init(sharedContext, rendererEvents, EglBase.CONFIG_PLAIN, overlayDrawer);
             surfaceTextureRenderer.surfaceCreated(producer);
 
-            videoTrack.addSink(surfaceTextureRenderer);
+            // Through the track's processing wrapper, if it has one
+            sinkOwnerId = ownerTag != null ? ownerTag : RemoteVideoTrack.LOCAL_OWNER;
+            RemoteVideoTrack.attachSink(sinkOwnerId, videoTrack, surfaceTextureRenderer);
         }
     }
 
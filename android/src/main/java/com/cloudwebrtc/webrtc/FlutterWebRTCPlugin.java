@@ -133,10 +133,16 @@ public class FlutterWebRTCPlugin implements FlutterPlugin, ActivityAware, EventC
             @Override
             public void onListen(Object arguments, EventChannel.EventSink events) {
                 faceEventSink = new AnyThreadSink(events);
+                if (methodCallHandler != null) {
+                    methodCallHandler.onFaceDetectionSinksChanged();
+                }
             }
             @Override
             public void onCancel(Object arguments) {
                 faceEventSink = null;
+                if (methodCallHandler != null) {
+                    methodCallHandler.onFaceDetectionSinksChanged();
+                }
             }
         });
 
@@ -145,10 +151,16 @@ public class FlutterWebRTCPlugin implements FlutterPlugin, ActivityAware, EventC
             @Override
             public void onListen(Object arguments, EventChannel.EventSink events) {
                 blinkEventSink = new AnyThreadSink(events);
+                if (methodCallHandler != null) {
+                    methodCallHandler.onFaceDetectionSinksChanged();
+                }
             }
             @Override
             public void onCancel(Object arguments) {
                 blinkEventSink = null;
+                if (methodCallHandler != null) {
+                    methodCallHandler.onFaceDetectionSinksChanged();
+                }
             }
         });
 
@@ -40,6 +40,8 @@ import com.cloudwebrtc.webrtc.record.AudioChannel;
 import com.cloudwebrtc.webrtc.record.AudioSamplesInterceptor;
 import com.cloudwebrtc.webrtc.record.MediaRecorderImpl;
 import com.cloudwebrtc.webrtc.record.OutputAudioSamplesInterceptor;
+import com.cloudwebrtc.webrtc.record.PreRollConfig;
+import com.cloudwebrtc.webrtc.record.PreRollRecorder;
 import com.cloudwebrtc.webrtc.utils.Callback;
 import com.cloudwebrtc.webrtc.utils.ConstraintsArray;
 import com.cloudwebrtc.webrtc.utils.ConstraintsMap;
@@ -114,6 +116,7 @@ public class GetUserMediaImpl {
     private OutputAudioSamplesInterceptor outputSamplesInterceptor = null;
     JavaAudioDeviceModule audioDeviceModule;
     private final SparseArray<MediaRecorderImpl> mediaRecorders = new SparseArray<>();
+    private final SparseArray<PreRollRecorder> preRollRecorders = new SparseArray<>();
     private AudioDeviceInfo preferredInput = null;
     private boolean isTorchOn;
     private Intent mediaProjectionData = null;
@@ -946,26 +949,80 @@ public class GetUserMediaImpl {
     /**
      * Creates and starts recording of local stream to file
      *
-     * @param path         to the file for record
-     * @param videoTrack   to record or null if only audio needed
-     * @param audioChannel channel for recording or null
+     * @param path              to the file for record
+     * @param videoTrackOwnerId peer connection the video track was received on, or "local"
+     * @param videoTrack        to record or null if only audio needed
+     * @param audioChannel      channel for recording or null
      * @throws Exception lot of different exceptions, pass back to dart layer to print them at least
      */
     void startRecordingToFile(
-            String path, Integer id, @Nullable VideoTrack videoTrack, @Nullable AudioChannel audioChannel)
+            String path, Integer id, @Nullable String videoTrackOwnerId, @Nullable VideoTrack videoTrack,
+            @Nullable AudioChannel audioChannel)
             throws Exception {
-        AudioSamplesInterceptor interceptor = null;
+        AudioSamplesInterceptor interceptor = getSamplesInterceptor(audioChannel);
+        MediaRecorderImpl mediaRecorder = new MediaRecorderImpl(id, videoTrackOwnerId, videoTrack, interceptor);
+        mediaRecorder.startRecording(new File(path));
+        mediaRecorders.append(id, mediaRecorder);
+    }
+
+    @Nullable
+    private AudioSamplesInterceptor getSamplesInterceptor(@Nullable AudioChannel audioChannel) {
         if (audioChannel == AudioChannel.INPUT) {
-            interceptor = inputSamplesInterceptor;
+            return inputSamplesInterceptor;
         } else if (audioChannel == AudioChannel.OUTPUT) {
             if (outputSamplesInterceptor == null) {
                 outputSamplesInterceptor = new OutputAudioSamplesInterceptor(audioDeviceModule);
             }
-            interceptor = outputSamplesInterceptor;
+            return outputSamplesInterceptor;
         }
-        MediaRecorderImpl mediaRecorder = new MediaRecorderImpl(id, videoTrack, interceptor);
-        mediaRecorder.startRecording(new File(path));
-        mediaRecorders.append(id, mediaRecorder);
+        return null;
+    }
+
+    /**
+     * Starts keeping the last seconds of a track encoded in memory, so they can be saved
+     * with {@link #savePreRoll}
+     *
+     * @param videoTrackOwnerId peer connection the video track was received on, or "local"
+     * @param videoTrack        to buffer
+     * @param audioChannel      channel to buffer along with the video or null
+     */
+    void startPreRoll(Integer id, String videoTrackOwnerId, VideoTrack videoTrack,
+                      @Nullable AudioChannel audioChannel, PreRollConfig config) throws Exception {
+        if (id == null) {
+            throw new Exception("preRollId is required");
+        }
+        if (preRollRecorders.get(id) != null) {
+            throw new Exception("Pre-roll " + id + " is already running");
+        }
+        PreRollRecorder preRollRecorder =
+                new PreRollRecorder(id, videoTrackOwnerId, videoTrack, getSamplesInterceptor(audioChannel), config);
+        try {
+            preRollRecorder.start();
+        } catch (Exception e) {
+            preRollRecorder.stop();
+            throw e;
+        }
+        preRollRecorders.append(id, preRollRecorder);
+    }
+
+    @Nullable
+    PreRollRecorder getPreRollRecorder(@Nullable Integer id) {
+        return id != null ? preRollRecorders.get(id) : null;
+    }
+
+    void stopPreRoll(@Nullable Integer id) {
+        PreRollRecorder preRollRecorder = getPreRollRecorder(id);
+        if (preRollRecorder != null) {
+            preRollRecorders.remove(id);
+            preRollRecorder.stop();
+        }
+    }
+
+    void stopAllPreRolls() {
+        for (int i = 0; i < preRollRecorders.size(); i++) {
+            preRollRecorders.valueAt(i).stop();
+        }
+        preRollRecorders.clear();
     }
 
     void stopRecording(Integer id, String albumName,  Runnable onFinished) {
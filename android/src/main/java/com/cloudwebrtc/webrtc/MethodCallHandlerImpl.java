@@ -32,6 +32,8 @@ import com.cloudwebrtc.webrtc.audio.PlaybackSamplesReadyCallbackAdapter;
 import com.cloudwebrtc.webrtc.audio.RecordSamplesReadyCallbackAdapter;
 import com.cloudwebrtc.webrtc.record.AudioChannel;
 import com.cloudwebrtc.webrtc.record.FrameCapturer;
+import com.cloudwebrtc.webrtc.record.PreRollConfig;
+import com.cloudwebrtc.webrtc.record.PreRollRecorder;
 import com.cloudwebrtc.webrtc.utils.AnyThreadResult;
 import com.cloudwebrtc.webrtc.utils.Callback;
 import com.cloudwebrtc.webrtc.utils.ConstraintsArray;
@@ -44,8 +46,13 @@ import com.cloudwebrtc.webrtc.video.VideoCapturerInfo;
 import com.cloudwebrtc.webrtc.video.camera.CameraUtils;
 import com.cloudwebrtc.webrtc.video.camera.Point;
 import com.cloudwebrtc.webrtc.video.LocalVideoTrack;
+import com.cloudwebrtc.webrtc.video.RemoteVideoTrack;
 import com.cloudwebrtc.webrtc.facedetection.FaceDetectionConfig;
 import com.cloudwebrtc.webrtc.facedetection.FaceDetectionFrameProcessor;
+import com.cloudwebrtc.webrtc.facedetection.FaceDetectionService;
+import com.cloudwebrtc.webrtc.facedetection.FaceOverlayBurnIn;
+import com.cloudwebrtc.webrtc.facedetection.FaceOverlayStyle;
+import com.cloudwebrtc.webrtc.facedetection.PowerManagerConditionProvider;
 import com.twilio.audioswitch.AudioDevice;
 
 import org.webrtc.AudioTrack;
@@ -117,7 +124,18 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
   private final Map<String, MediaStream> localStreams = new HashMap<>();
   private final Map<String, LocalTrack> localTracks = new HashMap<>();
   private final LongSparseArray<FlutterRTCVideoRenderer> renders = new LongSparseArray<>();
+  /** Face detection of video tracks, keyed by {@link #faceDetectionKey} */
   private final Map<String, FaceDetectionFrameProcessor> faceDetectionProcessors = new HashMap<>();
+  /** Wrappers of remote tracks with face detection, also listed in faceDetectionProcessors */
+  private final Map<String, RemoteVideoTrack> faceDetectionRemoteTracks = new HashMap<>();
+  /** Face overlays burned into the video of tracks with face detection */
+  private final Map<String, FaceOverlayBurnIn> faceOverlayBurnIns = new HashMap<>();
+  /** Shared by all face detection processors, created on first use */
+  private FaceDetectionService faceDetectionService;
+  private int faceDetectionMaxConcurrent = 2;
+  private double faceDetectionMaxRate = 0;
+  /** Thermal / battery saver state for face detection throttling, created on first use */
+  private PowerManagerConditionProvider deviceConditionProvider;
 
   public RecordSamplesReadyCallbackAdapter recordSamplesReadyCallbackAdapter;
 
@@ -173,11 +191,29 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
   }
 
   void dispose() {
-    // Dispose face detection processors first
+    // Detach remote track wrappers first so no more frames reach the face detection processors
+    RemoteVideoTrack.releaseAll();
+    for (final FaceOverlayBurnIn burnIn : faceOverlayBurnIns.values()) {
+      burnIn.release();
+    }
+    faceOverlayBurnIns.clear();
+    faceDetectionRemoteTracks.clear();
     for (final FaceDetectionFrameProcessor processor : faceDetectionProcessors.values()) {
       processor.dispose();
     }
     faceDetectionProcessors.clear();
+    if (faceDetectionService != null) {
+      faceDetectionService.shutdown();
+      faceDetectionService = null;
+    }
+    if (deviceConditionProvider != null) {
+      deviceConditionProvider.stop();
+      deviceConditionProvider = null;
+    }
+    if (getUserMediaImpl != null) {
+      // Encoders hold frames of the tracks disposed below
+      getUserMediaImpl.stopAllPreRolls();
+    }
 
     for (final MediaStream mediaStream : localStreams.values()) {
       streamDispose(mediaStream);
@@ -845,12 +881,14 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
         try {
           String path = call.argument("path");
           VideoTrack videoTrack = null;
+          String videoTrackOwnerId = null;
           String videoTrackId = call.argument("videoTrackId");
           String peerConnectionId = call.argument("peerConnectionId");
           if (videoTrackId != null) {
             MediaStreamTrack track = getTrackForId(videoTrackId, peerConnectionId);
             if (track instanceof VideoTrack) {
               videoTrack = (VideoTrack) track;
+              videoTrackOwnerId = getTrackOwnerId(videoTrackId, peerConnectionId);
             }
           }
           AudioChannel audioChannel = null;
@@ -860,7 +898,7 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
           }
           Integer recorderId = call.argument("recorderId");
           if (videoTrack != null || audioChannel != null) {
-            getUserMediaImpl.startRecordingToFile(path, recorderId, videoTrack, audioChannel);
+            getUserMediaImpl.startRecordingToFile(path, recorderId, videoTrackOwnerId, videoTrack, audioChannel);
             result.success(null);
           } else {
             resultError("startRecordToFile", "No tracks", result);
@@ -874,6 +912,72 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
         String albumName = call.argument("albumName");
         getUserMediaImpl.stopRecording(recorderId, albumName, () -> result.success(null));
         break;
+      case "startPreRoll": {
+        Integer preRollId = call.argument("preRollId");
+        String videoTrackId = call.argument("videoTrackId");
+        String peerConnectionId = call.argument("peerConnectionId");
+        Map<String, Object> options = call.argument("options");
+        MediaStreamTrack track = videoTrackId != null ? getTrackForId(videoTrackId, peerConnectionId) : null;
+        if (!(track instanceof VideoTrack)) {
+          resultError("startPreRoll", "Video track not found: " + videoTrackId, result);
+          break;
+        }
+        AudioChannel audioChannel = null;
+        if (call.argument("audioChannel") != null) {
+          audioChannel = AudioChannel.values()[(Integer) call.argument("audioChannel")];
+        }
+        try {
+          getUserMediaImpl.startPreRoll(preRollId, getTrackOwnerId(videoTrackId, peerConnectionId),
+              (VideoTrack) track, audioChannel, PreRollConfig.fromMap(options));
+          result.success(null);
+        } catch (Exception e) {
+          resultError("startPreRoll", e.getMessage(), result);
+        }
+        break;
+      }
+      case "savePreRoll": {
+        Integer preRollId = call.argument("preRollId");
+        String path = call.argument("path");
+        Number postRollMs = call.argument("postRollMs");
+        PreRollRecorder preRollRecorder = getUserMediaImpl.getPreRollRecorder(preRollId);
+        if (preRollRecorder == null) {
+          resultError("savePreRoll", "Pre-roll not started: " + preRollId, result);
+          break;
+        }
+        if (path == null) {
+          resultError("savePreRoll", "path is required", result);
+          break;
+        }
+        preRollRecorder.saveClip(path, postRollMs != null ? postRollMs.intValue() : 0,
+            new PreRollRecorder.ClipCallback() {
+              @Override
+              public void onClipSaved(Map<String, Object> clip) {
+                result.success(clip);
+              }
+
+              @Override
+              public void onClipFailed(String error) {
+                resultError("savePreRoll", error, result);
+              }
+            });
+        break;
+      }
+      case "getPreRollStats": {
+        Integer preRollId = call.argument("preRollId");
+        PreRollRecorder preRollRecorder = getUserMediaImpl.getPreRollRecorder(preRollId);
+        if (preRollRecorder == null) {
+          resultError("getPreRollStats", "Pre-roll not started: " + preRollId, result);
+          break;
+        }
+        result.success(preRollRecorder.getStats());
+        break;
+      }
+      case "stopPreRoll": {
+        Integer preRollId = call.argument("preRollId");
+        getUserMediaImpl.stopPreRoll(preRollId);
+        result.success(null);
+        break;
+      }
       case "captureFrame": {
         String path = call.argument("path");
         String videoTrackId = call.argument("trackId");
@@ -881,7 +985,8 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
         if (videoTrackId != null) {
           MediaStreamTrack track = getTrackForId(videoTrackId, peerConnectionId);
           if (track instanceof VideoTrack) {
-            new FrameCapturer((VideoTrack) track, new File(path), result);
+            new FrameCapturer(getTrackOwnerId(videoTrackId, peerConnectionId), (VideoTrack) track,
+                new File(path), result);
           } else {
             resultError("captureFrame", "It's not video track", result);
           }
@@ -1141,25 +1246,57 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
       // Face Detection methods
       case "enableFaceDetection": {
         String trackId = call.argument("trackId");
+        String peerConnectionId = call.argument("peerConnectionId");
         Map<String, Object> configMap = call.argument("config");
-        enableFaceDetection(trackId, configMap, result);
+        enableFaceDetection(trackId, peerConnectionId, configMap, result);
         break;
       }
       case "disableFaceDetection": {
         String trackId = call.argument("trackId");
-        disableFaceDetection(trackId, result);
+        String peerConnectionId = call.argument("peerConnectionId");
+        disableFaceDetection(trackId, peerConnectionId, result);
         break;
       }
       case "isFaceDetectionEnabled": {
         String trackId = call.argument("trackId");
-        boolean enabled = faceDetectionProcessors.containsKey(trackId);
+        String peerConnectionId = call.argument("peerConnectionId");
+        String key = trackId != null ? faceDetectionKey(trackId, peerConnectionId) : null;
+        boolean enabled = key != null && faceDetectionProcessors.containsKey(key);
         result.success(enabled);
         break;
       }
       case "updateFaceDetectionConfig": {
         String trackId = call.argument("trackId");
+        String peerConnectionId = call.argument("peerConnectionId");
         Map<String, Object> configMap = call.argument("config");
-        updateFaceDetectionConfig(trackId, configMap, result);
+        updateFaceDetectionConfig(trackId, peerConnectionId, configMap, result);
+        break;
+      }
+      case "getFaceDetectionStats": {
+        String trackId = call.argument("trackId");
+        String peerConnectionId = call.argument("peerConnectionId");
+        getFaceDetectionStats(trackId, peerConnectionId, result);
+        break;
+      }
+      case "getLatestFaces": {
+        String trackId = call.argument("trackId");
+        String peerConnectionId = call.argument("peerConnectionId");
+        Number sinceSeq = call.argument("sinceSeq");
+        getLatestFaces(trackId, peerConnectionId, sinceSeq != null ? sinceSeq.longValue() : 0, result);
+        break;
+      }
+      case "setFaceDetectionOverlay": {
+        String trackId = call.argument("trackId");
+        String peerConnectionId = call.argument("peerConnectionId");
+        Number textureId = call.argument("textureId");
+        Map<String, Object> options = call.argument("options");
+        setFaceDetectionOverlay(trackId, peerConnectionId, textureId, options, result);
+        break;
+      }
+      case "configureFaceDetectionService": {
+        Number maxConcurrentDetections = call.argument("maxConcurrentDetections");
+        Number maxDetectionsPerSecond = call.argument("maxDetectionsPerSecond");
+        configureFaceDetectionService(maxConcurrentDetections, maxDetectionsPerSecond, result);
         break;
       }
       default:
@@ -1654,6 +1791,29 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
   }
 
 
+  /**
+   * {@link RemoteVideoTrack#LOCAL_OWNER} for a local track, otherwise the id of the peer
+   * connection {@link #getTrackForId} finds the track on, or null if there is none.
+   */
+  @Nullable
+  String getTrackOwnerId(String trackId, String peerConnectionId) {
+    synchronized (localTracks) {
+      if (localTracks.containsKey(trackId)) {
+        return RemoteVideoTrack.LOCAL_OWNER;
+      }
+    }
+    for (Entry<String, PeerConnectionObserver> entry : mPeerConnectionObservers.entrySet()) {
+      if (peerConnectionId != null && entry.getKey().compareTo(peerConnectionId) != 0)
+        continue;
+
+      PeerConnectionObserver pco = entry.getValue();
+      if (pco.remoteTracks.get(trackId) != null || pco.getTransceiversTrack(trackId) != null) {
+        return entry.getKey();
+      }
+    }
+    return null;
+  }
+
   public void getUserMedia(ConstraintsMap constraints, Result result) {
     String streamId = getNextStreamUUID();
     MediaStream mediaStream = mFactory.createLocalMediaStream(streamId);
@@ -2130,6 +2290,8 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
   public void peerConnectionDispose(final String id) {
     PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
     if (pco != null) {
+      // Its remote tracks are disposed with it; drop what refers to them by id
+      releaseFaceDetectionOf(id);
       if (peerConnectionDispose(pco)) {
 
         mPeerConnectionObservers.remove(id);
@@ -2498,80 +2660,178 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
 
   // ============== Face Detection Methods ==============
 
-  private void enableFaceDetection(String trackId, Map<String, Object> configMap, Result result) {
+  /**
+   * Key of a track's face detection. Track ids are only unique per peer connection, so
+   * remote tracks are keyed by the peer connection that received them too.
+   *
+   * @return null if the track is not known
+   */
+  @Nullable
+  private String faceDetectionKey(String trackId, @Nullable String peerConnectionId) {
+    String ownerId = getTrackOwnerId(trackId, peerConnectionId);
+    if (ownerId == null && peerConnectionId != null) {
+      // Track already gone from its peer connection, its face detection is still keyed by it
+      ownerId = peerConnectionId;
+    }
+    return ownerId != null ? ownerId + "/" + trackId : null;
+  }
+
+  private void enableFaceDetection(String trackId, @Nullable String peerConnectionId,
+                                   Map<String, Object> configMap, Result result) {
     if (trackId == null) {
       resultError("enableFaceDetection", "trackId is required", result);
       return;
     }
 
-    // Check if already enabled
-    if (faceDetectionProcessors.containsKey(trackId)) {
-      result.success(null);
+    // Local video tracks feed the processor as an analyzer of their capture pipeline, remote
+    // ones as an analyzer of their RemoteVideoTrack wrapper, both on the service's worker pool
+    String ownerId = getTrackOwnerId(trackId, peerConnectionId);
+    boolean local = RemoteVideoTrack.LOCAL_OWNER.equals(ownerId);
+    LocalTrack localTrack = local ? getLocalTrack(trackId) : null;
+    MediaStreamTrack remoteTrack = ownerId != null && !local ? getTrackForId(trackId, ownerId) : null;
+    if (!(localTrack instanceof LocalVideoTrack) && !(remoteTrack instanceof VideoTrack)) {
+      resultError("enableFaceDetection", "Video track not found: " + trackId, result);
       return;
     }
 
-    // Get the local video track
-    LocalTrack localTrack = getLocalTrack(trackId);
-    if (localTrack == null || !(localTrack instanceof LocalVideoTrack)) {
-      resultError("enableFaceDetection", "Video track not found: " + trackId, result);
+    // Check if already enabled
+    String key = ownerId + "/" + trackId;
+    if (faceDetectionProcessors.containsKey(key)) {
+      result.success(null);
       return;
     }
 
-    LocalVideoTrack videoTrack = (LocalVideoTrack) localTrack;
-
     // Create and configure the face detection processor
-    FaceDetectionFrameProcessor processor = new FaceDetectionFrameProcessor();
+    FaceDetectionFrameProcessor processor = new FaceDetectionFrameProcessor(getFaceDetectionService());
+    processor.setTrackId(trackId);
     FaceDetectionConfig config = FaceDetectionConfig.fromMap(configMap);
     processor.setConfig(config);
+    processor.setConditionProvider(config.thermalThrottling ? getDeviceConditionProvider() : null);
 
     // Connect event sinks
     processor.setFaceEventSink(FlutterWebRTCPlugin.faceEventSink);
     processor.setBlinkEventSink(FlutterWebRTCPlugin.blinkEventSink);
 
-    // Add processor to the video track
-    videoTrack.addProcessor(processor);
-
     // Store reference for later removal
-    faceDetectionProcessors.put(trackId, processor);
+    faceDetectionProcessors.put(key, processor);
+    if (remoteTrack != null) {
+      // Decoded frames reach the analyzer through the track's processing wrapper. Track
+      // ids are only unique per peer connection, so it is looked up by both.
+      faceDetectionRemoteTracks.put(key, RemoteVideoTrack.obtain(ownerId, (VideoTrack) remoteTrack));
+    }
 
-    Log.d(TAG, "Face detection enabled for track: " + trackId);
-    result.success(null);
+    if (!config.warmUp) {
+      attachFaceDetectionProcessor(key, processor, localTrack);
+      Log.d(TAG, "Face detection enabled for track: " + trackId);
+      result.success(null);
+      return;
+    }
+
+    // Warm the detector up before the track starts delivering frames
+    processor.warmUp(elapsedNs -> new Handler(Looper.getMainLooper()).post(() -> {
+      if (faceDetectionProcessors.get(key) != processor) {
+        // Disabled while warming up
+        result.success(null);
+        return;
+      }
+      attachFaceDetectionProcessor(key, processor, localTrack);
+
+      double warmUpTimeMs = elapsedNs / 1e6;
+      Log.d(TAG, "Face detection enabled for track: " + trackId + ", warm-up " + warmUpTimeMs + " ms");
+      ConstraintsMap params = new ConstraintsMap();
+      params.putDouble("warmUpTimeMs", warmUpTimeMs);
+      result.success(params.toMap());
+    }));
   }
 
-  private void disableFaceDetection(String trackId, Result result) {
+  private void attachFaceDetectionProcessor(String key, FaceDetectionFrameProcessor processor,
+      LocalTrack localTrack) {
+    RemoteVideoTrack remoteVideoTrack = faceDetectionRemoteTracks.get(key);
+    if (remoteVideoTrack != null) {
+      remoteVideoTrack.addAnalyzer(processor, getFaceDetectionService().getWorkerExecutor());
+    } else {
+      // Analyze off the capture thread so detection never delays the outgoing video
+      ((LocalVideoTrack) localTrack).addAnalyzer(processor, getFaceDetectionService().getWorkerExecutor());
+    }
+  }
+
+  private void disableFaceDetection(String trackId, @Nullable String peerConnectionId, Result result) {
     if (trackId == null) {
       resultError("disableFaceDetection", "trackId is required", result);
       return;
     }
 
-    FaceDetectionFrameProcessor processor = faceDetectionProcessors.remove(trackId);
+    // Not enabled is fine too
+    String key = faceDetectionKey(trackId, peerConnectionId);
+    if (key != null && releaseFaceDetection(trackId, key)) {
+      Log.d(TAG, "Face detection disabled for track: " + trackId);
+    }
+    result.success(null);
+  }
+
+  /**
+   * Detach the face detection of a track from it and dispose it.
+   *
+   * @param key the track's {@link #faceDetectionKey}
+   * @return false if face detection was not enabled for the track
+   */
+  private boolean releaseFaceDetection(String trackId, String key) {
+    FaceDetectionFrameProcessor processor = faceDetectionProcessors.remove(key);
     if (processor == null) {
-      // Not enabled, just succeed
-      result.success(null);
-      return;
+      return false;
     }
 
-    // Get the local video track
-    LocalTrack localTrack = getLocalTrack(trackId);
-    if (localTrack instanceof LocalVideoTrack) {
+    RemoteVideoTrack remoteVideoTrack = faceDetectionRemoteTracks.remove(key);
+    LocalTrack localTrack = remoteVideoTrack == null ? getLocalTrack(trackId) : null;
+    FaceOverlayBurnIn burnIn = faceOverlayBurnIns.remove(key);
+    if (remoteVideoTrack != null) {
+      remoteVideoTrack.removeAnalyzer(processor);
+      if (burnIn != null) {
+        remoteVideoTrack.removeProcessor(burnIn);
+      }
+      // Back to delivering decoded frames straight to the renderers if nothing else uses it
+      RemoteVideoTrack.releaseIfUnused(remoteVideoTrack);
+    } else if (localTrack instanceof LocalVideoTrack) {
       LocalVideoTrack videoTrack = (LocalVideoTrack) localTrack;
-      videoTrack.removeProcessor(processor);
+      videoTrack.removeAnalyzer(processor);
+      if (burnIn != null) {
+        videoTrack.removeProcessor(burnIn);
+      }
+    }
+    if (burnIn != null) {
+      burnIn.release();
     }
 
     // Dispose the processor
     processor.dispose();
+    return true;
+  }
 
-    Log.d(TAG, "Face detection disabled for track: " + trackId);
-    result.success(null);
+  /**
+   * Release the face detection of the tracks received on a peer connection that is
+   * being disposed, together with their processing wrappers.
+   */
+  private void releaseFaceDetectionOf(String peerConnectionId) {
+    String prefix = peerConnectionId + "/";
+    for (String key : new ArrayList<>(faceDetectionRemoteTracks.keySet())) {
+      if (key.startsWith(prefix)) {
+        String trackId = key.substring(prefix.length());
+        releaseFaceDetection(trackId, key);
+        Log.d(TAG, "Face detection released with peer connection for track: " + trackId);
+      }
+    }
+    RemoteVideoTrack.releaseOwner(peerConnectionId);
   }
 
-  private void updateFaceDetectionConfig(String trackId, Map<String, Object> configMap, Result result) {
+  private void updateFaceDetectionConfig(String trackId, @Nullable String peerConnectionId,
+                                         Map<String, Object> configMap, Result result) {
     if (trackId == null) {
       resultError("updateFaceDetectionConfig", "trackId is required", result);
       return;
     }
 
-    FaceDetectionFrameProcessor processor = faceDetectionProcessors.get(trackId);
+    String key = faceDetectionKey(trackId, peerConnectionId);
+    FaceDetectionFrameProcessor processor = key != null ? faceDetectionProcessors.get(key) : null;
     if (processor == null) {
       resultError("updateFaceDetectionConfig", "Face detection not enabled for track: " + trackId, result);
       return;
@@ -2579,8 +2839,172 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
 
     FaceDetectionConfig config = FaceDetectionConfig.fromMap(configMap);
     processor.setConfig(config);
+    processor.setConditionProvider(config.thermalThrottling ? getDeviceConditionProvider() : null);
 
     Log.d(TAG, "Face detection config updated for track: " + trackId);
     result.success(null);
   }
+
+  /**
+   * Hand the current face/blink event sinks to all processors. Called when Dart starts
+   * or stops listening, which also changes the detector features they need.
+   */
+  void onFaceDetectionSinksChanged() {
+    for (final FaceDetectionFrameProcessor processor : faceDetectionProcessors.values()) {
+      processor.setFaceEventSink(FlutterWebRTCPlugin.faceEventSink);
+      processor.setBlinkEventSink(FlutterWebRTCPlugin.blinkEventSink);
+    }
+  }
+
+  private void getFaceDetectionStats(String trackId, @Nullable String peerConnectionId, Result result) {
+    if (trackId == null) {
+      resultError("getFaceDetectionStats", "trackId is required", result);
+      return;
+    }
+
+    String key = faceDetectionKey(trackId, peerConnectionId);
+    FaceDetectionFrameProcessor processor = key != null ? faceDetectionProcessors.get(key) : null;
+    if (processor == null) {
+      resultError("getFaceDetectionStats", "Face detection not enabled for track: " + trackId, result);
+      return;
+    }
+
+    Map<String, Object> stats = processor.getStats();
+    RemoteVideoTrack remoteVideoTrack = faceDetectionRemoteTracks.get(key);
+    LocalTrack localTrack = remoteVideoTrack == null ? getLocalTrack(trackId) : null;
+    Map<String, Object> analyzerStats = null;
+    if (remoteVideoTrack != null) {
+      analyzerStats = remoteVideoTrack.getAnalyzerStats(processor);
+    } else if (localTrack instanceof LocalVideoTrack) {
+      analyzerStats = ((LocalVideoTrack) localTrack).getAnalyzerStats(processor);
+    }
+    if (analyzerStats != null) {
+      stats.put("analyzer", analyzerStats);
+    }
+    stats.put("service", getFaceDetectionService().getStats());
+    result.success(stats);
+  }
+
+  private void getLatestFaces(String trackId, @Nullable String peerConnectionId, long sinceSeq,
+                              Result result) {
+    if (trackId == null) {
+      resultError("getLatestFaces", "trackId is required", result);
+      return;
+    }
+
+    String key = faceDetectionKey(trackId, peerConnectionId);
+    FaceDetectionFrameProcessor processor = key != null ? faceDetectionProcessors.get(key) : null;
+    if (processor == null) {
+      resultError("getLatestFaces", "Face detection not enabled for track: " + trackId, result);
+      return;
+    }
+
+    // null when nothing newer than sinceSeq was detected
+    result.success(processor.getLatestFaces(sinceSeq));
+  }
+
+  private void setFaceDetectionOverlay(String trackId, @Nullable String peerConnectionId, Number textureId,
+                                       Map<String, Object> options, Result result) {
+    if (trackId == null) {
+      resultError("setFaceDetectionOverlay", "trackId is required", result);
+      return;
+    }
+
+    String key = faceDetectionKey(trackId, peerConnectionId);
+    FaceDetectionFrameProcessor processor = key != null ? faceDetectionProcessors.get(key) : null;
+    if (processor == null) {
+      resultError("setFaceDetectionOverlay", "Face detection not enabled for track: " + trackId, result);
+      return;
+    }
+
+    int flags = FaceOverlayStyle.fromMap(options);
+    boolean burnIn = options != null && Boolean.TRUE.equals(options.get("burnIn"));
+
+    FlutterRTCVideoRenderer render = null;
+    if (textureId != null) {
+      render = renders.get(textureId.longValue());
+      if (render == null) {
+        resultError("setFaceDetectionOverlay", "render [" + textureId + "] not found !", result);
+        return;
+      }
+    }
+
+    // Burning in changes the encoded video (local tracks) or every renderer and recording
+    // of the track (remote tracks), so it is opt-in
+    RemoteVideoTrack remoteVideoTrack = faceDetectionRemoteTracks.get(key);
+    LocalTrack localTrack = remoteVideoTrack == null ? getLocalTrack(trackId) : null;
+    FaceOverlayBurnIn existing = faceOverlayBurnIns.get(key);
+    boolean addBurnIn = burnIn && flags != 0 && existing == null;
+    if (addBurnIn && !(localTrack instanceof LocalVideoTrack) && remoteVideoTrack == null) {
+      // Rejected before anything is changed, so the renderer overlay stays as it was
+      resultError("setFaceDetectionOverlay", "burnIn is not supported for track: " + trackId, result);
+      return;
+    }
+
+    if (render != null) {
+      render.setFaceOverlay(flags != 0 ? processor.getLatestResultSlot() : null, flags);
+    }
+
+    if (addBurnIn) {
+      // Analyzers see frames before processors, so detection still sees clean frames
+      FaceOverlayBurnIn processorBurnIn = new FaceOverlayBurnIn(processor.getLatestResultSlot(), flags);
+      if (remoteVideoTrack != null) {
+        remoteVideoTrack.addProcessor(processorBurnIn);
+      } else {
+        ((LocalVideoTrack) localTrack).addProcessor(processorBurnIn);
+      }
+      faceOverlayBurnIns.put(key, processorBurnIn);
+    } else if (burnIn && flags != 0) {
+      existing.setFlags(flags);
+    } else if (existing != null) {
+      faceOverlayBurnIns.remove(key);
+      if (remoteVideoTrack != null) {
+        remoteVideoTrack.removeProcessor(existing);
+      } else if (localTrack instanceof LocalVideoTrack) {
+        ((LocalVideoTrack) localTrack).removeProcessor(existing);
+      }
+      existing.release();
+    }
+
+    result.success(null);
+  }
+
+  private PowerManagerConditionProvider getDeviceConditionProvider() {
+    if (deviceConditionProvider == null) {
+      deviceConditionProvider = new PowerManagerConditionProvider(context);
+      deviceConditionProvider.start();
+    }
+    return deviceConditionProvider;
+  }
+
+  private FaceDetectionService getFaceDetectionService() {
+    if (faceDetectionService == null) {
+      faceDetectionService = FaceDetectionService.createDefault(faceDetectionMaxConcurrent);
+      faceDetectionService.setMaxDetectionsPerSecond(faceDetectionMaxRate);
+    }
+    return faceDetectionService;
+  }
+
+  private void configureFaceDetectionService(Number maxConcurrentDetections, Number maxDetectionsPerSecond,
+      Result result) {
+    if (maxConcurrentDetections != null) {
+      if (maxConcurrentDetections.intValue() < 1) {
+        resultError("configureFaceDetectionService", "maxConcurrentDetections must be at least 1", result);
+        return;
+      }
+      faceDetectionMaxConcurrent = maxConcurrentDetections.intValue();
+    }
+    if (maxDetectionsPerSecond != null) {
+      faceDetectionMaxRate = Math.max(0, maxDetectionsPerSecond.doubleValue());
+    }
+
+    if (faceDetectionService != null) {
+      faceDetectionService.setMaxConcurrentDetections(faceDetectionMaxConcurrent);
+      faceDetectionService.setMaxDetectionsPerSecond(faceDetectionMaxRate);
+    }
+
+    Log.d(TAG, "Face detection service configured: maxConcurrentDetections=" + faceDetectionMaxConcurrent
+        + ", maxDetectionsPerSecond=" + faceDetectionMaxRate);
+    result.success(null);
+  }
 }
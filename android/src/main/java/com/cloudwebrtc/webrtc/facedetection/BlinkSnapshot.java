@@ -0,0 +1,124 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Raw NV21 copy of the region to snapshot when an eye closes, already cropped and
+ * downscaled to the output size. Copying it is cheap; the single JPEG encode is
+ * deferred until the closure actually completes a blink, and skipped otherwise.
+ */
+public class BlinkSnapshot {
+    final byte[] nv21Data;
+    final int width;
+    final int height;
+
+    private BlinkSnapshot(byte[] nv21Data, int width, int height) {
+        this.nv21Data = nv21Data;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Crop {@code cropRect} out of an NV21 image and scale it down to at most
+     * {@code maxWidth} pixels wide (0 = no limit) in one pass over the planes.
+     * Luma is box filtered, chroma is point sampled. The rect is clamped to the image
+     * and aligned to even coordinates so chroma rows line up.
+     */
+    public static BlinkSnapshot cropAndScale(byte[] nv21, int imageWidth, int imageHeight, Rect cropRect,
+                                             int maxWidth) {
+        int left = Math.max(0, cropRect.left) & ~1;
+        int top = Math.max(0, cropRect.top) & ~1;
+        int cropWidth = (Math.min(imageWidth, cropRect.right) - left) & ~1;
+        int cropHeight = (Math.min(imageHeight, cropRect.bottom) - top) & ~1;
+        if (cropWidth <= 0 || cropHeight <= 0) {
+            return null;
+        }
+
+        int width = cropWidth;
+        int height = cropHeight;
+        if (maxWidth > 0 && cropWidth > maxWidth) {
+            width = Math.max(2, maxWidth & ~1);
+            height = Math.max(2, (int) ((long) cropHeight * width / cropWidth) & ~1);
+        }
+
+        int ySize = width * height;
+        byte[] out = new byte[ySize + ySize / 2];
+
+        if (width == cropWidth && height == cropHeight) {
+            copyRegion(nv21, imageWidth, imageHeight, left, top, out, width, height);
+        } else {
+            scaleRegion(nv21, imageWidth, imageHeight, left, top, cropWidth, cropHeight, out, width, height);
+        }
+
+        return new BlinkSnapshot(out, width, height);
+    }
+
+    private static void copyRegion(byte[] src, int imageWidth, int imageHeight, int left, int top,
+                                   byte[] out, int width, int height) {
+        // Y rows
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(src, (top + row) * imageWidth + left, out, row * width, width);
+        }
+
+        // Interleaved VU rows, half height
+        int ySize = width * height;
+        int srcYSize = imageWidth * imageHeight;
+        int srcChromaStride = ((imageWidth + 1) / 2) * 2;
+        for (int row = 0; row < height / 2; row++) {
+            System.arraycopy(src, srcYSize + (top / 2 + row) * srcChromaStride + left,
+                    out, ySize + row * width, width);
+        }
+    }
+
+    private static void scaleRegion(byte[] src, int imageWidth, int imageHeight, int left, int top,
+                                    int cropWidth, int cropHeight, byte[] out, int width, int height) {
+        // Y: average the source footprint of every output pixel
+        for (int y = 0; y < height; y++) {
+            int sy0 = top + y * cropHeight / height;
+            int sy1 = Math.max(sy0 + 1, top + (y + 1) * cropHeight / height);
+            int outRow = y * width;
+            for (int x = 0; x < width; x++) {
+                int sx0 = left + x * cropWidth / width;
+                int sx1 = Math.max(sx0 + 1, left + (x + 1) * cropWidth / width);
+                int sum = 0;
+                for (int sy = sy0; sy < sy1; sy++) {
+                    int rowOffset = sy * imageWidth;
+                    for (int sx = sx0; sx < sx1; sx++) {
+                        sum += src[rowOffset + sx] & 0xFF;
+                    }
+                }
+                out[outRow + x] = (byte) (sum / ((sy1 - sy0) * (sx1 - sx0)));
+            }
+        }
+
+        // VU: sample the chroma pair nearest to the centre of each output 2x2 block
+        int ySize = width * height;
+        int srcYSize = imageWidth * imageHeight;
+        int srcChromaStride = ((imageWidth + 1) / 2) * 2;
+        int chromaWidth = width / 2;
+        for (int y = 0; y < height / 2; y++) {
+            int sy = (top + (2 * y + 1) * cropHeight / height) / 2;
+            int srcRow = srcYSize + sy * srcChromaStride;
+            int outRow = ySize + y * width;
+            for (int x = 0; x < chromaWidth; x++) {
+                int sx = (left + (2 * x + 1) * cropWidth / width) / 2;
+                out[outRow + 2 * x] = src[srcRow + 2 * sx];
+                out[outRow + 2 * x + 1] = src[srcRow + 2 * sx + 1];
+            }
+        }
+    }
+
+    /**
+     * Encode as JPEG at the snapshot size.
+     */
+    public byte[] encodeJpeg(int quality) {
+        YuvImage yuvImage = new YuvImage(nv21Data, ImageFormat.NV21, width, height, null);
+        ByteArrayOutputStream jpegStream = new ByteArrayOutputStream();
+        yuvImage.compressToJpeg(new Rect(0, 0, width, height), quality, jpegStream);
+        return jpegStream.toByteArray();
+    }
+}
@@ -0,0 +1,134 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+/**
+ * Decides which frames are sent to the detector.
+ * In adaptive mode the detection rate follows a target detections-per-second, drops
+ * to an idle rate when no face has been seen for a while and is capped so the
+ * detector stays busy for at most a given fraction of wall time. Otherwise every
+ * Nth frame is used, as configured by frameSkipCount.
+ * Either way the rate can be scaled down further, e.g. under thermal throttling.
+ * All times are {@link System#nanoTime()} based.
+ */
+public class DetectionScheduler {
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final double RATE_SMOOTHING = 0.2;
+
+    private double targetRate;
+    private double idleRate;
+    private long idleTimeoutNs;
+    private double maxDetectionLoad;
+    private int frameSkipCount;
+    private double rateScale = 1.0;
+    private int effectiveFrameSkipCount;
+
+    private int frameCount = 0;
+    private long lastStartNs = -1;
+    private long lastFaceSeenNs = -1;
+    private long lastFinishNs = -1;
+
+    private double averageLatencyNs = 0;
+    private double measuredRate = 0;
+
+    public DetectionScheduler() {
+        configure(new FaceDetectionConfig());
+    }
+
+    public synchronized void configure(FaceDetectionConfig config) {
+        targetRate = config.targetDetectionsPerSecond;
+        idleRate = config.idleDetectionsPerSecond;
+        idleTimeoutNs = config.idleTimeoutMs * 1000000L;
+        maxDetectionLoad = config.maxDetectionLoad;
+        frameSkipCount = Math.max(1, config.frameSkipCount);
+        updateEffectiveFrameSkip();
+    }
+
+    /**
+     * Scale the detection rate by {@code scale} (0 < scale <= 1).
+     */
+    public synchronized void setRateScale(double scale) {
+        rateScale = Math.max(0.01, Math.min(1.0, scale));
+        updateEffectiveFrameSkip();
+    }
+
+    private void updateEffectiveFrameSkip() {
+        effectiveFrameSkipCount = Math.max(1, (int) Math.ceil(frameSkipCount / rateScale));
+    }
+
+    public synchronized boolean isAdaptive() {
+        return targetRate > 0;
+    }
+
+    /**
+     * Called for every captured frame; returns whether it should be detected.
+     */
+    public synchronized boolean shouldDetect(long nowNs) {
+        if (!isAdaptive()) {
+            frameCount++;
+            return frameCount % effectiveFrameSkipCount == 0;
+        }
+        if (lastStartNs < 0) {
+            // Start at the full rate and only back off after the idle timeout
+            lastFaceSeenNs = nowNs;
+            return true;
+        }
+        double rate = getScheduledRate(nowNs);
+        if (rate <= 0) {
+            return false;
+        }
+        return nowNs - lastStartNs >= (long) (1e9 / rate);
+    }
+
+    public synchronized void onDetectionStarted(long nowNs) {
+        lastStartNs = nowNs;
+    }
+
+    /**
+     * Record the end-to-end detector latency and whether any face was found.
+     */
+    public synchronized void onDetectionFinished(long latencyNs, int faceCount, long nowNs) {
+        averageLatencyNs = averageLatencyNs == 0
+                ? latencyNs
+                : averageLatencyNs + LATENCY_SMOOTHING * (latencyNs - averageLatencyNs);
+
+        if (lastFinishNs >= 0 && nowNs > lastFinishNs) {
+            double rate = 1e9 / (nowNs - lastFinishNs);
+            measuredRate = measuredRate == 0
+                    ? rate
+                    : measuredRate + RATE_SMOOTHING * (rate - measuredRate);
+        }
+        lastFinishNs = nowNs;
+
+        if (faceCount > 0) {
+            lastFaceSeenNs = nowNs;
+        }
+    }
+
+    /**
+     * Rate the adaptive scheduler is currently aiming for, after idle back-off and the
+     * latency budget.
+     */
+    public synchronized double getScheduledRate(long nowNs) {
+        boolean idle = isIdle(nowNs);
+        double rate = idle && idleRate > 0 ? Math.min(idleRate, targetRate) : targetRate;
+        rate *= rateScale;
+        if (maxDetectionLoad > 0 && averageLatencyNs > 0) {
+            double budgetRate = maxDetectionLoad * 1e9 / averageLatencyNs;
+            rate = Math.min(rate, budgetRate);
+        }
+        return rate;
+    }
+
+    public synchronized boolean isIdle(long nowNs) {
+        return isAdaptive() && lastFaceSeenNs >= 0 && nowNs - lastFaceSeenNs > idleTimeoutNs;
+    }
+
+    /** Smoothed rate of completed detections per second. */
+    public synchronized double getMeasuredRate() {
+        return measuredRate;
+    }
+
+    /** Smoothed detector latency in milliseconds. */
+    public synchronized double getAverageLatencyMs() {
+        return averageLatencyNs / 1e6;
+    }
+}
@@ -0,0 +1,28 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+/**
+ * Source of the device conditions that drive {@link ThrottlePolicy}.
+ * Implementations must be cheap to query, since they are read on the capture thread.
+ */
+public interface DeviceConditionProvider {
+    /** PowerManager.THERMAL_STATUS_NONE */
+    int THERMAL_STATUS_NONE = 0;
+    /** PowerManager.THERMAL_STATUS_LIGHT */
+    int THERMAL_STATUS_LIGHT = 1;
+    /** PowerManager.THERMAL_STATUS_MODERATE */
+    int THERMAL_STATUS_MODERATE = 2;
+    /** PowerManager.THERMAL_STATUS_SEVERE */
+    int THERMAL_STATUS_SEVERE = 3;
+    /** PowerManager.THERMAL_STATUS_CRITICAL; EMERGENCY and SHUTDOWN are higher */
+    int THERMAL_STATUS_CRITICAL = 4;
+
+    /**
+     * Current thermal status using the PowerManager.THERMAL_STATUS_* scale.
+     */
+    int getThermalStatus();
+
+    /**
+     * Whether battery saver is on.
+     */
+    boolean isPowerSaveMode();
+}
@@ -1,54 +1,72 @@
 package com.cloudwebrtc.webrtc.facedetection;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Tracks eye state per face (by trackingId) to detect blinks.
  * A blink is detected when eye transitions from closed -> open.
+ *
+ * States live in an int-keyed open-addressing table (linear probing). Each detection
+ * pass is bracketed by {@link #beginFrame()} / {@link #endFrame()}; faces not updated
+ * in between are evicted by generation, and evicted states are recycled, so steady
+ * state tracking does not allocate.
  */
 public class EyeStateTracker {
 
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 16;
+
     public static class EyeState {
         public boolean wasOpen = true;
         public boolean isOpen = true;
         public int blinkCount = 0;
-        /** Frame captured at the moment eye closed (to be emitted when blink completes) */
-        public String pendingCapturedFrame = null;
+        /** Raw snapshot taken at the moment eye closed (encoded only if the blink completes) */
+        public BlinkSnapshot pendingSnapshot = null;
+
+        void clear() {
+            wasOpen = true;
+            isOpen = true;
+            blinkCount = 0;
+            pendingSnapshot = null;
+        }
     }
 
     public static class FaceEyeState {
         public EyeState leftEye = new EyeState();
         public EyeState rightEye = new EyeState();
+        int generation;
+
+        void clear() {
+            leftEye.clear();
+            rightEye.clear();
+        }
     }
 
     public static class BlinkResult {
         public String eye; // "left", "right", or "both"
         public int leftBlinkCount;
         public int rightBlinkCount;
-        public String capturedFrame; // base64 JPEG if captured
+        public BlinkSnapshot snapshot; // raw snapshot if captured, not yet encoded
 
-        public BlinkResult(String eye, int leftBlinkCount, int rightBlinkCount, String capturedFrame) {
+        void set(String eye, int leftBlinkCount, int rightBlinkCount, BlinkSnapshot snapshot) {
             this.eye = eye;
             this.leftBlinkCount = leftBlinkCount;
             this.rightBlinkCount = rightBlinkCount;
-            this.capturedFrame = capturedFrame;
-        }
-
-        public Map<String, Object> toMap() {
-            Map<String, Object> map = new HashMap<>();
-            map.put("eye", eye);
-            map.put("leftBlinkCount", leftBlinkCount);
-            map.put("rightBlinkCount", rightBlinkCount);
-            if (capturedFrame != null) {
-                map.put("capturedFrame", capturedFrame);
-            }
-            return map;
+            this.snapshot = snapshot;
         }
     }
 
-    // Map of trackingId -> FaceEyeState
-    private final Map<Integer, FaceEyeState> faceStates = new HashMap<>();
+    // trackingId -> FaceEyeState, open addressing
+    private int[] keys = newKeys(INITIAL_CAPACITY);
+    private FaceEyeState[] states = new FaceEyeState[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // Recycled states of evicted faces
+    private FaceEyeState[] freeStates = new FaceEyeState[INITIAL_CAPACITY];
+    private int freeCount = 0;
+
+    private int generation = 0;
+    private final BlinkResult blinkResult = new BlinkResult();
 
     private double blinkThreshold = 0.3;
 
@@ -56,44 +74,49 @@ public class EyeStateTracker {
         this.blinkThreshold = threshold;
     }
 
+    /**
+     * Start a detection pass. Faces not updated before {@link #endFrame()} are evicted.
+     */
+    public void beginFrame() {
+        generation++;
+    }
+
     /**
      * Update eye state for a face and detect blinks.
      *
      * @param trackingId The face tracking ID
      * @param leftEyeOpenProb Left eye open probability (0.0-1.0)
      * @param rightEyeOpenProb Right eye open probability (0.0-1.0)
-     * @param capturedFrame Base64 JPEG frame captured when eye closed (or null)
-     * @return BlinkResult if a blink was detected, null otherwise
+     * @param snapshot Raw snapshot taken when eye closed (or null)
+     * @return BlinkResult if a blink was detected, null otherwise. The instance is reused
+     *         and only valid until the next call.
      */
     public BlinkResult updateEyeState(
             int trackingId,
             float leftEyeOpenProb,
             float rightEyeOpenProb,
-            String capturedFrame
+            BlinkSnapshot snapshot
     ) {
-        FaceEyeState faceState = faceStates.get(trackingId);
-        if (faceState == null) {
-            faceState = new FaceEyeState();
-            faceStates.put(trackingId, faceState);
-        }
+        FaceEyeState faceState = getOrCreate(trackingId);
+        faceState.generation = generation;
 
         boolean leftCurrentlyOpen = leftEyeOpenProb > blinkThreshold;
         boolean rightCurrentlyOpen = rightEyeOpenProb > blinkThreshold;
 
         boolean leftBlinked = false;
         boolean rightBlinked = false;
-        String blinkCapturedFrame = null;
+        BlinkSnapshot blinkSnapshot = null;
 
         // Check left eye
         if (!faceState.leftEye.isOpen && leftCurrentlyOpen) {
             // Transition from closed to open = blink completed
             leftBlinked = true;
             faceState.leftEye.blinkCount++;
-            blinkCapturedFrame = faceState.leftEye.pendingCapturedFrame;
-            faceState.leftEye.pendingCapturedFrame = null;
+            blinkSnapshot = faceState.leftEye.pendingSnapshot;
+            faceState.leftEye.pendingSnapshot = null;
         } else if (faceState.leftEye.isOpen && !leftCurrentlyOpen) {
             // Transition from open to closed = capture frame
-            faceState.leftEye.pendingCapturedFrame = capturedFrame;
+            faceState.leftEye.pendingSnapshot = snapshot;
         }
 
         // Check right eye
@@ -101,13 +124,13 @@ public class EyeStateTracker {
             // Transition from closed to open = blink completed
             rightBlinked = true;
             faceState.rightEye.blinkCount++;
-            if (blinkCapturedFrame == null) {
-                blinkCapturedFrame = faceState.rightEye.pendingCapturedFrame;
+            if (blinkSnapshot == null) {
+                blinkSnapshot = faceState.rightEye.pendingSnapshot;
             }
-            faceState.rightEye.pendingCapturedFrame = null;
+            faceState.rightEye.pendingSnapshot = null;
         } else if (faceState.rightEye.isOpen && !rightCurrentlyOpen) {
             // Transition from open to closed = capture frame
-            faceState.rightEye.pendingCapturedFrame = capturedFrame;
+            faceState.rightEye.pendingSnapshot = snapshot;
         }
 
         // Update state
@@ -126,35 +149,161 @@ public class EyeStateTracker {
             } else {
                 eye = "right";
             }
-            return new BlinkResult(
+            blinkResult.set(
                     eye,
                     faceState.leftEye.blinkCount,
                     faceState.rightEye.blinkCount,
-                    blinkCapturedFrame
+                    blinkSnapshot
             );
+            return blinkResult;
         }
 
         return null;
     }
 
+    /**
+     * Keep a face alive for the current pass without updating its eye state.
+     */
+    public void touch(int trackingId) {
+        int index = indexOf(trackingId);
+        if (index >= 0) {
+            states[index].generation = generation;
+        }
+    }
+
     /**
      * Get the current eye state for a face.
      */
     public FaceEyeState getFaceState(int trackingId) {
-        return faceStates.get(trackingId);
+        int index = indexOf(trackingId);
+        return index >= 0 ? states[index] : null;
+    }
+
+    /**
+     * Finish a detection pass, evicting faces that were not updated or touched in it.
+     */
+    public void endFrame() {
+        int i = 0;
+        while (i < keys.length) {
+            if (keys[i] != EMPTY && states[i].generation != generation) {
+                // Removal shifts a later entry into slot i, so check it again
+                removeAt(i);
+            } else {
+                i++;
+            }
+        }
     }
 
     /**
-     * Remove stale face states (faces no longer being tracked).
+     * Number of faces currently tracked.
      */
-    public void cleanupStaleStates(java.util.Set<Integer> activeTrackingIds) {
-        faceStates.keySet().retainAll(activeTrackingIds);
+    public int size() {
+        return size;
     }
 
     /**
      * Clear all tracked states.
      */
     public void reset() {
-        faceStates.clear();
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(states, null);
+        size = 0;
+        Arrays.fill(freeStates, null);
+        freeCount = 0;
+    }
+
+    private int indexOf(int trackingId) {
+        int mask = keys.length - 1;
+        int index = mix(trackingId) & mask;
+        while (keys[index] != EMPTY) {
+            if (keys[index] == trackingId) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private FaceEyeState getOrCreate(int trackingId) {
+        int index = indexOf(trackingId);
+        if (index >= 0) {
+            return states[index];
+        }
+
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+
+        FaceEyeState state;
+        if (freeCount > 0) {
+            state = freeStates[--freeCount];
+            freeStates[freeCount] = null;
+            state.clear();
+        } else {
+            state = new FaceEyeState();
+        }
+        insert(trackingId, state);
+        return state;
+    }
+
+    private void insert(int trackingId, FaceEyeState state) {
+        int mask = keys.length - 1;
+        int index = mix(trackingId) & mask;
+        while (keys[index] != EMPTY) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = trackingId;
+        states[index] = state;
+        size++;
+    }
+
+    private void removeAt(int index) {
+        FaceEyeState removed = states[index];
+        if (freeCount < freeStates.length) {
+            freeStates[freeCount++] = removed;
+        }
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int mask = keys.length - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            // Move the entry if its home is not cyclically in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                states[hole] = states[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        states[hole] = null;
+        size--;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        FaceEyeState[] oldStates = states;
+        keys = newKeys(oldKeys.length * 2);
+        states = new FaceEyeState[oldKeys.length * 2];
+        freeStates = Arrays.copyOf(freeStates, oldKeys.length * 2);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insert(oldKeys[i], oldStates[i]);
+            }
+        }
+    }
+
+    private static int[] newKeys(int capacity) {
+        int[] keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
     }
 }
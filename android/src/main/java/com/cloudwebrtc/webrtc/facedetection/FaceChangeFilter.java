@@ -0,0 +1,125 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides whether a face result differs enough from the last emitted one to be sent.
+ * A result is emitted when faces appear or disappear, when any face moved or changed
+ * beyond the configured thresholds, or when the keyframe interval has passed.
+ * Comparisons are against the last emitted result, so slow drift is still reported
+ * once it adds up.
+ */
+public class FaceChangeFilter {
+    private boolean enabled;
+    private float minBoundsChangePx;
+    private float minHeadPoseChangeDegrees;
+    private float minProbabilityChange;
+    private long keyframeIntervalNs;
+
+    private List<FaceResult> lastEmitted = null;
+    private long lastEmitNs = 0;
+    private long suppressed = 0;
+
+    public synchronized void configure(FaceDetectionConfig config) {
+        enabled = config.filterInsignificantChanges;
+        minBoundsChangePx = (float) config.minBoundsChangePx;
+        minHeadPoseChangeDegrees = (float) config.minHeadPoseChangeDegrees;
+        minProbabilityChange = (float) config.minProbabilityChange;
+        keyframeIntervalNs = config.keyframeIntervalMs * 1000000L;
+        if (!enabled) {
+            lastEmitted = null;
+        }
+    }
+
+    /**
+     * Returns whether {@code faces} should be emitted and, if so, remembers them as the
+     * last emitted result.
+     */
+    public synchronized boolean shouldEmit(List<FaceResult> faces, long nowNs) {
+        if (!enabled) {
+            return true;
+        }
+        if (lastEmitted == null
+                || (keyframeIntervalNs > 0 && nowNs - lastEmitNs >= keyframeIntervalNs)
+                || hasSignificantChange(faces)) {
+            remember(faces, nowNs);
+            return true;
+        }
+        suppressed++;
+        return false;
+    }
+
+    /** Results not emitted because they were below the thresholds. */
+    public synchronized long getSuppressedCount() {
+        return suppressed;
+    }
+
+    public synchronized void reset() {
+        lastEmitted = null;
+        suppressed = 0;
+    }
+
+    private boolean hasSignificantChange(List<FaceResult> faces) {
+        if (faces.size() != lastEmitted.size()) {
+            return true;
+        }
+        for (int i = 0; i < faces.size(); i++) {
+            FaceResult face = faces.get(i);
+            FaceResult previous = findPrevious(face, i);
+            if (previous == null) {
+                // A different face appeared in place of one that left
+                return true;
+            }
+            if (changed(face.left, previous.left, minBoundsChangePx)
+                    || changed(face.top, previous.top, minBoundsChangePx)
+                    || changed(face.right, previous.right, minBoundsChangePx)
+                    || changed(face.bottom, previous.bottom, minBoundsChangePx)
+                    || changed(face.yaw, previous.yaw, minHeadPoseChangeDegrees)
+                    || changed(face.pitch, previous.pitch, minHeadPoseChangeDegrees)
+                    || changed(face.roll, previous.roll, minHeadPoseChangeDegrees)
+                    || changed(face.leftEyeOpenProbability, previous.leftEyeOpenProbability,
+                            minProbabilityChange)
+                    || changed(face.rightEyeOpenProbability, previous.rightEyeOpenProbability,
+                            minProbabilityChange)
+                    || changed(face.smilingProbability, previous.smilingProbability,
+                            minProbabilityChange)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The last emitted face with the same trackingId, or at the same index without ids.
+     */
+    private FaceResult findPrevious(FaceResult face, int index) {
+        if (!face.hasTrackingId()) {
+            FaceResult previous = lastEmitted.get(index);
+            return previous.hasTrackingId() ? null : previous;
+        }
+        for (FaceResult previous : lastEmitted) {
+            if (previous.trackingId == face.trackingId) {
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    private static boolean changed(float current, float previous, float threshold) {
+        boolean currentMissing = Float.isNaN(current);
+        if (currentMissing || Float.isNaN(previous)) {
+            return currentMissing != Float.isNaN(previous);
+        }
+        return Math.abs(current - previous) > threshold;
+    }
+
+    private void remember(List<FaceResult> faces, long nowNs) {
+        List<FaceResult> copies = new ArrayList<>(faces.size());
+        for (FaceResult face : faces) {
+            copies.add(face.copy());
+        }
+        lastEmitted = copies;
+        lastEmitNs = nowNs;
+    }
+}
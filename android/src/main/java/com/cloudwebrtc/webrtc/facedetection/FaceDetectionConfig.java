@@ -24,6 +24,79 @@ public class FaceDetectionConfig {
     /** Maximum width for captured images in pixels */
     public int maxImageWidth = 480;
 
+    /**
+     * Longest side in pixels of the image fed to the detector (0 = full capture resolution).
+     * Results are reported in full-frame coordinates regardless.
+     */
+    public int detectionMaxDimension = 0;
+
+    /**
+     * Target detections per second. When > 0 the rate is scheduled adaptively
+     * and frameSkipCount is ignored.
+     */
+    public double targetDetectionsPerSecond = 0;
+
+    /** Detections per second once no face has been seen for idleTimeoutMs */
+    public double idleDetectionsPerSecond = 2;
+
+    /** Time without faces before falling back to idleDetectionsPerSecond */
+    public int idleTimeoutMs = 2000;
+
+    /** Maximum fraction of wall time the detector may be busy (0 = no limit) */
+    public double maxDetectionLoad = 0.5;
+
+    /** Emit predicted face positions for frames that are not detected */
+    public boolean interpolateResults = false;
+
+    /** Stop predicting a face this long after its last real detection */
+    public int maxPredictionMs = 500;
+
+    /** Send face and blink events as a packed byte[] (see FaceResultEncoder) instead of maps */
+    public boolean compactEncoding = false;
+
+    /**
+     * Detect landmarks (eyes, nose, mouth); turning it off saves inference time.
+     * Classification (eye open and smiling probabilities) runs while a blink listener
+     * is attached.
+     */
+    public boolean enableLandmarks = true;
+
+    /**
+     * Only emit face results that changed beyond the thresholds below, plus a keyframe
+     * every keyframeIntervalMs and whenever faces appear or disappear
+     */
+    public boolean filterInsignificantChanges = false;
+
+    /** Bounds edge movement in pixels that counts as a change */
+    public double minBoundsChangePx = 4;
+
+    /** Head yaw/pitch/roll change in degrees that counts as a change */
+    public double minHeadPoseChangeDegrees = 3;
+
+    /** Eye open / smiling probability change that counts as a change */
+    public double minProbabilityChange = 0.1;
+
+    /** Emit a result at least this often while filtering (0 = never force) */
+    public int keyframeIntervalMs = 1000;
+
+    /**
+     * Scale detection rate and resolution down under thermal pressure or battery saver,
+     * and back up when conditions recover
+     */
+    public boolean thermalThrottling = true;
+
+    /**
+     * Push face results to the face event stream. When off, results are only kept for
+     * getLatestFaces polling; blink events are still pushed
+     */
+    public boolean emitFaceEvents = true;
+
+    /** Load the detector and run a synthetic frame before the track delivers frames */
+    public boolean warmUp = false;
+
+    /** Add the processor stats (see FaceDetectionStats) to every face event; map events only */
+    public boolean includeStats = false;
+
     public FaceDetectionConfig() {}
 
     public static FaceDetectionConfig fromMap(Map<String, Object> map) {
@@ -75,6 +148,132 @@ public class FaceDetectionConfig {
             }
         }
 
+        if (map.containsKey("detectionMaxDimension")) {
+            Object value = map.get("detectionMaxDimension");
+            if (value instanceof Number) {
+                config.detectionMaxDimension = ((Number) value).intValue();
+            }
+        }
+
+        if (map.containsKey("targetDetectionsPerSecond")) {
+            Object value = map.get("targetDetectionsPerSecond");
+            if (value instanceof Number) {
+                config.targetDetectionsPerSecond = ((Number) value).doubleValue();
+            }
+        }
+
+        if (map.containsKey("idleDetectionsPerSecond")) {
+            Object value = map.get("idleDetectionsPerSecond");
+            if (value instanceof Number) {
+                config.idleDetectionsPerSecond = ((Number) value).doubleValue();
+            }
+        }
+
+        if (map.containsKey("idleTimeoutMs")) {
+            Object value = map.get("idleTimeoutMs");
+            if (value instanceof Number) {
+                config.idleTimeoutMs = ((Number) value).intValue();
+            }
+        }
+
+        if (map.containsKey("maxDetectionLoad")) {
+            Object value = map.get("maxDetectionLoad");
+            if (value instanceof Number) {
+                config.maxDetectionLoad = ((Number) value).doubleValue();
+            }
+        }
+
+        if (map.containsKey("interpolateResults")) {
+            Object value = map.get("interpolateResults");
+            if (value instanceof Boolean) {
+                config.interpolateResults = (Boolean) value;
+            }
+        }
+
+        if (map.containsKey("maxPredictionMs")) {
+            Object value = map.get("maxPredictionMs");
+            if (value instanceof Number) {
+                config.maxPredictionMs = ((Number) value).intValue();
+            }
+        }
+
+        if (map.containsKey("compactEncoding")) {
+            Object value = map.get("compactEncoding");
+            if (value instanceof Boolean) {
+                config.compactEncoding = (Boolean) value;
+            }
+        }
+
+        if (map.containsKey("enableLandmarks")) {
+            Object value = map.get("enableLandmarks");
+            if (value instanceof Boolean) {
+                config.enableLandmarks = (Boolean) value;
+            }
+        }
+
+        if (map.containsKey("filterInsignificantChanges")) {
+            Object value = map.get("filterInsignificantChanges");
+            if (value instanceof Boolean) {
+                config.filterInsignificantChanges = (Boolean) value;
+            }
+        }
+
+        if (map.containsKey("minBoundsChangePx")) {
+            Object value = map.get("minBoundsChangePx");
+            if (value instanceof Number) {
+                config.minBoundsChangePx = ((Number) value).doubleValue();
+            }
+        }
+
+        if (map.containsKey("minHeadPoseChangeDegrees")) {
+            Object value = map.get("minHeadPoseChangeDegrees");
+            if (value instanceof Number) {
+                config.minHeadPoseChangeDegrees = ((Number) value).doubleValue();
+            }
+        }
+
+        if (map.containsKey("minProbabilityChange")) {
+            Object value = map.get("minProbabilityChange");
+            if (value instanceof Number) {
+                config.minProbabilityChange = ((Number) value).doubleValue();
+            }
+        }
+
+        if (map.containsKey("keyframeIntervalMs")) {
+            Object value = map.get("keyframeIntervalMs");
+            if (value instanceof Number) {
+                config.keyframeIntervalMs = ((Number) value).intValue();
+            }
+        }
+
+        if (map.containsKey("thermalThrottling")) {
+            Object value = map.get("thermalThrottling");
+            if (value instanceof Boolean) {
+                config.thermalThrottling = (Boolean) value;
+            }
+        }
+
+        if (map.containsKey("emitFaceEvents")) {
+            Object value = map.get("emitFaceEvents");
+            if (value instanceof Boolean) {
+                config.emitFaceEvents = (Boolean) value;
+            }
+        }
+
+        if (map.containsKey("warmUp")) {
+            Object value = map.get("warmUp");
+            if (value instanceof Boolean) {
+                config.warmUp = (Boolean) value;
+            }
+        }
+
+        if (map.containsKey("includeStats")) {
+            Object value = map.get("includeStats");
+            if (value instanceof Boolean) {
+                config.includeStats = (Boolean) value;
+            }
+        }
+
         return config;
     }
 }
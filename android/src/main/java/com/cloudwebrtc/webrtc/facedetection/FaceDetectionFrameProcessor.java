@@ -1,78 +1,97 @@
 package com.cloudwebrtc.webrtc.facedetection;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.ImageFormat;
-import android.graphics.Matrix;
 import android.graphics.Rect;
-import android.graphics.YuvImage;
-import android.os.Handler;
-import android.os.HandlerThread;
-import android.util.Base64;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
-
+import com.cloudwebrtc.webrtc.video.FrameConversionCache;
 import com.cloudwebrtc.webrtc.video.LocalVideoTrack;
-import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.face.Face;
-import com.google.mlkit.vision.face.FaceDetection;
-import com.google.mlkit.vision.face.FaceDetector;
-import com.google.mlkit.vision.face.FaceDetectorOptions;
-import com.google.mlkit.vision.face.FaceLandmark;
 
 import org.webrtc.VideoFrame;
 
-import java.io.ByteArrayOutputStream;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.flutter.plugin.common.EventChannel;
 
 /**
- * Processes video frames for face detection using ML Kit.
- * Implements LocalVideoTrack.ExternalVideoFrameProcessing to receive frames from WebRTC.
+ * Processes video frames of one track for face detection.
+ * Detection runs on the plugin-wide {@link FaceDetectionService}, which owns the
+ * detector backends and worker threads shared by all tracks.
+ * Local tracks feed it as a {@link LocalVideoTrack.ExternalVideoFrameAnalyzer} off the
+ * capture thread; it can also run inline as an ExternalVideoFrameProcessing.
  */
-public class FaceDetectionFrameProcessor implements LocalVideoTrack.ExternalVideoFrameProcessing {
+public class FaceDetectionFrameProcessor implements LocalVideoTrack.ExternalVideoFrameProcessing,
+        LocalVideoTrack.ExternalVideoFrameAnalyzer {
     private static final String TAG = "FaceDetection";
+    private static final int STAGING_BUFFER_COUNT = 3;
+    private static final int WARM_UP_WIDTH = 320;
+    private static final int WARM_UP_HEIGHT = 240;
+
+    public interface WarmUpCallback {
+        /**
+         * Called on a service worker once the detector has processed the synthetic frame
+         * (or the warm-up was dropped).
+         */
+        void onWarmUpComplete(long elapsedNs);
+    }
 
-    private final FaceDetector faceDetector;
-    private final EyeStateTracker eyeStateTracker;
-    private final Handler processingHandler;
-    private final HandlerThread processingThread;
+    /** Distinguishes concurrent async trace sections */
+    private static final AtomicInteger nextTraceCookie = new AtomicInteger();
 
-    private EventChannel.EventSink faceEventSink;
-    private EventChannel.EventSink blinkEventSink;
+    private final FaceDetectionService service;
+    private final boolean ownsService;
+    private final EyeStateTracker eyeStateTracker;
+    private final Nv21BufferPool bufferPool;
+    private final DetectionScheduler scheduler;
+    private final FaceMotionTracker motionTracker;
+    private final I420ToNv21Converter nv21Converter;
+    private final FaceDetectionStats stats;
+    private final FaceEventDispatcher dispatcher;
+    private final FaceChangeFilter changeFilter;
+    private final LatestFaceResultSlot latestResult;
+
+    private volatile EventChannel.EventSink faceEventSink;
+    private volatile EventChannel.EventSink blinkEventSink;
+    private volatile String trackId;
 
     private FaceDetectionConfig config;
-    private int frameCount = 0;
+    private volatile ThrottlePolicy throttlePolicy;
+    private volatile int throttleLevel = 0;
     private volatile boolean isProcessing = false;
     private volatile boolean isDisposed = false;
 
-    public FaceDetectionFrameProcessor() {
-        // Configure ML Kit face detector
-        FaceDetectorOptions options = new FaceDetectorOptions.Builder()
-                .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_FAST)
-                .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_ALL)
-                .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_ALL)
-                .setContourMode(FaceDetectorOptions.CONTOUR_MODE_NONE)
-                .setMinFaceSize(0.15f)
-                .enableTracking()
-                .build();
-
-        faceDetector = FaceDetection.getClient(options);
+    public FaceDetectionFrameProcessor(FaceDetectionService service) {
+        this(service, false);
+    }
+
+    /**
+     * Processor with a private single-detector service, e.g. to run the pipeline on a
+     * scripted backend off-device. The service is shut down on {@link #dispose()}.
+     */
+    public FaceDetectionFrameProcessor(FaceDetectionService.BackendFactory backendFactory) {
+        this(new FaceDetectionService(1, backendFactory), true);
+    }
+
+    private FaceDetectionFrameProcessor(FaceDetectionService service, boolean ownsService) {
+        this.service = service;
+        this.ownsService = ownsService;
         eyeStateTracker = new EyeStateTracker();
         config = new FaceDetectionConfig();
-
-        // Create dedicated processing thread
-        processingThread = new HandlerThread("FaceDetectionThread");
-        processingThread.start();
-        processingHandler = new Handler(processingThread.getLooper());
+        bufferPool = new Nv21BufferPool(STAGING_BUFFER_COUNT);
+        nv21Converter = new I420ToNv21Converter();
+        scheduler = new DetectionScheduler();
+        motionTracker = new FaceMotionTracker();
+        stats = new FaceDetectionStats();
+        changeFilter = new FaceChangeFilter();
+        latestResult = new LatestFaceResultSlot();
+        dispatcher = new FaceEventDispatcher(
+                queuedNs -> stats.record(FaceDetectionStats.STAGE_EMIT, System.nanoTime() - queuedNs));
 
         Log.d(TAG, "FaceDetectionFrameProcessor initialized");
     }
@@ -80,286 +99,652 @@ public class FaceDetectionFrameProcessor implements LocalVideoTrack.ExternalVide
     public void setConfig(FaceDetectionConfig config) {
         this.config = config;
         eyeStateTracker.setBlinkThreshold(config.blinkThreshold);
+        scheduler.configure(config);
+        changeFilter.configure(config);
+        if (!config.interpolateResults) {
+            motionTracker.reset();
+        }
+    }
+
+    /**
+     * Observe thermal status and battery saver through {@code provider} and scale the
+     * detection rate and input resolution down as conditions get worse (null = off).
+     * Setting the provider already in use keeps the current level and recovery hold.
+     */
+    public void setConditionProvider(DeviceConditionProvider provider) {
+        ThrottlePolicy current = throttlePolicy;
+        if (current != null && current.getProvider() == provider) {
+            return;
+        }
+        throttlePolicy = provider != null ? new ThrottlePolicy(provider) : null;
+        if (provider == null) {
+            applyThrottleLevel(0);
+        }
+    }
+
+    /**
+     * Id of the track this processor analyzes, reported as {@code trackId} in face and
+     * blink events so Dart can tell tracks apart.
+     */
+    public void setTrackId(String trackId) {
+        this.trackId = trackId;
     }
 
     public void setFaceEventSink(EventChannel.EventSink sink) {
         this.faceEventSink = sink;
+        dispatcher.setFaceSink(sink);
     }
 
     public void setBlinkEventSink(EventChannel.EventSink sink) {
         this.blinkEventSink = sink;
+        dispatcher.setBlinkSink(sink);
+    }
+
+    /**
+     * Occupancy and hit/miss counters of the NV21 staging buffer pool.
+     */
+    public Map<String, Object> getBufferPoolStats() {
+        return bufferPool.getStats();
+    }
+
+    /**
+     * Per-stage latency histograms, frame counters, scheduler state and buffer pool stats.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> map = stats.toMap();
+        long nowNs = System.nanoTime();
+        map.put("detectionRate", scheduler.getMeasuredRate());
+        map.put("detectionLatencyMs", scheduler.getAverageLatencyMs());
+        map.put("scheduledRate", scheduler.getScheduledRate(nowNs));
+        map.put("idle", scheduler.isIdle(nowNs));
+        map.put("throttleLevel", throttleLevel);
+        map.put("bufferPool", bufferPool.getStats());
+        map.put("delivery", dispatcher.getStats());
+        map.put("changesSuppressed", changeFilter.getSuppressedCount());
+        return map;
+    }
+
+    /**
+     * Slot holding the latest detected or predicted result, e.g. for native overlays.
+     */
+    public LatestFaceResultSlot getLatestResultSlot() {
+        return latestResult;
+    }
+
+    /**
+     * The latest face result if it is newer than {@code sinceSeq}, otherwise null.
+     * The returned map holds {@code seq}, {@code ageMs} (time since the result was
+     * produced) and {@code result}, which is built like a face event on demand.
+     */
+    public Map<String, Object> getLatestFaces(long sinceSeq) {
+        LatestFaceResultSlot.Snapshot snapshot = latestResult.getIfNewer(sinceSeq);
+        if (snapshot == null) {
+            return null;
+        }
+        Map<String, Object> map = new HashMap<>();
+        map.put("seq", snapshot.seq);
+        map.put("ageMs", (System.nanoTime() - snapshot.publishedNs) / 1e6);
+        map.put("result", buildFaceEvent(snapshot.faces, snapshot.timestampNs,
+                snapshot.frameWidth, snapshot.frameHeight, snapshot.predicted));
+        return map;
     }
 
     @Override
     public VideoFrame onFrame(VideoFrame frame) {
+        return onFrame(frame, null);
+    }
+
+    @Override
+    public VideoFrame onFrame(VideoFrame frame, FrameConversionCache conversions) {
+        if (shouldAnalyze(frame)) {
+            analyze(frame, conversions);
+        }
+        return frame; // Return original frame for rendering
+    }
+
+    /**
+     * Frame skip / rate and busy check, cheap enough for the capture thread. Skipped
+     * frames may still produce a predicted result.
+     */
+    @Override
+    public boolean shouldAnalyze(VideoFrame frame) {
         if (isDisposed) {
-            return frame;
+            return false;
         }
 
-        // Frame skip check
-        frameCount++;
-        if (frameCount % config.frameSkipCount != 0) {
-            return frame;
+        stats.onFrameSeen();
+
+        // Frame skip / rate check
+        long nowNs = System.nanoTime();
+        ThrottlePolicy policy = throttlePolicy;
+        if (policy != null) {
+            applyThrottleLevel(policy.update(nowNs));
+        }
+        if (!scheduler.shouldDetect(nowNs)) {
+            stats.onFrameSkipped();
+            emitPrediction(frame);
+            return false;
         }
 
         // Non-blocking check - skip if still processing previous frame
         if (isProcessing) {
-            return frame;
+            stats.onFrameDroppedBusy();
+            emitPrediction(frame);
+            return false;
         }
+        return true;
+    }
+
+    /**
+     * Convert a frame accepted by {@link #shouldAnalyze} to the detection format and
+     * queue it on the service. The I420 conversion comes from {@code conversions} when
+     * given, so it is shared with other consumers of the frame.
+     */
+    @Override
+    public void analyze(VideoFrame frame, FrameConversionCache conversions) {
+        if (isDisposed || isProcessing) {
+            return;
+        }
+        long nowNs = System.nanoTime();
         isProcessing = true;
+        scheduler.onDetectionStarted(nowNs);
+
+        DetectionFrame converted = null;
+        FaceDetectionStats.beginSection(FaceDetectionStats.STAGE_CONVERT);
+        try {
+            converted = convertFrame(frame, conversions);
+        } finally {
+            FaceDetectionStats.endSection();
+            if (converted == null) {
+                // Conversion failed or threw; accept the next frame
+                onDetectionFailed(nowNs);
+                isProcessing = false;
+            }
+        }
+        if (converted == null) {
+            return;
+        }
+        final DetectionFrame detectionFrame = converted;
+        final byte[] nv21Data = detectionFrame.nv21Data;
+        long convertEndNs = System.nanoTime();
+        stats.record(FaceDetectionStats.STAGE_CONVERT, convertEndNs - nowNs);
+
+        final int traceCookie = nextTraceCookie.incrementAndGet();
+        final long queuedNs = convertEndNs;
+        FaceDetectionStats.beginAsyncSection(FaceDetectionStats.STAGE_QUEUE, traceCookie);
+
+        // Queue on the shared service; it runs when a detector is free and the global cap allows
+        service.submit(this, requiredFeatures(), new FaceDetectionService.Job() {
+            @Override
+            public void run(FaceDetectorBackend backend, Runnable done) {
+                stats.record(FaceDetectionStats.STAGE_QUEUE, System.nanoTime() - queuedNs);
+                FaceDetectionStats.endAsyncSection(FaceDetectionStats.STAGE_QUEUE, traceCookie);
+                if (isDisposed) {
+                    finishFrame(nv21Data);
+                    done.run();
+                    return;
+                }
+                processFrameAsync(detectionFrame, backend, done, traceCookie);
+            }
 
+            @Override
+            public void cancel() {
+                FaceDetectionStats.endAsyncSection(FaceDetectionStats.STAGE_QUEUE, traceCookie);
+                finishFrame(nv21Data);
+            }
+        });
+    }
+
+    /**
+     * Downscale {@code frame} to the detection resolution and convert it to NV21 in a
+     * pooled buffer.
+     *
+     * @return null if the frame could not be converted to I420
+     */
+    private DetectionFrame convertFrame(VideoFrame frame, FrameConversionCache conversions) {
         // Capture frame data before async processing
-        final int width = frame.getBuffer().getWidth();
-        final int height = frame.getBuffer().getHeight();
-        final int rotation = frame.getRotation();
-        final long timestampNs = frame.getTimestampNs();
+        final VideoFrame.Buffer buffer = frame.getBuffer();
+        final int frameWidth = buffer.getWidth();
+        final int frameHeight = buffer.getHeight();
+
+        // Downscale to the detection resolution before converting
+        int width = frameWidth;
+        int height = frameHeight;
+        int maxDimension = ThrottlePolicy.maxDimension(throttleLevel, config.detectionMaxDimension);
+        if (maxDimension > 0 && Math.max(frameWidth, frameHeight) > maxDimension) {
+            float scale = (float) maxDimension / Math.max(frameWidth, frameHeight);
+            // Keep even dimensions so chroma planes line up
+            width = Math.max(2, Math.round(frameWidth * scale) & ~1);
+            height = Math.max(2, Math.round(frameHeight * scale) & ~1);
+        }
 
         // Convert to I420 and copy data
-        VideoFrame.I420Buffer i420Buffer = frame.getBuffer().toI420();
-        final byte[] nv21Data = convertI420ToNV21(i420Buffer, width, height);
-        i420Buffer.release();
+        VideoFrame.I420Buffer i420Buffer;
+        if (conversions != null) {
+            i420Buffer = conversions.getI420(width, height);
+        } else if (width != frameWidth || height != frameHeight) {
+            VideoFrame.Buffer scaled = buffer.cropAndScale(0, 0, frameWidth, frameHeight, width, height);
+            i420Buffer = scaled.toI420();
+            scaled.release();
+        } else {
+            i420Buffer = buffer.toI420();
+        }
+        if (i420Buffer == null) {
+            return null;
+        }
+        final byte[] nv21Data = bufferPool.acquire(Nv21BufferPool.nv21Size(width, height));
+        boolean converted = false;
+        try {
+            nv21Converter.convert(i420Buffer, nv21Data, width, height);
+            converted = true;
+        } finally {
+            i420Buffer.release();
+            if (!converted) {
+                bufferPool.release(nv21Data);
+            }
+        }
+
+        return new DetectionFrame(nv21Data, width, height, frameWidth, frameHeight,
+                frame.getRotation(), frame.getTimestampNs());
+    }
+
+    /**
+     * Load the detector this track will use and run a synthetic frame through it, so
+     * model loading and JIT do not delay the first live result. Call before attaching
+     * the processor to a track.
+     */
+    public void warmUp(WarmUpCallback callback) {
+        final long startNs = System.nanoTime();
+        final byte[] nv21Data = new byte[Nv21BufferPool.nv21Size(WARM_UP_WIDTH, WARM_UP_HEIGHT)];
+        // Mid-gray image
+        Arrays.fill(nv21Data, (byte) 128);
+
+        // Report exactly once, whichever way the warm-up ends
+        final AtomicBoolean completed = new AtomicBoolean(false);
+        final Runnable complete = () -> {
+            if (completed.compareAndSet(false, true)) {
+                callback.onWarmUpComplete(System.nanoTime() - startNs);
+            }
+        };
+
+        service.submit(this, requiredFeatures(), new FaceDetectionService.Job() {
+            @Override
+            public void run(FaceDetectorBackend backend, Runnable done) {
+                try {
+                    backend.detect(nv21Data, WARM_UP_WIDTH, WARM_UP_HEIGHT, 0, new FaceDetectorBackend.Callback() {
+                        @Override
+                        public void onSuccess(List<FaceResult> faces) {
+                            done.run();
+                            complete.run();
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            Log.e(TAG, "Face detector warm-up failed", e);
+                            done.run();
+                            complete.run();
+                        }
+                    });
+                } catch (Exception e) {
+                    Log.e(TAG, "Face detector warm-up failed", e);
+                    done.run();
+                    complete.run();
+                }
+            }
 
-        // Process asynchronously
-        processingHandler.post(() -> {
+            @Override
+            public void cancel() {
+                complete.run();
+            }
+        });
+    }
+
+    private void applyThrottleLevel(int level) {
+        if (level == throttleLevel) {
+            return;
+        }
+        Log.d(TAG, "Face detection throttle level " + throttleLevel + " -> " + level);
+        throttleLevel = level;
+        scheduler.setRateScale(ThrottlePolicy.rateScale(level));
+    }
+
+    /**
+     * Detector features this track currently consumes. Classification is only needed
+     * for blink detection; the service rebuilds detectors when this changes.
+     */
+    private int requiredFeatures() {
+        int features = 0;
+        if (config.enableLandmarks) {
+            features |= FaceDetectorBackend.FEATURE_LANDMARKS;
+        }
+        if (blinkEventSink != null) {
+            features |= FaceDetectorBackend.FEATURE_CLASSIFICATION;
+        }
+        return features;
+    }
+
+    /**
+     * Emit interpolated face positions for a frame that is not sent to the detector.
+     */
+    private void emitPrediction(VideoFrame frame) {
+        if (!config.interpolateResults || motionTracker.isEmpty()) {
+            return;
+        }
+        final int frameWidth = frame.getBuffer().getWidth();
+        final int frameHeight = frame.getBuffer().getHeight();
+        final long timestampNs = frame.getTimestampNs();
+        final int rotation = frame.getRotation();
+
+        service.execute(() -> {
             if (isDisposed) {
-                isProcessing = false;
                 return;
             }
-            processFrameAsync(nv21Data, width, height, rotation, timestampNs);
+            List<FaceResult> predictions = motionTracker.predict(
+                    timestampNs, config.maxPredictionMs * 1000000L);
+            if (predictions.isEmpty()) {
+                return;
+            }
+            // A detection for a later frame may already have been published
+            if (!latestResult.publish(predictions, timestampNs, frameWidth, frameHeight, rotation, true)) {
+                return;
+            }
+            if (isPushingFaces() && changeFilter.shouldEmit(predictions, System.nanoTime())) {
+                emitFaceEvent(buildFaceEvent(predictions, timestampNs, frameWidth, frameHeight, true),
+                        timestampNs, true);
+            }
         });
-
-        return frame; // Return original frame for rendering
     }
 
-    private void processFrameAsync(byte[] nv21Data, int width, int height, int rotation, long timestampNs) {
+    /**
+     * Run the detector on a worker of the service. {@code done} hands the backend back.
+     */
+    private void processFrameAsync(DetectionFrame detectionFrame, FaceDetectorBackend backend, Runnable done,
+                                   int traceCookie) {
+        final long detectStartNs = System.nanoTime();
         try {
-            // Create InputImage from NV21 data
-            InputImage inputImage = InputImage.fromByteArray(
-                    nv21Data,
-                    width,
-                    height,
-                    rotation,
-                    InputImage.IMAGE_FORMAT_NV21
-            );
-
             // Run face detection
-            faceDetector.process(inputImage)
-                    .addOnSuccessListener(faces -> {
-                        if (isDisposed) {
-                            isProcessing = false;
-                            return;
+            FaceDetectionStats.beginAsyncSection(FaceDetectionStats.STAGE_DETECT, traceCookie);
+            backend.detect(
+                    detectionFrame.nv21Data,
+                    detectionFrame.width,
+                    detectionFrame.height,
+                    detectionFrame.rotation,
+                    new FaceDetectorBackend.Callback() {
+                        @Override
+                        public void onSuccess(List<FaceResult> faces) {
+                            long detectEndNs = System.nanoTime();
+                            FaceDetectionStats.endAsyncSection(FaceDetectionStats.STAGE_DETECT, traceCookie);
+                            // The backend is free again; mapping results does not need it
+                            done.run();
+                            stats.record(FaceDetectionStats.STAGE_DETECT, detectEndNs - detectStartNs);
+                            stats.onDetectionCompleted();
+                            scheduler.onDetectionFinished(detectEndNs - detectStartNs, faces.size(), detectEndNs);
+                            FaceDetectionStats.beginSection(FaceDetectionStats.STAGE_MAP);
+                            try {
+                                synchronized (eyeStateTracker) {
+                                    if (isDisposed) {
+                                        return;
+                                    }
+                                    for (FaceResult face : faces) {
+                                        face.scale(detectionFrame.scaleX(), detectionFrame.scaleY());
+                                    }
+                                    processFaceResults(faces, detectionFrame);
+                                }
+                            } catch (Exception e) {
+                                Log.e(TAG, "Error processing face results", e);
+                            } finally {
+                                stats.record(FaceDetectionStats.STAGE_MAP, System.nanoTime() - detectEndNs);
+                                FaceDetectionStats.endSection();
+                                finishFrame(detectionFrame.nv21Data);
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            Log.e(TAG, "Face detection failed", e);
+                            FaceDetectionStats.endAsyncSection(FaceDetectionStats.STAGE_DETECT, traceCookie);
+                            done.run();
+                            onDetectionFailed(detectStartNs);
+                            finishFrame(detectionFrame.nv21Data);
                         }
-                        processFaceResults(faces, nv21Data, width, height, rotation, timestampNs);
-                        isProcessing = false;
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Face detection failed", e);
-                        isProcessing = false;
                     });
 
         } catch (Exception e) {
             Log.e(TAG, "Error processing frame", e);
-            isProcessing = false;
+            FaceDetectionStats.endAsyncSection(FaceDetectionStats.STAGE_DETECT, traceCookie);
+            done.run();
+            onDetectionFailed(detectStartNs);
+            finishFrame(detectionFrame.nv21Data);
         }
     }
 
-    private void processFaceResults(List<Face> faces, byte[] nv21Data, int width, int height, int rotation, long timestampNs) {
-        if (faceEventSink == null && blinkEventSink == null) {
-            return;
-        }
+    /**
+     * Count a failed detection and feed its time to the scheduler as a result without
+     * faces, so the latency and rate estimates keep tracking the detector.
+     */
+    private void onDetectionFailed(long detectStartNs) {
+        long nowNs = System.nanoTime();
+        stats.onDetectionFailed();
+        scheduler.onDetectionFinished(nowNs - detectStartNs, 0, nowNs);
+    }
 
-        Set<Integer> activeTrackingIds = new HashSet<>();
-        List<Map<String, Object>> faceDataList = new ArrayList<>();
+    /**
+     * Recycle the staging buffer once the detector is done with it and accept the next frame.
+     */
+    private void finishFrame(byte[] nv21Data) {
+        bufferPool.release(nv21Data);
+        isProcessing = false;
+    }
 
-        for (Face face : faces) {
-            Integer trackingId = face.getTrackingId();
-            if (trackingId != null) {
-                activeTrackingIds.add(trackingId);
-            }
+    private void processFaceResults(List<FaceResult> faces, DetectionFrame detectionFrame) {
+        if (config.interpolateResults) {
+            motionTracker.update(faces, detectionFrame.timestampNs);
+        }
+        latestResult.publish(faces, detectionFrame.timestampNs,
+                detectionFrame.frameWidth, detectionFrame.frameHeight, detectionFrame.rotation, false);
 
-            Map<String, Object> faceData = new HashMap<>();
+        if (!isPushingFaces() && blinkEventSink == null) {
+            return;
+        }
 
-            // Bounds
-            Rect bounds = face.getBoundingBox();
-            Map<String, Object> boundsMap = new HashMap<>();
-            boundsMap.put("left", bounds.left);
-            boundsMap.put("top", bounds.top);
-            boundsMap.put("width", bounds.width());
-            boundsMap.put("height", bounds.height());
-            faceData.put("bounds", boundsMap);
+        eyeStateTracker.beginFrame();
 
-            // Tracking ID
-            if (trackingId != null) {
-                faceData.put("trackingId", trackingId);
+        for (FaceResult face : faces) {
+            if (face.hasTrackingId()) {
+                eyeStateTracker.touch(face.trackingId);
             }
 
-            // Head pose
-            Map<String, Object> headPose = new HashMap<>();
-            headPose.put("yaw", face.getHeadEulerAngleY());
-            headPose.put("pitch", face.getHeadEulerAngleX());
-            headPose.put("roll", face.getHeadEulerAngleZ());
-            faceData.put("headPose", headPose);
-
-            // Landmarks
-            Map<String, Object> landmarks = new HashMap<>();
-
-            // Left eye
-            FaceLandmark leftEye = face.getLandmark(FaceLandmark.LEFT_EYE);
-            if (leftEye != null) {
-                Map<String, Object> leftEyeData = new HashMap<>();
-                leftEyeData.put("x", leftEye.getPosition().x);
-                leftEyeData.put("y", leftEye.getPosition().y);
-                Float leftEyeOpenProb = face.getLeftEyeOpenProbability();
-                if (leftEyeOpenProb != null) {
-                    leftEyeData.put("openProbability", leftEyeOpenProb);
-                    leftEyeData.put("isOpen", leftEyeOpenProb > config.blinkThreshold);
+            // Blink detection
+            if (face.hasTrackingId() && blinkEventSink != null && face.hasEyeOpenProbabilities()) {
+                float leftEyeOpenProb = face.leftEyeOpenProbability;
+                float rightEyeOpenProb = face.rightEyeOpenProbability;
+
+                // Capture frame if configured and eye is closing
+                BlinkSnapshot snapshot = null;
+                if (config.captureOnBlink) {
+                    boolean leftClosing = leftEyeOpenProb <= config.blinkThreshold;
+                    boolean rightClosing = rightEyeOpenProb <= config.blinkThreshold;
+                    EyeStateTracker.FaceEyeState faceState = eyeStateTracker.getFaceState(face.trackingId);
+                    boolean wasLeftOpen = faceState == null || faceState.leftEye.isOpen;
+                    boolean wasRightOpen = faceState == null || faceState.rightEye.isOpen;
+
+                    if ((leftClosing && wasLeftOpen) || (rightClosing && wasRightOpen)) {
+                        snapshot = captureSnapshot(detectionFrame, face);
+                    }
                 }
-                landmarks.put("leftEye", leftEyeData);
-            }
 
-            // Right eye
-            FaceLandmark rightEye = face.getLandmark(FaceLandmark.RIGHT_EYE);
-            if (rightEye != null) {
-                Map<String, Object> rightEyeData = new HashMap<>();
-                rightEyeData.put("x", rightEye.getPosition().x);
-                rightEyeData.put("y", rightEye.getPosition().y);
-                Float rightEyeOpenProb = face.getRightEyeOpenProbability();
-                if (rightEyeOpenProb != null) {
-                    rightEyeData.put("openProbability", rightEyeOpenProb);
-                    rightEyeData.put("isOpen", rightEyeOpenProb > config.blinkThreshold);
+                EyeStateTracker.BlinkResult blinkResult = eyeStateTracker.updateEyeState(
+                        face.trackingId,
+                        leftEyeOpenProb,
+                        rightEyeOpenProb,
+                        snapshot
+                );
+
+                if (blinkResult != null) {
+                    emitBlink(blinkResult, face.trackingId, detectionFrame.timestampNs);
                 }
-                landmarks.put("rightEye", rightEyeData);
             }
+        }
 
-            // Nose
-            FaceLandmark nose = face.getLandmark(FaceLandmark.NOSE_BASE);
-            if (nose != null) {
-                Map<String, Object> noseData = new HashMap<>();
-                noseData.put("x", nose.getPosition().x);
-                noseData.put("y", nose.getPosition().y);
-                landmarks.put("nose", noseData);
-            }
+        // Cleanup stale face states
+        eyeStateTracker.endFrame();
 
-            // Mouth
-            FaceLandmark mouthLeft = face.getLandmark(FaceLandmark.MOUTH_LEFT);
-            FaceLandmark mouthRight = face.getLandmark(FaceLandmark.MOUTH_RIGHT);
-            FaceLandmark mouthBottom = face.getLandmark(FaceLandmark.MOUTH_BOTTOM);
-            if (mouthLeft != null && mouthRight != null) {
-                Map<String, Object> mouthData = new HashMap<>();
-                mouthData.put("leftX", mouthLeft.getPosition().x);
-                mouthData.put("leftY", mouthLeft.getPosition().y);
-                mouthData.put("rightX", mouthRight.getPosition().x);
-                mouthData.put("rightY", mouthRight.getPosition().y);
-                if (mouthBottom != null) {
-                    mouthData.put("bottomX", mouthBottom.getPosition().x);
-                    mouthData.put("bottomY", mouthBottom.getPosition().y);
-                }
-                Float smilingProb = face.getSmilingProbability();
-                if (smilingProb != null) {
-                    mouthData.put("smilingProbability", smilingProb);
-                }
-                landmarks.put("mouth", mouthData);
-            }
+        // Emit face detection results, unless nothing changed significantly
+        if (isPushingFaces() && changeFilter.shouldEmit(faces, System.nanoTime())) {
+            emitFaceEvent(buildFaceEvent(faces, detectionFrame.timestampNs,
+                    detectionFrame.frameWidth, detectionFrame.frameHeight, false),
+                    detectionFrame.timestampNs, false);
+        }
+    }
 
-            faceData.put("landmarks", landmarks);
+    /**
+     * Build the face event payload: nested maps, or a packed byte[] in compact mode.
+     */
+    private Object buildFaceEvent(List<FaceResult> faces, long timestampNs, int frameWidth, int frameHeight,
+                                  boolean predicted) {
+        boolean idle = scheduler.isIdle(System.nanoTime());
+
+        if (config.compactEncoding) {
+            int flags = (predicted ? FaceResultEncoder.FLAG_PREDICTED : 0)
+                    | (idle ? FaceResultEncoder.FLAG_IDLE : 0);
+            return FaceResultEncoder.encode(faces, timestampNs, frameWidth, frameHeight, flags,
+                    scheduler.getMeasuredRate(), scheduler.getAverageLatencyMs(), config.blinkThreshold,
+                    throttleLevel, trackId);
+        }
 
-            // Smiling probability
-            Float smilingProb = face.getSmilingProbability();
-            if (smilingProb != null) {
-                faceData.put("smilingProbability", smilingProb);
-            }
+        List<Map<String, Object>> faceDataList = new ArrayList<>(faces.size());
+        for (FaceResult face : faces) {
+            faceDataList.add(face.toMap(config.blinkThreshold));
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("faces", faceDataList);
+        result.put("timestamp", timestampNs);
+        if (trackId != null) {
+            result.put("trackId", trackId);
+        }
+        result.put("frameWidth", frameWidth);
+        result.put("frameHeight", frameHeight);
+        result.put("detectionRate", scheduler.getMeasuredRate());
+        result.put("detectionLatencyMs", scheduler.getAverageLatencyMs());
+        result.put("idle", idle);
+        result.put("throttleLevel", throttleLevel);
+        if (predicted) {
+            result.put("predicted", true);
+        }
+        if (config.includeStats) {
+            result.put("stats", getStats());
+        }
+        return result;
+    }
 
-            faceDataList.add(faceData);
+    private boolean isPushingFaces() {
+        return faceEventSink != null && config.emitFaceEvents;
+    }
 
-            // Blink detection
-            if (trackingId != null && blinkEventSink != null) {
-                Float leftEyeOpenProb = face.getLeftEyeOpenProbability();
-                Float rightEyeOpenProb = face.getRightEyeOpenProbability();
-
-                if (leftEyeOpenProb != null && rightEyeOpenProb != null) {
-                    // Capture frame if configured and eye is closing
-                    String capturedFrame = null;
-                    if (config.captureOnBlink) {
-                        boolean leftClosing = leftEyeOpenProb <= config.blinkThreshold;
-                        boolean rightClosing = rightEyeOpenProb <= config.blinkThreshold;
-                        EyeStateTracker.FaceEyeState faceState = eyeStateTracker.getFaceState(trackingId);
-                        boolean wasLeftOpen = faceState == null || faceState.leftEye.isOpen;
-                        boolean wasRightOpen = faceState == null || faceState.rightEye.isOpen;
-
-                        if ((leftClosing && wasLeftOpen) || (rightClosing && wasRightOpen)) {
-                            capturedFrame = captureFrameAsBase64(nv21Data, width, height, bounds);
-                        }
-                    }
+    /**
+     * Hand a face result to the main thread; an undelivered older result is replaced.
+     */
+    private void emitFaceEvent(Object event, long timestampNs, boolean predicted) {
+        if (faceEventSink != null && !isDisposed) {
+            dispatcher.offerFace(event, timestampNs, predicted);
+        }
+    }
 
-                    EyeStateTracker.BlinkResult blinkResult = eyeStateTracker.updateEyeState(
-                            trackingId,
-                            leftEyeOpenProb,
-                            rightEyeOpenProb,
-                            capturedFrame
-                    );
-
-                    if (blinkResult != null) {
-                        Map<String, Object> blinkEvent = blinkResult.toMap();
-                        blinkEvent.put("trackingId", trackingId);
-                        blinkEvent.put("timestamp", timestampNs);
-                        emitBlinkEvent(blinkEvent);
-                    }
-                }
-            }
+    /**
+     * Queue a blink event for the main thread; blink events are kept in order.
+     */
+    private void emitBlinkEvent(Object event) {
+        if (blinkEventSink != null && !isDisposed) {
+            dispatcher.offerBlink(event);
         }
+    }
 
-        // Cleanup stale face states
-        eyeStateTracker.cleanupStaleStates(activeTrackingIds);
-
-        // Emit face detection results
-        if (faceEventSink != null) {
-            Map<String, Object> result = new HashMap<>();
-            result.put("faces", faceDataList);
-            result.put("timestamp", timestampNs);
-            result.put("frameWidth", width);
-            result.put("frameHeight", height);
-            emitFaceEvent(result);
-        }
-    }
-
-    private void emitFaceEvent(Map<String, Object> event) {
-        if (faceEventSink != null) {
-            try {
-                // Must emit on main thread
-                new Handler(android.os.Looper.getMainLooper()).post(() -> {
-                    if (faceEventSink != null && !isDisposed) {
-                        faceEventSink.success(event);
+    /**
+     * Emit a blink event, encoding its snapshot first on the low-priority encoder thread.
+     * While captureOnBlink is enabled every blink goes through that thread to keep order.
+     * {@code blink} is reused by the tracker, so its fields are copied here.
+     */
+    private void emitBlink(EyeStateTracker.BlinkResult blink, int trackingId, long timestampNs) {
+        final String eye = blink.eye;
+        final int leftBlinkCount = blink.leftBlinkCount;
+        final int rightBlinkCount = blink.rightBlinkCount;
+        final BlinkSnapshot snapshot = blink.snapshot;
+        final boolean compact = config.compactEncoding;
+
+        if (snapshot == null && !config.captureOnBlink) {
+            emitBlinkEvent(buildBlinkEvent(compact, eye, leftBlinkCount, rightBlinkCount,
+                    trackingId, timestampNs, null));
+            return;
+        }
+        final int quality = (int) (config.imageQuality * 100);
+        try {
+            service.getEncoderExecutor().execute(() -> {
+                if (isDisposed) {
+                    return;
+                }
+                byte[] jpeg = null;
+                if (snapshot != null) {
+                    long encodeStartNs = System.nanoTime();
+                    FaceDetectionStats.beginSection(FaceDetectionStats.STAGE_ENCODE);
+                    try {
+                        jpeg = snapshot.encodeJpeg(quality);
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error encoding blink snapshot", e);
+                    } finally {
+                        stats.record(FaceDetectionStats.STAGE_ENCODE, System.nanoTime() - encodeStartNs);
+                        FaceDetectionStats.endSection();
                     }
-                });
-            } catch (Exception e) {
-                Log.e(TAG, "Error emitting face event", e);
-            }
+                }
+                emitBlinkEvent(buildBlinkEvent(compact, eye, leftBlinkCount, rightBlinkCount,
+                        trackingId, timestampNs, jpeg));
+            });
+        } catch (RejectedExecutionException e) {
+            // Disposed while the detection was in flight
         }
     }
 
-    private void emitBlinkEvent(Map<String, Object> event) {
-        if (blinkEventSink != null) {
-            try {
-                // Must emit on main thread
-                new Handler(android.os.Looper.getMainLooper()).post(() -> {
-                    if (blinkEventSink != null && !isDisposed) {
-                        blinkEventSink.success(event);
-                    }
-                });
-            } catch (Exception e) {
-                Log.e(TAG, "Error emitting blink event", e);
-            }
+    /**
+     * Build the blink event payload: a map, or a packed byte[] in compact mode.
+     */
+    private Object buildBlinkEvent(boolean compact, String eye, int leftBlinkCount, int rightBlinkCount,
+                                   int trackingId, long timestampNs, byte[] jpeg) {
+        if (compact) {
+            return FaceResultEncoder.encodeBlink(eye, leftBlinkCount, rightBlinkCount, trackingId,
+                    timestampNs, trackId, jpeg);
         }
+        Map<String, Object> event = new HashMap<>();
+        event.put("eye", eye);
+        event.put("leftBlinkCount", leftBlinkCount);
+        event.put("rightBlinkCount", rightBlinkCount);
+        event.put("trackingId", trackingId);
+        event.put("timestamp", timestampNs);
+        if (trackId != null) {
+            event.put("trackId", trackId);
+        }
+        if (jpeg != null) {
+            event.put("capturedFrame", jpeg);
+        }
+        return event;
     }
 
-    private String captureFrameAsBase64(byte[] nv21Data, int width, int height, Rect faceBounds) {
+    /**
+     * Copy the region to snapshot out of the detection image at its output size;
+     * encoding happens later.
+     */
+    private BlinkSnapshot captureSnapshot(DetectionFrame detectionFrame, FaceResult face) {
         try {
-            // Convert NV21 to JPEG
-            YuvImage yuvImage = new YuvImage(nv21Data, ImageFormat.NV21, width, height, null);
-            ByteArrayOutputStream jpegStream = new ByteArrayOutputStream();
+            int width = detectionFrame.width;
+            int height = detectionFrame.height;
 
             Rect cropRect;
-            if (config.cropToFace && faceBounds != null) {
+            if (config.cropToFace && face != null) {
+                // Face bounds are in full-frame coordinates, map them back to the detection image
+                Rect faceBounds = new Rect(
+                        Math.round(face.left / detectionFrame.scaleX()),
+                        Math.round(face.top / detectionFrame.scaleY()),
+                        Math.round(face.right / detectionFrame.scaleX()),
+                        Math.round(face.bottom / detectionFrame.scaleY())
+                );
                 // Expand face bounds slightly for context
                 int padding = (int) (Math.min(faceBounds.width(), faceBounds.height()) * 0.2);
                 cropRect = new Rect(
@@ -372,28 +757,8 @@ public class FaceDetectionFrameProcessor implements LocalVideoTrack.ExternalVide
                 cropRect = new Rect(0, 0, width, height);
             }
 
-            int quality = (int) (config.imageQuality * 100);
-            yuvImage.compressToJpeg(cropRect, quality, jpegStream);
-
-            byte[] jpegBytes = jpegStream.toByteArray();
-
-            // Resize if necessary
-            if (config.maxImageWidth > 0 && cropRect.width() > config.maxImageWidth) {
-                Bitmap bitmap = BitmapFactory.decodeByteArray(jpegBytes, 0, jpegBytes.length);
-                float scale = (float) config.maxImageWidth / bitmap.getWidth();
-                int newHeight = (int) (bitmap.getHeight() * scale);
-
-                Bitmap resized = Bitmap.createScaledBitmap(bitmap, config.maxImageWidth, newHeight, true);
-                bitmap.recycle();
-
-                ByteArrayOutputStream resizedStream = new ByteArrayOutputStream();
-                resized.compress(Bitmap.CompressFormat.JPEG, quality, resizedStream);
-                resized.recycle();
-
-                jpegBytes = resizedStream.toByteArray();
-            }
-
-            return Base64.encodeToString(jpegBytes, Base64.NO_WRAP);
+            return BlinkSnapshot.cropAndScale(detectionFrame.nv21Data, width, height, cropRect,
+                    config.maxImageWidth);
         } catch (Exception e) {
             Log.e(TAG, "Error capturing frame", e);
             return null;
@@ -401,57 +766,69 @@ public class FaceDetectionFrameProcessor implements LocalVideoTrack.ExternalVide
     }
 
     /**
-     * Convert I420 buffer to NV21 byte array.
+     * A converted frame on its way through the detector.
+     * {@code width}/{@code height} describe the NV21 image, which may be downscaled
+     * from the captured {@code frameWidth}/{@code frameHeight}.
      */
-    private byte[] convertI420ToNV21(VideoFrame.I420Buffer i420Buffer, int width, int height) {
-        int chromaWidth = (width + 1) / 2;
-        int chromaHeight = (height + 1) / 2;
-
-        int ySize = width * height;
-        int uvSize = chromaWidth * chromaHeight * 2;
-        byte[] nv21 = new byte[ySize + uvSize];
-
-        // Copy Y plane
-        ByteBuffer yBuffer = i420Buffer.getDataY();
-        int yStride = i420Buffer.getStrideY();
-        for (int row = 0; row < height; row++) {
-            yBuffer.position(row * yStride);
-            yBuffer.get(nv21, row * width, width);
-        }
-
-        // Interleave U and V planes to VU (NV21 format)
-        ByteBuffer uBuffer = i420Buffer.getDataU();
-        ByteBuffer vBuffer = i420Buffer.getDataV();
-        int uStride = i420Buffer.getStrideU();
-        int vStride = i420Buffer.getStrideV();
-
-        int uvOffset = ySize;
-        for (int row = 0; row < chromaHeight; row++) {
-            for (int col = 0; col < chromaWidth; col++) {
-                int uIndex = row * uStride + col;
-                int vIndex = row * vStride + col;
-                nv21[uvOffset++] = vBuffer.get(vIndex); // V first in NV21
-                nv21[uvOffset++] = uBuffer.get(uIndex); // then U
-            }
+    private static class DetectionFrame {
+        final byte[] nv21Data;
+        final int width;
+        final int height;
+        final int frameWidth;
+        final int frameHeight;
+        final int rotation;
+        final long timestampNs;
+
+        DetectionFrame(byte[] nv21Data, int width, int height, int frameWidth, int frameHeight,
+                       int rotation, long timestampNs) {
+            this.nv21Data = nv21Data;
+            this.width = width;
+            this.height = height;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            this.rotation = rotation;
+            this.timestampNs = timestampNs;
         }
 
-        return nv21;
+        /** Horizontal factor from detector output to full-frame coordinates. */
+        float scaleX() {
+            // ML Kit reports coordinates in the upright image, so axes swap for 90/270
+            return rotation % 180 == 0
+                    ? (float) frameWidth / width
+                    : (float) frameHeight / height;
+        }
+
+        /** Vertical factor from detector output to full-frame coordinates. */
+        float scaleY() {
+            return rotation % 180 == 0
+                    ? (float) frameHeight / height
+                    : (float) frameWidth / width;
+        }
     }
 
     public void dispose() {
         isDisposed = true;
-        isProcessing = false;
 
-        processingHandler.post(() -> {
-            faceDetector.close();
-            eyeStateTracker.reset();
-        });
+        // Drop a queued frame; one already in the detector finishes and is discarded
+        service.cancel(this);
+        service.releaseOwner(this);
 
-        processingThread.quitSafely();
+        synchronized (eyeStateTracker) {
+            eyeStateTracker.reset();
+        }
+        motionTracker.reset();
+        changeFilter.reset();
+        latestResult.clear();
+        bufferPool.clear();
+        dispatcher.dispose();
 
         faceEventSink = null;
         blinkEventSink = null;
 
+        if (ownsService) {
+            service.shutdown();
+        }
+
         Log.d(TAG, "FaceDetectionFrameProcessor disposed");
     }
 }
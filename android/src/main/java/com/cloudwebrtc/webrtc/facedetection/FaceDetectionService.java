@@ -0,0 +1,518 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plugin-wide face detection service shared by all {@link FaceDetectionFrameProcessor}s.
+ *
+ * Owns a bounded pool of detector backends and the worker threads their results are
+ * delivered on. Each processor has at most one queued job, and jobs are served in
+ * arrival order, which makes scheduling round-robin across tracks. An optional global
+ * cap limits detections per second over all tracks.
+ *
+ * Backends keep per-instance tracking state, so a track sticks to the backend it last
+ * used whenever possible. With fewer backends than active tracks, tracking ids may
+ * restart when a track has to move to another backend.
+ *
+ * Each job names the detector features it needs. A free backend built with other
+ * features is only rebuilt when no matching one is available. Backends are created
+ * and rebuilt on the worker running the job, never on the thread that submits it and
+ * never while holding the service lock.
+ */
+public class FaceDetectionService {
+    private static final String TAG = "FaceDetectionService";
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 30;
+
+    public interface BackendFactory {
+        /**
+         * @param callbackExecutor Executor backend callbacks must be delivered on
+         * @param features FEATURE_* flags of {@link FaceDetectorBackend} to enable
+         */
+        FaceDetectorBackend create(Executor callbackExecutor, int features);
+    }
+
+    /**
+     * A unit of detection work for one track.
+     */
+    public interface Job {
+        /**
+         * Run on a worker thread with exclusive use of {@code backend}. {@code done} must
+         * be called exactly once when the backend is no longer used, possibly later from
+         * the backend callback.
+         */
+        void run(FaceDetectorBackend backend, Runnable done);
+
+        /**
+         * The job was dropped without running (replaced, cancelled, service shut down or
+         * no backend could be created).
+         */
+        void cancel();
+    }
+
+    private static class QueuedJob {
+        final Object owner;
+        Job job;
+        int features;
+
+        QueuedJob(Object owner, Job job, int features) {
+            this.owner = owner;
+            this.job = job;
+            this.features = features;
+        }
+    }
+
+    private static class BackendSlot {
+        /** Null until built by the job that reserved the slot */
+        FaceDetectorBackend backend;
+        /** Backend being replaced; closed by the job that reserved the slot */
+        FaceDetectorBackend staleBackend;
+        int features;
+        boolean busy = false;
+        Object lastOwner = null;
+
+        BackendSlot(int features) {
+            this.features = features;
+        }
+    }
+
+    private final BackendFactory backendFactory;
+    private final ScheduledThreadPoolExecutor workers;
+    private final Executor workerExecutor;
+    private final ExecutorService encoder;
+
+    private final ArrayDeque<QueuedJob> queue = new ArrayDeque<>();
+    private final List<BackendSlot> slots = new ArrayList<>();
+
+    private int maxConcurrentDetections;
+    private double maxDetectionsPerSecond;
+    private long nextDispatchNs = 0;
+    private boolean dispatchScheduled = false;
+    private volatile boolean isShutdown = false;
+
+    private long dispatched = 0;
+    private long replaced = 0;
+    private long rateLimited = 0;
+    private long rebuilds = 0;
+
+    public FaceDetectionService(int maxConcurrentDetections, BackendFactory backendFactory) {
+        this.backendFactory = backendFactory;
+        this.maxConcurrentDetections = Math.max(1, maxConcurrentDetections);
+
+        workers = new ScheduledThreadPoolExecutor(this.maxConcurrentDetections, runnable -> {
+            Thread thread = new Thread(runnable, "FaceDetectionWorker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers.setKeepAliveTime(WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        workers.allowCoreThreadTimeOut(true);
+        // The pool keeps running after shutdown until running jobs have completed, since
+        // backend callbacks are delivered on it; new work is rejected here instead
+        workerExecutor = task -> {
+            if (isShutdown) {
+                throw new RejectedExecutionException("Face detection service is shut down");
+            }
+            workers.execute(task);
+        };
+
+        // Low-priority thread for snapshot encoding
+        encoder = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "FaceSnapshotEncoder"));
+    }
+
+    /**
+     * Service backed by ML Kit.
+     */
+    public static FaceDetectionService createDefault(int maxConcurrentDetections) {
+        return new FaceDetectionService(maxConcurrentDetections, MlKitFaceDetectorBackend::new);
+    }
+
+    /**
+     * Maximum number of detections in flight, which is also the number of backend instances.
+     */
+    public void setMaxConcurrentDetections(int maxConcurrentDetections) {
+        List<BackendSlot> removed = new ArrayList<>();
+        synchronized (this) {
+            this.maxConcurrentDetections = Math.max(1, maxConcurrentDetections);
+            workers.setCorePoolSize(this.maxConcurrentDetections);
+            // Close idle surplus backends now, busy ones when they are released
+            for (int i = slots.size() - 1; i >= 0 && slots.size() > this.maxConcurrentDetections; i--) {
+                if (!slots.get(i).busy) {
+                    removed.add(slots.remove(i));
+                }
+            }
+            dispatch();
+        }
+        closeSlots(removed);
+    }
+
+    /**
+     * Global cap over all tracks (0 = unlimited).
+     */
+    public synchronized void setMaxDetectionsPerSecond(double maxDetectionsPerSecond) {
+        this.maxDetectionsPerSecond = Math.max(0, maxDetectionsPerSecond);
+        dispatch();
+    }
+
+    /**
+     * Queue a job for {@code owner}, replacing (and cancelling) one still waiting.
+     *
+     * @param features FEATURE_* flags of {@link FaceDetectorBackend} the job needs
+     */
+    public void submit(Object owner, int features, Job job) {
+        Job replacedJob = null;
+        synchronized (this) {
+            if (isShutdown) {
+                replacedJob = job;
+            } else {
+                QueuedJob existing = find(owner);
+                if (existing != null) {
+                    replacedJob = existing.job;
+                    existing.job = job;
+                    existing.features = features;
+                    replaced++;
+                } else {
+                    queue.add(new QueuedJob(owner, job, features));
+                }
+                dispatch();
+            }
+        }
+        if (replacedJob != null) {
+            replacedJob.cancel();
+        }
+    }
+
+    /**
+     * Drop the queued job of {@code owner}, if any. A job already running completes.
+     */
+    public void cancel(Object owner) {
+        QueuedJob removed;
+        synchronized (this) {
+            removed = find(owner);
+            if (removed != null) {
+                queue.remove(removed);
+            }
+        }
+        if (removed != null) {
+            removed.job.cancel();
+        }
+    }
+
+    /**
+     * Run a short task on the worker pool.
+     *
+     * @return false if the service is shut down and the task was dropped
+     */
+    public boolean execute(Runnable task) {
+        try {
+            getWorkerExecutor().execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The worker pool as an executor, e.g. for frame analyzers. Rejects tasks after
+     * shutdown.
+     */
+    public Executor getWorkerExecutor() {
+        return workerExecutor;
+    }
+
+    /**
+     * Low-priority executor for snapshot encoding.
+     */
+    public Executor getEncoderExecutor() {
+        return encoder;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        int busy = 0;
+        for (BackendSlot slot : slots) {
+            if (slot.busy) {
+                busy++;
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("maxConcurrentDetections", maxConcurrentDetections);
+        stats.put("maxDetectionsPerSecond", maxDetectionsPerSecond);
+        stats.put("backends", slots.size());
+        stats.put("busyBackends", busy);
+        stats.put("queued", queue.size());
+        stats.put("dispatched", dispatched);
+        stats.put("replaced", replaced);
+        stats.put("rateLimited", rateLimited);
+        stats.put("rebuilds", rebuilds);
+        return stats;
+    }
+
+    /**
+     * Cancel queued jobs and close idle backends. Backends still running a job are closed
+     * when that job completes, and the worker pool stops after the last one.
+     */
+    public void shutdown() {
+        List<Job> cancelled = new ArrayList<>();
+        List<BackendSlot> idle = new ArrayList<>();
+        boolean stopWorkers;
+        synchronized (this) {
+            if (isShutdown) {
+                return;
+            }
+            isShutdown = true;
+            for (QueuedJob queued : queue) {
+                cancelled.add(queued.job);
+            }
+            queue.clear();
+            for (int i = slots.size() - 1; i >= 0; i--) {
+                if (!slots.get(i).busy) {
+                    idle.add(slots.remove(i));
+                }
+            }
+            stopWorkers = slots.isEmpty();
+        }
+        for (Job job : cancelled) {
+            job.cancel();
+        }
+        closeSlots(idle);
+        if (stopWorkers) {
+            workers.shutdown();
+        }
+        encoder.shutdown();
+    }
+
+    private static void closeSlots(List<BackendSlot> removed) {
+        for (BackendSlot slot : removed) {
+            closeBackend(slot.staleBackend);
+            closeBackend(slot.backend);
+        }
+    }
+
+    private static void closeBackend(FaceDetectorBackend backend) {
+        if (backend != null) {
+            backend.close();
+        }
+    }
+
+    private QueuedJob find(Object owner) {
+        for (QueuedJob queued : queue) {
+            if (queued.owner == owner) {
+                return queued;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hand queued jobs to free backends. Must hold the lock.
+     */
+    private void dispatch() {
+        while (!isShutdown && !queue.isEmpty()) {
+            if (maxDetectionsPerSecond > 0) {
+                long nowNs = System.nanoTime();
+                if (nowNs < nextDispatchNs) {
+                    scheduleDispatch(nextDispatchNs - nowNs);
+                    return;
+                }
+            }
+
+            QueuedJob queued = queue.peek();
+            final BackendSlot slot = acquireSlot(queued.owner, queued.features);
+            if (slot == null) {
+                return;
+            }
+            queue.poll();
+
+            if (maxDetectionsPerSecond > 0) {
+                nextDispatchNs = System.nanoTime() + (long) (1e9 / maxDetectionsPerSecond);
+            }
+            dispatched++;
+
+            final Job job = queued.job;
+            try {
+                workers.execute(() -> runJob(job, slot));
+            } catch (RejectedExecutionException e) {
+                slot.busy = false;
+                job.cancel();
+            }
+        }
+    }
+
+    private void runJob(Job job, BackendSlot slot) {
+        final boolean[] released = {false};
+        Runnable done = () -> {
+            boolean removed;
+            synchronized (FaceDetectionService.this) {
+                if (released[0]) {
+                    return;
+                }
+                released[0] = true;
+                removed = release(slot);
+            }
+            if (removed) {
+                closeBackend(slot.backend);
+                if (isShutdown && !hasSlots()) {
+                    workers.shutdown();
+                }
+            }
+        };
+        FaceDetectorBackend backend;
+        try {
+            backend = prepareBackend(slot);
+        } catch (Exception e) {
+            Log.e(TAG, "Face detector could not be created", e);
+            done.run();
+            job.cancel();
+            return;
+        }
+        try {
+            job.run(backend, done);
+        } catch (Exception e) {
+            Log.e(TAG, "Face detection job failed", e);
+            done.run();
+        }
+    }
+
+    /**
+     * Build the backend of a reserved slot if needed. Runs on the worker, outside the lock;
+     * the slot is busy, so no other thread touches its backend.
+     */
+    private FaceDetectorBackend prepareBackend(BackendSlot slot) {
+        FaceDetectorBackend stale;
+        int features;
+        synchronized (this) {
+            if (slot.backend != null) {
+                return slot.backend;
+            }
+            stale = slot.staleBackend;
+            slot.staleBackend = null;
+            features = slot.features;
+        }
+        closeBackend(stale);
+        FaceDetectorBackend backend = backendFactory.create(workers, features);
+        synchronized (this) {
+            slot.backend = backend;
+        }
+        return backend;
+    }
+
+    private synchronized boolean hasSlots() {
+        return !slots.isEmpty();
+    }
+
+    private void scheduleDispatch(long delayNs) {
+        if (dispatchScheduled) {
+            return;
+        }
+        dispatchScheduled = true;
+        rateLimited++;
+        try {
+            workers.schedule(() -> {
+                synchronized (FaceDetectionService.this) {
+                    dispatchScheduled = false;
+                    dispatch();
+                }
+            }, delayNs, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            dispatchScheduled = false;
+        }
+    }
+
+    /**
+     * Pick a free backend with {@code features} for {@code owner}: the one it used last,
+     * then an unused one, then a new one while under the limit, then any matching one.
+     * Otherwise a free backend is rebuilt, preferring the owner's own. Must hold the lock.
+     */
+    private BackendSlot acquireSlot(Object owner, int features) {
+        BackendSlot chosen = findFreeSlot(owner, features, true);
+        if (chosen == null) {
+            chosen = findFreeSlot(null, features, true);
+        }
+        if (chosen == null && slots.size() < maxConcurrentDetections) {
+            // The backend is built by the job on its worker
+            chosen = new BackendSlot(features);
+            slots.add(chosen);
+        }
+        if (chosen == null) {
+            chosen = findFreeSlot(owner, features, false);
+        }
+        if (chosen == null) {
+            chosen = findFreeSlot(owner, -1, true);
+        }
+        if (chosen == null) {
+            chosen = findFreeSlot(owner, -1, false);
+        }
+        if (chosen == null) {
+            return null;
+        }
+
+        if (chosen.features != features) {
+            // Rebuilt by the job on its worker
+            if (chosen.backend != null) {
+                chosen.staleBackend = chosen.backend;
+                chosen.backend = null;
+            }
+            chosen.features = features;
+            rebuilds++;
+        }
+        chosen.busy = true;
+        chosen.lastOwner = owner;
+        return chosen;
+    }
+
+    /**
+     * @param features Required features, or -1 for any
+     * @param matchOwner Whether the slot must have last been used by {@code owner}
+     */
+    private BackendSlot findFreeSlot(Object owner, int features, boolean matchOwner) {
+        for (BackendSlot slot : slots) {
+            if (slot.busy || (matchOwner && slot.lastOwner != owner)) {
+                continue;
+            }
+            if (features == -1 || slot.features == features) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Must hold the lock.
+     *
+     * @return true if the slot was removed and its backend must be closed by the caller
+     */
+    private boolean release(BackendSlot slot) {
+        slot.busy = false;
+        boolean removed = slots.size() > maxConcurrentDetections || isShutdown;
+        if (removed) {
+            slots.remove(slot);
+        }
+        dispatch();
+        return removed;
+    }
+
+    /**
+     * Forget {@code owner} as the last user of its backends so they can be reassigned.
+     */
+    public synchronized void releaseOwner(Object owner) {
+        for (BackendSlot slot : slots) {
+            if (slot.lastOwner == owner) {
+                slot.lastOwner = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-stage latency histograms and frame counters of one face detection processor.
+ * Stage boundaries are also marked as {@link Trace} sections so they show up in
+ * system traces (Perfetto / systrace).
+ */
+public class FaceDetectionStats {
+    /**
+     * I420 conversion (and downscale). On the analyzer's worker thread when the processor
+     * is added as an analyzer, on the capture thread only when it runs inline as a frame
+     * processor.
+     */
+    public static final int STAGE_CONVERT = 0;
+    /** Waiting in the detection service for a free detector */
+    public static final int STAGE_QUEUE = 1;
+    /** Detector inference */
+    public static final int STAGE_DETECT = 2;
+    /** Blink tracking and building the face event */
+    public static final int STAGE_MAP = 3;
+    /** Posting to the main thread until the event is handed to Flutter */
+    public static final int STAGE_EMIT = 4;
+    /** Blink snapshot JPEG encoding */
+    public static final int STAGE_ENCODE = 5;
+    private static final int STAGE_COUNT = 6;
+
+    private static final String[] STAGE_NAMES = {
+            "convert", "queue", "detect", "map", "emit", "encode"
+    };
+
+    private static final String[] TRACE_NAMES = {
+            "FaceDetection.convert", "FaceDetection.queue", "FaceDetection.detect",
+            "FaceDetection.map", "FaceDetection.emit", "FaceDetection.encode"
+    };
+
+    /** Upper bounds of the histogram buckets in milliseconds; the last bucket is open */
+    private static final double[] BUCKET_BOUNDS_MS = {
+            0.5, 1, 2, 4, 8, 16, 32, 64, 128, 256
+    };
+
+    private static class Histogram {
+        final long[] buckets = new long[BUCKET_BOUNDS_MS.length + 1];
+        long count;
+        long sumNs;
+        long maxNs;
+
+        void record(long durationNs) {
+            double ms = durationNs / 1e6;
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MS.length && ms > BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+            count++;
+            sumNs += durationNs;
+            maxNs = Math.max(maxNs, durationNs);
+        }
+
+        /** Upper bound of the bucket containing the given quantile, capped at the max. */
+        double quantileMs(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    double maxMs = maxNs / 1e6;
+                    return i < BUCKET_BOUNDS_MS.length ? Math.min(BUCKET_BOUNDS_MS[i], maxMs) : maxMs;
+                }
+            }
+            return maxNs / 1e6;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("count", count);
+            map.put("meanMs", count > 0 ? sumNs / 1e6 / count : 0.0);
+            map.put("maxMs", maxNs / 1e6);
+            map.put("p50Ms", quantileMs(0.5));
+            map.put("p90Ms", quantileMs(0.9));
+            map.put("p99Ms", quantileMs(0.99));
+            List<Long> bucketList = new ArrayList<>(buckets.length);
+            for (long bucket : buckets) {
+                bucketList.add(bucket);
+            }
+            map.put("buckets", bucketList);
+            return map;
+        }
+    }
+
+    private final Histogram[] histograms = new Histogram[STAGE_COUNT];
+
+    private long framesSeen;
+    private long framesSkipped;
+    private long framesDroppedBusy;
+    private long detectionsCompleted;
+    private long detectionsFailed;
+
+    public FaceDetectionStats() {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    public synchronized void record(int stage, long durationNs) {
+        histograms[stage].record(durationNs);
+    }
+
+    public synchronized void onFrameSeen() {
+        framesSeen++;
+    }
+
+    /** Frame not selected by the frame skip / rate schedule */
+    public synchronized void onFrameSkipped() {
+        framesSkipped++;
+    }
+
+    /** Frame selected but dropped because the previous one was still being processed */
+    public synchronized void onFrameDroppedBusy() {
+        framesDroppedBusy++;
+    }
+
+    public synchronized void onDetectionCompleted() {
+        detectionsCompleted++;
+    }
+
+    public synchronized void onDetectionFailed() {
+        detectionsFailed++;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            histograms[i] = new Histogram();
+        }
+        framesSeen = 0;
+        framesSkipped = 0;
+        framesDroppedBusy = 0;
+        detectionsCompleted = 0;
+        detectionsFailed = 0;
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> stages = new HashMap<>();
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            stages.put(STAGE_NAMES[i], histograms[i].toMap());
+        }
+        List<Double> bounds = new ArrayList<>(BUCKET_BOUNDS_MS.length);
+        for (double bound : BUCKET_BOUNDS_MS) {
+            bounds.add(bound);
+        }
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("framesSeen", framesSeen);
+        map.put("framesSkipped", framesSkipped);
+        map.put("framesDroppedBusy", framesDroppedBusy);
+        map.put("detectionsCompleted", detectionsCompleted);
+        map.put("detectionsFailed", detectionsFailed);
+        map.put("stages", stages);
+        map.put("bucketBoundsMs", bounds);
+        return map;
+    }
+
+    /**
+     * Begin a trace section for a stage that starts and ends on the same thread.
+     */
+    public static void beginSection(int stage) {
+        Trace.beginSection(TRACE_NAMES[stage]);
+    }
+
+    public static void endSection() {
+        Trace.endSection();
+    }
+
+    /**
+     * Begin a trace section for a stage that may end on another thread.
+     * Async sections need API 29; older devices only get the histograms.
+     */
+    public static void beginAsyncSection(int stage, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(TRACE_NAMES[stage], cookie);
+        }
+    }
+
+    public static void endAsyncSection(int stage, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(TRACE_NAMES[stage], cookie);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import java.util.List;
+
+/**
+ * A face detector that {@link FaceDetectionFrameProcessor} feeds with converted frames.
+ */
+public interface FaceDetectorBackend {
+
+    /** Detect landmarks (eyes, nose, mouth) */
+    int FEATURE_LANDMARKS = 1;
+    /** Classify eye open and smiling probabilities */
+    int FEATURE_CLASSIFICATION = 2;
+
+    interface Callback {
+        /**
+         * @param faces Detected faces in the coordinates of the upright input image
+         */
+        void onSuccess(List<FaceResult> faces);
+
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Detect faces in an NV21 image. Exactly one callback method is invoked, possibly on
+     * another thread; {@code nv21Data} must not be modified until then.
+     *
+     * @param nv21Data NV21 image data
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @param rotation Clockwise rotation to make the image upright (0, 90, 180 or 270)
+     * @param callback Receives the result
+     */
+    void detect(byte[] nv21Data, int width, int height, int rotation, Callback callback);
+
+    /**
+     * Release detector resources. Later detect calls report a failure.
+     */
+    void close();
+}
@@ -0,0 +1,205 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Delivers face and blink events to Flutter on the main thread without letting them
+ * pile up on the main looper.
+ *
+ * Face results go through a latest-value mailbox: at most one delivery is posted at a
+ * time, and a newer result overwrites one that has not been sent yet. Blink events
+ * must not be lost, so they go through a bounded FIFO that is drained in one main
+ * thread pass; only when it overflows is the oldest event dropped.
+ */
+public class FaceEventDispatcher {
+    private static final String TAG = "FaceDetection";
+    private static final int DEFAULT_BLINK_QUEUE_CAPACITY = 64;
+
+    public interface DeliveryListener {
+        /** Called on the main thread after an event was handed to its sink. */
+        void onDelivered(long queuedNs);
+    }
+
+    private static class PendingEvent {
+        final Object event;
+        final long queuedNs;
+
+        PendingEvent(Object event, long queuedNs) {
+            this.event = event;
+            this.queuedNs = queuedNs;
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicReference<PendingEvent> pendingFace = new AtomicReference<>();
+    private final ArrayDeque<PendingEvent> blinkQueue = new ArrayDeque<>();
+    private final int blinkQueueCapacity;
+    private final DeliveryListener listener;
+
+    private volatile EventChannel.EventSink faceSink;
+    private volatile EventChannel.EventSink blinkSink;
+    private volatile boolean isDisposed = false;
+    private boolean blinkDrainPosted = false;
+
+    private long facesDelivered = 0;
+    private long facesCoalesced = 0;
+    private long facesStale = 0;
+    private long lastFaceTimestampNs = Long.MIN_VALUE;
+    private long blinksDelivered = 0;
+    private long blinksDropped = 0;
+    private int blinkQueueHighWater = 0;
+
+    private final Runnable deliverFace = this::deliverFace;
+    private final Runnable drainBlinks = this::drainBlinks;
+
+    public FaceEventDispatcher(DeliveryListener listener) {
+        this(DEFAULT_BLINK_QUEUE_CAPACITY, listener);
+    }
+
+    public FaceEventDispatcher(int blinkQueueCapacity, DeliveryListener listener) {
+        this.blinkQueueCapacity = Math.max(1, blinkQueueCapacity);
+        this.listener = listener;
+    }
+
+    public void setFaceSink(EventChannel.EventSink sink) {
+        this.faceSink = sink;
+    }
+
+    public void setBlinkSink(EventChannel.EventSink sink) {
+        this.blinkSink = sink;
+    }
+
+    /**
+     * Offer the newest face result, replacing one that has not been delivered yet.
+     * A predicted result is dropped if a result for the same or a later frame was
+     * already offered, so a late prediction never replaces a newer detection.
+     *
+     * @param timestampNs Timestamp of the frame the result belongs to
+     */
+    public void offerFace(Object event, long timestampNs, boolean predicted) {
+        if (isDisposed) {
+            return;
+        }
+        PendingEvent previous;
+        synchronized (this) {
+            if (predicted && timestampNs <= lastFaceTimestampNs) {
+                facesStale++;
+                return;
+            }
+            lastFaceTimestampNs = Math.max(lastFaceTimestampNs, timestampNs);
+            previous = pendingFace.getAndSet(new PendingEvent(event, System.nanoTime()));
+            if (previous != null) {
+                // A delivery is already posted and will pick up the newer result
+                facesCoalesced++;
+            }
+        }
+        if (previous == null) {
+            mainHandler.post(deliverFace);
+        }
+    }
+
+    /**
+     * Queue a blink event. Blink events are delivered in order.
+     */
+    public void offerBlink(Object event) {
+        if (isDisposed) {
+            return;
+        }
+        synchronized (this) {
+            if (blinkQueue.size() >= blinkQueueCapacity) {
+                blinkQueue.poll();
+                blinksDropped++;
+            }
+            blinkQueue.add(new PendingEvent(event, System.nanoTime()));
+            blinkQueueHighWater = Math.max(blinkQueueHighWater, blinkQueue.size());
+            if (blinkDrainPosted) {
+                return;
+            }
+            blinkDrainPosted = true;
+        }
+        mainHandler.post(drainBlinks);
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("facesDelivered", facesDelivered);
+        stats.put("facesCoalesced", facesCoalesced);
+        stats.put("facesStale", facesStale);
+        stats.put("blinksDelivered", blinksDelivered);
+        stats.put("blinksDropped", blinksDropped);
+        stats.put("blinksQueued", blinkQueue.size());
+        stats.put("blinkQueueCapacity", blinkQueueCapacity);
+        stats.put("blinkQueueHighWater", blinkQueueHighWater);
+        return stats;
+    }
+
+    public void dispose() {
+        isDisposed = true;
+        pendingFace.set(null);
+        synchronized (this) {
+            blinkQueue.clear();
+        }
+        mainHandler.removeCallbacks(deliverFace);
+        mainHandler.removeCallbacks(drainBlinks);
+        faceSink = null;
+        blinkSink = null;
+    }
+
+    private void deliverFace() {
+        PendingEvent pending = pendingFace.getAndSet(null);
+        EventChannel.EventSink sink = faceSink;
+        if (pending == null || sink == null || isDisposed) {
+            return;
+        }
+        FaceDetectionStats.beginSection(FaceDetectionStats.STAGE_EMIT);
+        try {
+            sink.success(pending.event);
+        } catch (Exception e) {
+            Log.e(TAG, "Error emitting face event", e);
+        } finally {
+            FaceDetectionStats.endSection();
+        }
+        synchronized (this) {
+            facesDelivered++;
+        }
+        listener.onDelivered(pending.queuedNs);
+    }
+
+    private void drainBlinks() {
+        while (true) {
+            PendingEvent pending;
+            synchronized (this) {
+                pending = blinkQueue.poll();
+                if (pending == null) {
+                    blinkDrainPosted = false;
+                    return;
+                }
+            }
+            EventChannel.EventSink sink = blinkSink;
+            if (sink == null || isDisposed) {
+                continue;
+            }
+            FaceDetectionStats.beginSection(FaceDetectionStats.STAGE_EMIT);
+            try {
+                sink.success(pending.event);
+            } catch (Exception e) {
+                Log.e(TAG, "Error emitting blink event", e);
+            } finally {
+                FaceDetectionStats.endSection();
+            }
+            synchronized (this) {
+                blinksDelivered++;
+            }
+            listener.onDelivered(pending.queuedNs);
+        }
+    }
+}
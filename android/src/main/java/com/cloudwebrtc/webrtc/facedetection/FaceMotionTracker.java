@@ -0,0 +1,140 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Constant-velocity motion model per face trackingId.
+ * Fed with every real detection, it extrapolates bounds, head pose and landmarks
+ * for frames that are not sent to the detector. Probabilities are carried over
+ * from the last detection unchanged.
+ */
+public class FaceMotionTracker {
+    /** Bounds (4) + head pose (3) + landmarks */
+    private static final int STATE_SIZE = 7 + FaceResult.LANDMARK_COUNT * 2;
+
+    /** Weight of the newest velocity sample */
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
+    /** Gaps longer than this between detections restart the velocity estimate */
+    private static final long MAX_VELOCITY_GAP_NS = 1000000000L;
+
+    private static class Track {
+        FaceResult last;
+        long timestampNs;
+        final float[] state = new float[STATE_SIZE];
+        final float[] velocity = new float[STATE_SIZE];
+        boolean hasVelocity = false;
+        int generation;
+    }
+
+    private final SparseArray<Track> tracks = new SparseArray<>();
+    private final float[] scratch = new float[STATE_SIZE];
+    private int generation = 0;
+
+    /**
+     * Feed the faces of a real detection. Faces without trackingId are ignored and
+     * tracks that are no longer present are dropped.
+     */
+    public synchronized void update(List<FaceResult> faces, long timestampNs) {
+        generation++;
+        for (FaceResult face : faces) {
+            if (!face.hasTrackingId()) {
+                continue;
+            }
+            Track track = tracks.get(face.trackingId);
+            if (track == null) {
+                track = new Track();
+                tracks.put(face.trackingId, track);
+                writeState(face, track.state);
+            } else {
+                long dtNs = timestampNs - track.timestampNs;
+                writeState(face, scratch);
+                if (dtNs > 0 && dtNs <= MAX_VELOCITY_GAP_NS) {
+                    float dt = dtNs / 1e9f;
+                    for (int i = 0; i < STATE_SIZE; i++) {
+                        float v = (scratch[i] - track.state[i]) / dt;
+                        if (track.hasVelocity && !Float.isNaN(track.velocity[i])) {
+                            v = VELOCITY_SMOOTHING * v + (1 - VELOCITY_SMOOTHING) * track.velocity[i];
+                        }
+                        track.velocity[i] = v;
+                    }
+                    track.hasVelocity = true;
+                } else {
+                    track.hasVelocity = false;
+                }
+                System.arraycopy(scratch, 0, track.state, 0, STATE_SIZE);
+            }
+            track.last = face;
+            track.timestampNs = timestampNs;
+            track.generation = generation;
+        }
+
+        for (int i = tracks.size() - 1; i >= 0; i--) {
+            if (tracks.valueAt(i).generation != generation) {
+                tracks.removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * Predict all tracked faces at {@code timestampNs}. Tracks whose last detection is
+     * older than {@code maxPredictionNs} are left out.
+     */
+    public synchronized List<FaceResult> predict(long timestampNs, long maxPredictionNs) {
+        List<FaceResult> predictions = new ArrayList<>(tracks.size());
+        for (int i = 0; i < tracks.size(); i++) {
+            Track track = tracks.valueAt(i);
+            long dtNs = timestampNs - track.timestampNs;
+            if (dtNs < 0 || dtNs > maxPredictionNs) {
+                continue;
+            }
+            float dt = dtNs / 1e9f;
+            for (int j = 0; j < STATE_SIZE; j++) {
+                float v = track.hasVelocity && !Float.isNaN(track.velocity[j]) ? track.velocity[j] : 0f;
+                scratch[j] = track.state[j] + v * dt;
+            }
+            FaceResult prediction = new FaceResult();
+            prediction.trackingId = track.last.trackingId;
+            prediction.leftEyeOpenProbability = track.last.leftEyeOpenProbability;
+            prediction.rightEyeOpenProbability = track.last.rightEyeOpenProbability;
+            prediction.smilingProbability = track.last.smilingProbability;
+            prediction.predicted = true;
+            readState(scratch, prediction);
+            predictions.add(prediction);
+        }
+        return predictions;
+    }
+
+    public synchronized boolean isEmpty() {
+        return tracks.size() == 0;
+    }
+
+    public synchronized void reset() {
+        tracks.clear();
+    }
+
+    private static void writeState(FaceResult face, float[] state) {
+        state[0] = face.left;
+        state[1] = face.top;
+        state[2] = face.right;
+        state[3] = face.bottom;
+        state[4] = face.yaw;
+        state[5] = face.pitch;
+        state[6] = face.roll;
+        System.arraycopy(face.landmarks, 0, state, 7, FaceResult.LANDMARK_COUNT * 2);
+    }
+
+    private static void readState(float[] state, FaceResult face) {
+        face.left = state[0];
+        face.top = state[1];
+        face.right = state[2];
+        face.bottom = state[3];
+        face.yaw = state[4];
+        face.pitch = state[5];
+        face.roll = state[6];
+        System.arraycopy(state, 7, face.landmarks, 0, FaceResult.LANDMARK_COUNT * 2);
+    }
+}
@@ -0,0 +1,210 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import com.cloudwebrtc.webrtc.video.FrameConversionCache;
+import com.cloudwebrtc.webrtc.video.LocalVideoTrack;
+
+import org.webrtc.JavaI420Buffer;
+import org.webrtc.VideoFrame;
+import org.webrtc.YuvHelper;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Processor that burns face boxes and landmarks into the frames of a local track, so
+ * they also appear in the encoded stream and in recordings.
+ *
+ * Only used when explicitly requested; the preview overlay ({@link FaceOverlayDrawer})
+ * leaves the outgoing video untouched. Frames with faces are copied to a new I420
+ * buffer and marked in the luma plane; frames without faces pass through unchanged.
+ *
+ * Output frames stay owned by this processor: each is released when the next frame
+ * comes through, and the last one by {@link #release()} after removal from the track.
+ */
+public class FaceOverlayBurnIn implements LocalVideoTrack.ExternalVideoFrameProcessing {
+    private static final int LUMA_MARK = 235;
+    private static final int LUMA_PREDICTED_MARK = 16;
+
+    private final LatestFaceResultSlot source;
+    private volatile int flags;
+
+    /** Frame returned by the previous call, if this processor created it */
+    private VideoFrame lastOutput;
+    private boolean released = false;
+
+    public FaceOverlayBurnIn(LatestFaceResultSlot source, int flags) {
+        this.source = source;
+        this.flags = flags;
+    }
+
+    public void setFlags(int flags) {
+        this.flags = flags;
+    }
+
+    @Override
+    public VideoFrame onFrame(VideoFrame frame) {
+        return onFrame(frame, null);
+    }
+
+    /**
+     * Release the last output frame. Call after removing the processor from its track;
+     * a frame still in flight then passes through unchanged.
+     */
+    public void release() {
+        setLastOutput(null, true);
+    }
+
+    @Override
+    public VideoFrame onFrame(VideoFrame frame, FrameConversionCache conversions) {
+        VideoFrame output = burnIn(frame, conversions);
+        if (!setLastOutput(output != frame ? output : null, false)) {
+            output.release();
+            return frame;
+        }
+        return output;
+    }
+
+    /**
+     * Replace the remembered output frame and release the previous one.
+     *
+     * @return false if {@link #release()} was already called and {@code output} was not kept
+     */
+    private boolean setLastOutput(VideoFrame output, boolean release) {
+        VideoFrame previous;
+        boolean kept;
+        synchronized (this) {
+            previous = lastOutput;
+            kept = !released;
+            lastOutput = kept ? output : null;
+            released |= release;
+        }
+        if (previous != null) {
+            previous.release();
+        }
+        return kept || output == null;
+    }
+
+    private VideoFrame burnIn(VideoFrame frame, FrameConversionCache conversions) {
+        int flags = this.flags;
+        LatestFaceResultSlot.Snapshot snapshot = FaceOverlayStyle.current(source, System.nanoTime());
+        if (flags == 0 || snapshot == null) {
+            return frame;
+        }
+
+        VideoFrame.I420Buffer i420 = conversions != null
+                ? conversions.getI420() : frame.getBuffer().toI420();
+        if (i420 == null) {
+            return frame;
+        }
+        int width = i420.getWidth();
+        int height = i420.getHeight();
+        JavaI420Buffer copy = JavaI420Buffer.allocate(width, height);
+        try {
+            int chromaWidth = (width + 1) / 2;
+            int chromaHeight = (height + 1) / 2;
+            YuvHelper.copyPlane(i420.getDataY(), i420.getStrideY(),
+                    copy.getDataY(), copy.getStrideY(), width, height);
+            YuvHelper.copyPlane(i420.getDataU(), i420.getStrideU(),
+                    copy.getDataU(), copy.getStrideU(), chromaWidth, chromaHeight);
+            YuvHelper.copyPlane(i420.getDataV(), i420.getStrideV(),
+                    copy.getDataV(), copy.getStrideV(), chromaWidth, chromaHeight);
+        } finally {
+            i420.release();
+        }
+
+        Marker marker = new Marker(copy.getDataY(), copy.getStrideY(), width, height,
+                frame.getRotation(), snapshot);
+        boolean debug = (flags & FaceOverlayStyle.FLAG_DEBUG) != 0;
+        for (FaceResult face : snapshot.faces) {
+            int luma = debug && face.predicted ? LUMA_PREDICTED_MARK : LUMA_MARK;
+            if ((flags & FaceOverlayStyle.FLAG_BOXES) != 0) {
+                marker.box(face.left, face.top, face.right, face.bottom, luma);
+            }
+            if ((flags & FaceOverlayStyle.FLAG_LANDMARKS) != 0) {
+                for (int i = 0; i < FaceResult.LANDMARK_COUNT; i++) {
+                    if (face.hasLandmark(i)) {
+                        marker.point(face.landmarkX(i), face.landmarkY(i), luma);
+                    }
+                }
+            }
+        }
+        return new VideoFrame(copy, frame.getRotation(), frame.getTimestampNs());
+    }
+
+    /**
+     * Draws into a luma plane using coordinates of the upright image the faces were
+     * detected in, undoing the frame rotation.
+     */
+    private static class Marker {
+        private final ByteBuffer plane;
+        private final int stride;
+        private final int width;
+        private final int height;
+        private final int rotation;
+        private final float scaleX;
+        private final float scaleY;
+        private final int thickness;
+
+        Marker(ByteBuffer plane, int stride, int width, int height, int rotation,
+               LatestFaceResultSlot.Snapshot snapshot) {
+            this.plane = plane;
+            this.stride = stride;
+            this.width = width;
+            this.height = height;
+            this.rotation = rotation;
+            // The snapshot may come from a frame of another size, e.g. after a resolution change
+            int uprightWidth = rotation % 180 == 0 ? width : height;
+            int uprightHeight = rotation % 180 == 0 ? height : width;
+            this.scaleX = (float) uprightWidth / snapshot.getUprightWidth();
+            this.scaleY = (float) uprightHeight / snapshot.getUprightHeight();
+            this.thickness = Math.max(2, Math.min(width, height) / 240);
+        }
+
+        void box(float left, float top, float right, float bottom, int luma) {
+            int[] a = toBuffer(left, top);
+            int[] b = toBuffer(right, bottom);
+            int x0 = Math.min(a[0], b[0]);
+            int x1 = Math.max(a[0], b[0]);
+            int y0 = Math.min(a[1], b[1]);
+            int y1 = Math.max(a[1], b[1]);
+            fill(x0, y0, x1, y0 + thickness, luma);
+            fill(x0, y1 - thickness, x1, y1, luma);
+            fill(x0, y0, x0 + thickness, y1, luma);
+            fill(x1 - thickness, y0, x1, y1, luma);
+        }
+
+        void point(float x, float y, int luma) {
+            int[] p = toBuffer(x, y);
+            fill(p[0] - thickness, p[1] - thickness, p[0] + thickness, p[1] + thickness, luma);
+        }
+
+        /** Upright image coordinates to buffer coordinates (rotation is clockwise). */
+        private int[] toBuffer(float x, float y) {
+            int ux = Math.round(x * scaleX);
+            int uy = Math.round(y * scaleY);
+            switch (rotation) {
+                case 90:
+                    return new int[] {uy, height - 1 - ux};
+                case 180:
+                    return new int[] {width - 1 - ux, height - 1 - uy};
+                case 270:
+                    return new int[] {width - 1 - uy, ux};
+                default:
+                    return new int[] {ux, uy};
+            }
+        }
+
+        private void fill(int x0, int y0, int x1, int y1, int luma) {
+            x0 = Math.max(0, x0);
+            y0 = Math.max(0, y0);
+            x1 = Math.min(width, x1);
+            y1 = Math.min(height, y1);
+            byte value = (byte) luma;
+            for (int y = y0; y < y1; y++) {
+                int row = y * stride;
+                for (int x = x0; x < x1; x++) {
+                    plane.put(row + x, value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import android.opengl.GLES20;
+
+import org.webrtc.GlShader;
+import org.webrtc.GlUtil;
+import org.webrtc.RendererCommon;
+
+import java.nio.FloatBuffer;
+
+/**
+ * GlDrawer that draws the video frame with a wrapped drawer and then the latest face
+ * result of a track on top of it.
+ *
+ * The overlay is drawn on the renderer thread for every rendered frame from the
+ * track's {@link LatestFaceResultSlot}, so positions need no platform channel traffic.
+ * With interpolateResults the slot also receives predicted positions between
+ * detections. Only the preview is affected; the encoded stream never sees the overlay.
+ */
+public class FaceOverlayDrawer implements RendererCommon.GlDrawer {
+    private static final String VERTEX_SHADER =
+            "attribute vec2 in_pos;\n"
+            + "uniform float pointSize;\n"
+            + "void main() {\n"
+            + "  gl_Position = vec4(in_pos, 0.0, 1.0);\n"
+            + "  gl_PointSize = pointSize;\n"
+            + "}\n";
+
+    private static final String FRAGMENT_SHADER =
+            "precision mediump float;\n"
+            + "uniform vec4 color;\n"
+            + "void main() {\n"
+            + "  gl_FragColor = color;\n"
+            + "}\n";
+
+    private static final float[] BOX_COLOR = {0.2f, 1f, 0.2f, 1f};
+    private static final float[] PREDICTED_BOX_COLOR = {1f, 0.85f, 0.1f, 1f};
+    private static final float[] LANDMARK_COLOR = {0.1f, 0.9f, 1f, 1f};
+    private static final float[] POSE_COLOR = {1f, 0.25f, 0.25f, 1f};
+
+    /** Floats per face: 4 box edges, 6 landmark points, 1 pose line, 2 floats per vertex */
+    private static final int FLOATS_PER_FACE = (8 + FaceResult.LANDMARK_COUNT + 2) * 2;
+
+    private final RendererCommon.GlDrawer delegate;
+
+    private volatile LatestFaceResultSlot source;
+    private volatile int flags;
+
+    // Renderer thread only
+    private GlShader shader;
+    private FloatBuffer vertices;
+    private int posLocation;
+    private int colorLocation;
+    private int pointSizeLocation;
+
+    public FaceOverlayDrawer(RendererCommon.GlDrawer delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Draw results from {@code source} with the given {@link FaceOverlayStyle} flags;
+     * a null source or no flags turn the overlay off.
+     */
+    public void setSource(LatestFaceResultSlot source, int flags) {
+        this.flags = flags;
+        this.source = source;
+    }
+
+    @Override
+    public void drawOes(int oesTextureId, float[] texMatrix, int frameWidth, int frameHeight,
+                        int viewportX, int viewportY, int viewportWidth, int viewportHeight) {
+        delegate.drawOes(oesTextureId, texMatrix, frameWidth, frameHeight,
+                viewportX, viewportY, viewportWidth, viewportHeight);
+        drawOverlay(viewportX, viewportY, viewportWidth, viewportHeight);
+    }
+
+    @Override
+    public void drawRgb(int textureId, float[] texMatrix, int frameWidth, int frameHeight,
+                        int viewportX, int viewportY, int viewportWidth, int viewportHeight) {
+        delegate.drawRgb(textureId, texMatrix, frameWidth, frameHeight,
+                viewportX, viewportY, viewportWidth, viewportHeight);
+        drawOverlay(viewportX, viewportY, viewportWidth, viewportHeight);
+    }
+
+    @Override
+    public void drawYuv(int[] yuvTextures, float[] texMatrix, int frameWidth, int frameHeight,
+                        int viewportX, int viewportY, int viewportWidth, int viewportHeight) {
+        delegate.drawYuv(yuvTextures, texMatrix, frameWidth, frameHeight,
+                viewportX, viewportY, viewportWidth, viewportHeight);
+        drawOverlay(viewportX, viewportY, viewportWidth, viewportHeight);
+    }
+
+    @Override
+    public void release() {
+        delegate.release();
+        if (shader != null) {
+            shader.release();
+            shader = null;
+        }
+    }
+
+    private void drawOverlay(int viewportX, int viewportY, int viewportWidth, int viewportHeight) {
+        int flags = this.flags;
+        if (flags == 0) {
+            return;
+        }
+        LatestFaceResultSlot.Snapshot snapshot = FaceOverlayStyle.current(source, System.nanoTime());
+        if (snapshot == null) {
+            return;
+        }
+
+        ensureShader();
+        shader.useProgram();
+        GLES20.glViewport(viewportX, viewportY, viewportWidth, viewportHeight);
+        int minSide = Math.min(viewportWidth, viewportHeight);
+        GLES20.glLineWidth(Math.max(2f, minSide / 240f));
+        GLES20.glUniform1f(pointSizeLocation, Math.max(4f, minSide / 120f));
+        GLES20.glEnableVertexAttribArray(posLocation);
+
+        float scaleX = 2f / snapshot.getUprightWidth();
+        float scaleY = 2f / snapshot.getUprightHeight();
+        boolean debug = (flags & FaceOverlayStyle.FLAG_DEBUG) != 0;
+
+        for (FaceResult face : snapshot.faces) {
+            float left = face.left * scaleX - 1f;
+            float right = face.right * scaleX - 1f;
+            // GL y points up, image y points down
+            float top = 1f - face.top * scaleY;
+            float bottom = 1f - face.bottom * scaleY;
+
+            if ((flags & FaceOverlayStyle.FLAG_BOXES) != 0) {
+                vertices.put(left).put(top).put(right).put(top);
+                vertices.put(right).put(top).put(right).put(bottom);
+                vertices.put(right).put(bottom).put(left).put(bottom);
+                vertices.put(left).put(bottom).put(left).put(top);
+                draw(GLES20.GL_LINES, debug && face.predicted ? PREDICTED_BOX_COLOR : BOX_COLOR);
+            }
+
+            if ((flags & FaceOverlayStyle.FLAG_LANDMARKS) != 0) {
+                for (int i = 0; i < FaceResult.LANDMARK_COUNT; i++) {
+                    if (face.hasLandmark(i)) {
+                        vertices.put(face.landmarkX(i) * scaleX - 1f).put(1f - face.landmarkY(i) * scaleY);
+                    }
+                }
+                draw(GLES20.GL_POINTS, LANDMARK_COLOR);
+            }
+
+            if (debug && !Float.isNaN(face.yaw) && !Float.isNaN(face.pitch)) {
+                // Approximate facing direction from the box centre
+                float centerX = (left + right) / 2f;
+                float centerY = (top + bottom) / 2f;
+                float halfWidth = (right - left) / 2f;
+                float halfHeight = (top - bottom) / 2f;
+                vertices.put(centerX).put(centerY);
+                vertices.put(centerX + (float) Math.sin(Math.toRadians(face.yaw)) * halfWidth)
+                        .put(centerY + (float) Math.sin(Math.toRadians(face.pitch)) * halfHeight);
+                draw(GLES20.GL_LINES, POSE_COLOR);
+            }
+        }
+
+        GLES20.glDisableVertexAttribArray(posLocation);
+        GlUtil.checkNoGLES2Error("FaceOverlayDrawer.drawOverlay");
+    }
+
+    private void draw(int mode, float[] color) {
+        int count = vertices.position() / 2;
+        vertices.clear();
+        if (count == 0) {
+            return;
+        }
+        GLES20.glVertexAttribPointer(posLocation, 2, GLES20.GL_FLOAT, false, 0, vertices);
+        GLES20.glUniform4fv(colorLocation, 1, color, 0);
+        GLES20.glDrawArrays(mode, 0, count);
+    }
+
+    private void ensureShader() {
+        if (shader == null) {
+            shader = new GlShader(VERTEX_SHADER, FRAGMENT_SHADER);
+            posLocation = shader.getAttribLocation("in_pos");
+            colorLocation = shader.getUniformLocation("color");
+            pointSizeLocation = shader.getUniformLocation("pointSize");
+        }
+        if (vertices == null) {
+            // Faces are drawn one at a time
+            vertices = GlUtil.createFloatBuffer(new float[FLOATS_PER_FACE]);
+        }
+    }
+}
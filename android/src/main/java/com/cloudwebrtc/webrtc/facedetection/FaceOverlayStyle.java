@@ -0,0 +1,60 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import java.util.Map;
+
+/**
+ * What a native face overlay draws, as a set of flags.
+ */
+public final class FaceOverlayStyle {
+    /** Face bounding boxes */
+    public static final int FLAG_BOXES = 1;
+    /** Eye, nose and mouth landmarks (when the detector provides them) */
+    public static final int FLAG_LANDMARKS = 1 << 1;
+    /** Predicted results in a different colour and a head pose direction line */
+    public static final int FLAG_DEBUG = 1 << 2;
+
+    /**
+     * Results older than this are not drawn, so boxes do not stay frozen on screen
+     * when detection stalls.
+     */
+    public static final long MAX_RESULT_AGE_NS = 1_000_000_000L;
+
+    private FaceOverlayStyle() {
+    }
+
+    /**
+     * Flags from a {@code {boxes, landmarks, debug}} map; missing entries are off.
+     */
+    public static int fromMap(Map<String, Object> map) {
+        if (map == null) {
+            return 0;
+        }
+        int flags = 0;
+        if (Boolean.TRUE.equals(map.get("boxes"))) {
+            flags |= FLAG_BOXES;
+        }
+        if (Boolean.TRUE.equals(map.get("landmarks"))) {
+            flags |= FLAG_LANDMARKS;
+        }
+        if (Boolean.TRUE.equals(map.get("debug"))) {
+            flags |= FLAG_DEBUG;
+        }
+        return flags;
+    }
+
+    /**
+     * The snapshot to draw at {@code nowNs}, or null when there is none or it is stale.
+     */
+    static LatestFaceResultSlot.Snapshot current(LatestFaceResultSlot slot, long nowNs) {
+        if (slot == null) {
+            return null;
+        }
+        LatestFaceResultSlot.Snapshot snapshot = slot.get();
+        if (snapshot == null || snapshot.faces.isEmpty()
+                || nowNs - snapshot.publishedNs > MAX_RESULT_AGE_NS
+                || snapshot.getUprightWidth() <= 0 || snapshot.getUprightHeight() <= 0) {
+            return null;
+        }
+        return snapshot;
+    }
+}
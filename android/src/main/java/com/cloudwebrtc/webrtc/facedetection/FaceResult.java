@@ -0,0 +1,199 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Detector-independent description of a single detected face.
+ * Coordinates are in frame pixels. Missing landmarks and probabilities are NaN.
+ * Plain Java so it can be produced by any {@link FaceDetectorBackend}.
+ */
+public class FaceResult {
+    public static final int NO_TRACKING_ID = -1;
+
+    public static final int LANDMARK_LEFT_EYE = 0;
+    public static final int LANDMARK_RIGHT_EYE = 1;
+    public static final int LANDMARK_NOSE = 2;
+    public static final int LANDMARK_MOUTH_LEFT = 3;
+    public static final int LANDMARK_MOUTH_RIGHT = 4;
+    public static final int LANDMARK_MOUTH_BOTTOM = 5;
+    public static final int LANDMARK_COUNT = 6;
+
+    public float left;
+    public float top;
+    public float right;
+    public float bottom;
+
+    public int trackingId = NO_TRACKING_ID;
+
+    public float yaw;
+    public float pitch;
+    public float roll;
+
+    /** Landmark positions as x,y pairs indexed by LANDMARK_* */
+    public final float[] landmarks = new float[LANDMARK_COUNT * 2];
+
+    public float leftEyeOpenProbability = Float.NaN;
+    public float rightEyeOpenProbability = Float.NaN;
+    public float smilingProbability = Float.NaN;
+
+    /** Extrapolated by {@link FaceMotionTracker} rather than detected */
+    public boolean predicted = false;
+
+    public FaceResult() {
+        Arrays.fill(landmarks, Float.NaN);
+    }
+
+    public boolean hasTrackingId() {
+        return trackingId != NO_TRACKING_ID;
+    }
+
+    public boolean hasLandmark(int index) {
+        return !Float.isNaN(landmarks[index * 2]);
+    }
+
+    public float landmarkX(int index) {
+        return landmarks[index * 2];
+    }
+
+    public float landmarkY(int index) {
+        return landmarks[index * 2 + 1];
+    }
+
+    public boolean hasEyeOpenProbabilities() {
+        return !Float.isNaN(leftEyeOpenProbability) && !Float.isNaN(rightEyeOpenProbability);
+    }
+
+    /**
+     * Scale all coordinates, e.g. to map detector input coordinates back to the full frame.
+     */
+    public void scale(float scaleX, float scaleY) {
+        left *= scaleX;
+        right *= scaleX;
+        top *= scaleY;
+        bottom *= scaleY;
+        for (int i = 0; i < LANDMARK_COUNT; i++) {
+            landmarks[i * 2] *= scaleX;
+            landmarks[i * 2 + 1] *= scaleY;
+        }
+    }
+
+    /**
+     * Set a landmark position; NaN marks it as missing.
+     */
+    public void setLandmark(int index, float x, float y) {
+        landmarks[index * 2] = x;
+        landmarks[index * 2 + 1] = y;
+    }
+
+    public FaceResult copy() {
+        FaceResult copy = new FaceResult();
+        copy.left = left;
+        copy.top = top;
+        copy.right = right;
+        copy.bottom = bottom;
+        copy.trackingId = trackingId;
+        copy.yaw = yaw;
+        copy.pitch = pitch;
+        copy.roll = roll;
+        System.arraycopy(landmarks, 0, copy.landmarks, 0, landmarks.length);
+        copy.leftEyeOpenProbability = leftEyeOpenProbability;
+        copy.rightEyeOpenProbability = rightEyeOpenProbability;
+        copy.smilingProbability = smilingProbability;
+        copy.predicted = predicted;
+        return copy;
+    }
+
+    public Map<String, Object> toMap(double blinkThreshold) {
+        Map<String, Object> faceData = new HashMap<>();
+
+        // Bounds, rounded to whole pixels
+        int boundsLeft = Math.round(left);
+        int boundsTop = Math.round(top);
+        Map<String, Object> boundsMap = new HashMap<>();
+        boundsMap.put("left", boundsLeft);
+        boundsMap.put("top", boundsTop);
+        boundsMap.put("width", Math.round(right) - boundsLeft);
+        boundsMap.put("height", Math.round(bottom) - boundsTop);
+        faceData.put("bounds", boundsMap);
+
+        // Tracking ID
+        if (hasTrackingId()) {
+            faceData.put("trackingId", trackingId);
+        }
+
+        // Head pose
+        Map<String, Object> headPose = new HashMap<>();
+        headPose.put("yaw", yaw);
+        headPose.put("pitch", pitch);
+        headPose.put("roll", roll);
+        faceData.put("headPose", headPose);
+
+        // Landmarks
+        Map<String, Object> landmarkMap = new HashMap<>();
+
+        if (hasLandmark(LANDMARK_LEFT_EYE)) {
+            landmarkMap.put("leftEye", eyeToMap(LANDMARK_LEFT_EYE, leftEyeOpenProbability, blinkThreshold));
+        }
+
+        if (hasLandmark(LANDMARK_RIGHT_EYE)) {
+            landmarkMap.put("rightEye", eyeToMap(LANDMARK_RIGHT_EYE, rightEyeOpenProbability, blinkThreshold));
+        }
+
+        if (hasLandmark(LANDMARK_NOSE)) {
+            Map<String, Object> noseData = new HashMap<>();
+            noseData.put("x", landmarkX(LANDMARK_NOSE));
+            noseData.put("y", landmarkY(LANDMARK_NOSE));
+            landmarkMap.put("nose", noseData);
+        }
+
+        if (hasLandmark(LANDMARK_MOUTH_LEFT) && hasLandmark(LANDMARK_MOUTH_RIGHT)) {
+            Map<String, Object> mouthData = new HashMap<>();
+            mouthData.put("leftX", landmarkX(LANDMARK_MOUTH_LEFT));
+            mouthData.put("leftY", landmarkY(LANDMARK_MOUTH_LEFT));
+            mouthData.put("rightX", landmarkX(LANDMARK_MOUTH_RIGHT));
+            mouthData.put("rightY", landmarkY(LANDMARK_MOUTH_RIGHT));
+            if (hasLandmark(LANDMARK_MOUTH_BOTTOM)) {
+                mouthData.put("bottomX", landmarkX(LANDMARK_MOUTH_BOTTOM));
+                mouthData.put("bottomY", landmarkY(LANDMARK_MOUTH_BOTTOM));
+            }
+            if (!Float.isNaN(smilingProbability)) {
+                mouthData.put("smilingProbability", smilingProbability);
+            }
+            landmarkMap.put("mouth", mouthData);
+        }
+
+        faceData.put("landmarks", landmarkMap);
+
+        // Smiling probability
+        if (!Float.isNaN(smilingProbability)) {
+            faceData.put("smilingProbability", smilingProbability);
+        }
+
+        // Eye open probabilities, also present when landmarks are off
+        if (!Float.isNaN(leftEyeOpenProbability)) {
+            faceData.put("leftEyeOpenProbability", leftEyeOpenProbability);
+        }
+        if (!Float.isNaN(rightEyeOpenProbability)) {
+            faceData.put("rightEyeOpenProbability", rightEyeOpenProbability);
+        }
+
+        if (predicted) {
+            faceData.put("predicted", true);
+        }
+
+        return faceData;
+    }
+
+    private Map<String, Object> eyeToMap(int index, float openProbability, double blinkThreshold) {
+        Map<String, Object> eyeData = new HashMap<>();
+        eyeData.put("x", landmarkX(index));
+        eyeData.put("y", landmarkY(index));
+        if (!Float.isNaN(openProbability)) {
+            eyeData.put("openProbability", openProbability);
+            eyeData.put("isOpen", openProbability > blinkThreshold);
+        }
+        return eyeData;
+    }
+}
@@ -0,0 +1,154 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Packs all faces of a frame into a single little-endian byte array, so a face
+ * event crosses the platform channel as one typed buffer instead of nested maps.
+ *
+ * <pre>
+ * Header (HEADER_SIZE bytes)
+ *   0  int32   version (= VERSION)
+ *   4  int32   face count
+ *   8  int64   timestamp (ns)
+ *   16 int32   frame width
+ *   20 int32   frame height
+ *   24 int32   flags (FLAG_PREDICTED, FLAG_IDLE)
+ *   28 float32 detection rate
+ *   32 float32 detection latency (ms)
+ *   36 float32 blink threshold
+ *   40 int32   face record size in bytes
+ *   44 int32   throttle level (see ThrottlePolicy)
+ *   48 int32   track id length in bytes (UTF-8, follows the face records)
+ * Face record (FACE_RECORD_SIZE bytes each)
+ *   0  int32   tracking id (-1 = none)
+ *   4  int32   flags (FLAG_PREDICTED)
+ *   8  float32 left, top, right, bottom
+ *   24 float32 yaw, pitch, roll
+ *   36 float32 landmark x,y pairs in FaceResult.LANDMARK_* order (NaN = missing)
+ *   84 float32 left eye open, right eye open, smiling probability (NaN = missing)
+ * </pre>
+ * Blink events are packed the same way in compact mode:
+ * <pre>
+ * Blink event (BLINK_HEADER_SIZE bytes, then the track id, then the JPEG)
+ *   0  int32   version (= VERSION)
+ *   4  int32   eye (BLINK_EYE_LEFT, BLINK_EYE_RIGHT, BLINK_EYE_BOTH)
+ *   8  int32   left blink count
+ *   12 int32   right blink count
+ *   16 int32   tracking id (-1 = none)
+ *   20 int32   JPEG length in bytes (0 = no snapshot)
+ *   24 int64   timestamp (ns)
+ *   32 int32   track id length in bytes (UTF-8)
+ * </pre>
+ * Must be kept in sync with the decoders in face_detection_result.dart and
+ * blink_event.dart.
+ */
+public final class FaceResultEncoder {
+    public static final int VERSION = 2;
+
+    public static final int FLAG_PREDICTED = 1;
+    public static final int FLAG_IDLE = 1 << 1;
+
+    public static final int HEADER_SIZE = 52;
+    public static final int FACE_RECORD_SIZE = 96;
+
+    public static final int BLINK_HEADER_SIZE = 36;
+    public static final int BLINK_EYE_LEFT = 0;
+    public static final int BLINK_EYE_RIGHT = 1;
+    public static final int BLINK_EYE_BOTH = 2;
+
+    private FaceResultEncoder() {}
+
+    public static byte[] encode(
+            List<FaceResult> faces,
+            long timestampNs,
+            int frameWidth,
+            int frameHeight,
+            int flags,
+            double detectionRate,
+            double detectionLatencyMs,
+            double blinkThreshold,
+            int throttleLevel,
+            String trackId
+    ) {
+        byte[] trackIdBytes = utf8(trackId);
+        byte[] data = new byte[HEADER_SIZE + faces.size() * FACE_RECORD_SIZE + trackIdBytes.length];
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(VERSION);
+        buffer.putInt(faces.size());
+        buffer.putLong(timestampNs);
+        buffer.putInt(frameWidth);
+        buffer.putInt(frameHeight);
+        buffer.putInt(flags);
+        buffer.putFloat((float) detectionRate);
+        buffer.putFloat((float) detectionLatencyMs);
+        buffer.putFloat((float) blinkThreshold);
+        buffer.putInt(FACE_RECORD_SIZE);
+        buffer.putInt(throttleLevel);
+        buffer.putInt(trackIdBytes.length);
+
+        for (FaceResult face : faces) {
+            buffer.putInt(face.trackingId);
+            buffer.putInt(face.predicted ? FLAG_PREDICTED : 0);
+            buffer.putFloat(face.left);
+            buffer.putFloat(face.top);
+            buffer.putFloat(face.right);
+            buffer.putFloat(face.bottom);
+            buffer.putFloat(face.yaw);
+            buffer.putFloat(face.pitch);
+            buffer.putFloat(face.roll);
+            for (float value : face.landmarks) {
+                buffer.putFloat(value);
+            }
+            buffer.putFloat(face.leftEyeOpenProbability);
+            buffer.putFloat(face.rightEyeOpenProbability);
+            buffer.putFloat(face.smilingProbability);
+        }
+        buffer.put(trackIdBytes);
+
+        return data;
+    }
+
+    /**
+     * @param eye "left", "right" or "both"
+     * @param jpeg Snapshot to append, or null
+     */
+    public static byte[] encodeBlink(
+            String eye,
+            int leftBlinkCount,
+            int rightBlinkCount,
+            int trackingId,
+            long timestampNs,
+            String trackId,
+            byte[] jpeg
+    ) {
+        byte[] trackIdBytes = utf8(trackId);
+        int jpegLength = jpeg != null ? jpeg.length : 0;
+        byte[] data = new byte[BLINK_HEADER_SIZE + trackIdBytes.length + jpegLength];
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(VERSION);
+        buffer.putInt("left".equals(eye) ? BLINK_EYE_LEFT
+                : "right".equals(eye) ? BLINK_EYE_RIGHT : BLINK_EYE_BOTH);
+        buffer.putInt(leftBlinkCount);
+        buffer.putInt(rightBlinkCount);
+        buffer.putInt(trackingId);
+        buffer.putInt(jpegLength);
+        buffer.putLong(timestampNs);
+        buffer.putInt(trackIdBytes.length);
+        buffer.put(trackIdBytes);
+        if (jpeg != null) {
+            buffer.put(jpeg);
+        }
+
+        return data;
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+}
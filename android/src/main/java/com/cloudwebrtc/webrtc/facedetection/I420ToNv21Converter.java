@@ -0,0 +1,71 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import org.webrtc.VideoFrame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts I420 buffers to NV21 using bulk row copies.
+ * Each plane row is read with a single relative bulk get, and chroma rows are
+ * interleaved from primitive scratch arrays, so the per-pixel work is a plain
+ * array loop with no ByteBuffer bounds checks. Handles odd sizes and stride padding.
+ * Not thread-safe; scratch rows are reused between calls.
+ */
+public class I420ToNv21Converter {
+
+    private byte[] uRow = new byte[0];
+    private byte[] vRow = new byte[0];
+
+    /**
+     * Convert {@code src} into {@code dst}, which must hold at least
+     * {@link Nv21BufferPool#nv21Size(int, int)} bytes.
+     */
+    public void convert(VideoFrame.I420Buffer src, byte[] dst, int width, int height) {
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        int ySize = width * height;
+
+        if (dst.length < Nv21BufferPool.nv21Size(width, height)) {
+            throw new IllegalArgumentException("NV21 buffer too small for " + width + "x" + height);
+        }
+
+        // Copy Y plane, in one go when there is no row padding
+        ByteBuffer yBuffer = src.getDataY();
+        int yStride = src.getStrideY();
+        if (yStride == width) {
+            yBuffer.position(0);
+            yBuffer.get(dst, 0, ySize);
+        } else {
+            for (int row = 0; row < height; row++) {
+                yBuffer.position(row * yStride);
+                yBuffer.get(dst, row * width, width);
+            }
+        }
+
+        // Interleave U and V rows to VU (NV21 format)
+        if (uRow.length < chromaWidth) {
+            uRow = new byte[chromaWidth];
+            vRow = new byte[chromaWidth];
+        }
+        final byte[] u = uRow;
+        final byte[] v = vRow;
+
+        ByteBuffer uBuffer = src.getDataU();
+        ByteBuffer vBuffer = src.getDataV();
+        int uStride = src.getStrideU();
+        int vStride = src.getStrideV();
+
+        int uvOffset = ySize;
+        for (int row = 0; row < chromaHeight; row++) {
+            uBuffer.position(row * uStride);
+            uBuffer.get(u, 0, chromaWidth);
+            vBuffer.position(row * vStride);
+            vBuffer.get(v, 0, chromaWidth);
+            for (int col = 0; col < chromaWidth; col++) {
+                dst[uvOffset] = v[col]; // V first in NV21
+                dst[uvOffset + 1] = u[col]; // then U
+                uvOffset += 2;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the newest face result of a track for readers that poll instead of listening
+ * to the event stream.
+ *
+ * Writers publish an immutable snapshot with an increasing sequence number; readers
+ * only read the reference, so neither side takes a lock. Results are stored as face
+ * copies and only turned into an event payload when someone asks for them.
+ */
+public class LatestFaceResultSlot {
+
+    public static final class Snapshot {
+        public final long seq;
+        public final long timestampNs;
+        public final long publishedNs;
+        public final int frameWidth;
+        public final int frameHeight;
+        /** Clockwise rotation of the frame; face coordinates are in the upright image */
+        public final int rotation;
+        public final boolean predicted;
+        public final List<FaceResult> faces;
+
+        Snapshot(long seq, long timestampNs, long publishedNs, int frameWidth, int frameHeight,
+                 int rotation, boolean predicted, List<FaceResult> faces) {
+            this.seq = seq;
+            this.timestampNs = timestampNs;
+            this.publishedNs = publishedNs;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            this.rotation = rotation;
+            this.predicted = predicted;
+            this.faces = faces;
+        }
+
+        /** Width of the upright image the face coordinates refer to. */
+        public int getUprightWidth() {
+            return rotation % 180 == 0 ? frameWidth : frameHeight;
+        }
+
+        /** Height of the upright image the face coordinates refer to. */
+        public int getUprightHeight() {
+            return rotation % 180 == 0 ? frameHeight : frameWidth;
+        }
+    }
+
+    private final AtomicReference<Snapshot> latest = new AtomicReference<>();
+    private final AtomicLong nextSeq = new AtomicLong();
+
+    /**
+     * Store {@code faces} as the latest result. A snapshot that lost the race against a
+     * newer one is discarded, so the sequence number seen by readers never goes back.
+     * Predictions run concurrently with detections, so a prediction is also discarded
+     * when the slot already holds a result for the same or a later frame.
+     *
+     * @return false if the result was discarded as stale
+     */
+    public boolean publish(List<FaceResult> faces, long timestampNs, int frameWidth, int frameHeight,
+                           int rotation, boolean predicted) {
+        List<FaceResult> copies = new ArrayList<>(faces.size());
+        for (FaceResult face : faces) {
+            copies.add(face.copy());
+        }
+        Snapshot snapshot = new Snapshot(nextSeq.incrementAndGet(), timestampNs, System.nanoTime(),
+                frameWidth, frameHeight, rotation, predicted, Collections.unmodifiableList(copies));
+        while (true) {
+            Snapshot current = latest.get();
+            if (current != null && current.seq > snapshot.seq) {
+                return false;
+            }
+            if (predicted && current != null && current.timestampNs >= timestampNs) {
+                return false;
+            }
+            if (latest.compareAndSet(current, snapshot)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * The latest snapshot if its sequence number is greater than {@code sinceSeq},
+     * otherwise null.
+     */
+    public Snapshot getIfNewer(long sinceSeq) {
+        Snapshot snapshot = latest.get();
+        return snapshot != null && snapshot.seq > sinceSeq ? snapshot : null;
+    }
+
+    /** The latest snapshot, or null. */
+    public Snapshot get() {
+        return latest.get();
+    }
+
+    /** Sequence number of the latest snapshot (0 = none yet). */
+    public long getSeq() {
+        Snapshot snapshot = latest.get();
+        return snapshot != null ? snapshot.seq : 0;
+    }
+
+    /**
+     * Drop the stored result. Sequence numbers keep increasing so pollers holding an
+     * older number still see the next result as new.
+     */
+    public void clear() {
+        latest.set(null);
+    }
+}
@@ -0,0 +1,127 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import android.graphics.PointF;
+import android.graphics.Rect;
+
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.face.Face;
+import com.google.mlkit.vision.face.FaceDetection;
+import com.google.mlkit.vision.face.FaceDetector;
+import com.google.mlkit.vision.face.FaceDetectorOptions;
+import com.google.mlkit.vision.face.FaceLandmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link FaceDetectorBackend} running ML Kit face detection.
+ * Landmarks and classification each add inference cost, so they are only enabled
+ * when requested through the feature flags.
+ */
+public class MlKitFaceDetectorBackend implements FaceDetectorBackend {
+
+    private final FaceDetector faceDetector;
+    private final Executor callbackExecutor;
+
+    /**
+     * @param callbackExecutor Executor the result callbacks are delivered on
+     * @param features {@link FaceDetectorBackend#FEATURE_LANDMARKS} and/or
+     *                 {@link FaceDetectorBackend#FEATURE_CLASSIFICATION}
+     */
+    public MlKitFaceDetectorBackend(Executor callbackExecutor, int features) {
+        // Configure ML Kit face detector
+        FaceDetectorOptions options = new FaceDetectorOptions.Builder()
+                .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_FAST)
+                .setLandmarkMode((features & FEATURE_LANDMARKS) != 0
+                        ? FaceDetectorOptions.LANDMARK_MODE_ALL
+                        : FaceDetectorOptions.LANDMARK_MODE_NONE)
+                .setClassificationMode((features & FEATURE_CLASSIFICATION) != 0
+                        ? FaceDetectorOptions.CLASSIFICATION_MODE_ALL
+                        : FaceDetectorOptions.CLASSIFICATION_MODE_NONE)
+                .setContourMode(FaceDetectorOptions.CONTOUR_MODE_NONE)
+                .setMinFaceSize(0.15f)
+                .enableTracking()
+                .build();
+
+        this.faceDetector = FaceDetection.getClient(options);
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public void detect(byte[] nv21Data, int width, int height, int rotation, Callback callback) {
+        InputImage inputImage = InputImage.fromByteArray(
+                nv21Data,
+                width,
+                height,
+                rotation,
+                InputImage.IMAGE_FORMAT_NV21
+        );
+
+        faceDetector.process(inputImage)
+                .addOnSuccessListener(callbackExecutor, faces -> {
+                    List<FaceResult> results = new ArrayList<>(faces.size());
+                    for (Face face : faces) {
+                        results.add(toFaceResult(face));
+                    }
+                    callback.onSuccess(results);
+                })
+                .addOnFailureListener(callbackExecutor, callback::onFailure);
+    }
+
+    @Override
+    public void close() {
+        faceDetector.close();
+    }
+
+    /**
+     * Map an ML Kit face, in the coordinates of the detector input image.
+     */
+    static FaceResult toFaceResult(Face face) {
+        FaceResult result = new FaceResult();
+
+        Rect bounds = face.getBoundingBox();
+        result.left = bounds.left;
+        result.top = bounds.top;
+        result.right = bounds.right;
+        result.bottom = bounds.bottom;
+
+        Integer trackingId = face.getTrackingId();
+        if (trackingId != null) {
+            result.trackingId = trackingId;
+        }
+
+        result.yaw = face.getHeadEulerAngleY();
+        result.pitch = face.getHeadEulerAngleX();
+        result.roll = face.getHeadEulerAngleZ();
+
+        setLandmark(result, FaceResult.LANDMARK_LEFT_EYE, face.getLandmark(FaceLandmark.LEFT_EYE));
+        setLandmark(result, FaceResult.LANDMARK_RIGHT_EYE, face.getLandmark(FaceLandmark.RIGHT_EYE));
+        setLandmark(result, FaceResult.LANDMARK_NOSE, face.getLandmark(FaceLandmark.NOSE_BASE));
+        setLandmark(result, FaceResult.LANDMARK_MOUTH_LEFT, face.getLandmark(FaceLandmark.MOUTH_LEFT));
+        setLandmark(result, FaceResult.LANDMARK_MOUTH_RIGHT, face.getLandmark(FaceLandmark.MOUTH_RIGHT));
+        setLandmark(result, FaceResult.LANDMARK_MOUTH_BOTTOM, face.getLandmark(FaceLandmark.MOUTH_BOTTOM));
+
+        Float leftEyeOpenProb = face.getLeftEyeOpenProbability();
+        if (leftEyeOpenProb != null) {
+            result.leftEyeOpenProbability = leftEyeOpenProb;
+        }
+        Float rightEyeOpenProb = face.getRightEyeOpenProbability();
+        if (rightEyeOpenProb != null) {
+            result.rightEyeOpenProbability = rightEyeOpenProb;
+        }
+        Float smilingProb = face.getSmilingProbability();
+        if (smilingProb != null) {
+            result.smilingProbability = smilingProb;
+        }
+
+        return result;
+    }
+
+    private static void setLandmark(FaceResult result, int index, FaceLandmark landmark) {
+        if (landmark != null) {
+            PointF position = landmark.getPosition();
+            result.setLandmark(index, position.x, position.y);
+        }
+    }
+}
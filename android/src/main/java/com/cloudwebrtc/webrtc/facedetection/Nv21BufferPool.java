@@ -0,0 +1,125 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Small fixed ring of reusable NV21 staging buffers.
+ * Buffers are sized for a single resolution; a size change drops the idle buffers
+ * so the ring is refilled at the new size. When every slot is in use a transient
+ * buffer is handed out and counted as a miss.
+ */
+public class Nv21BufferPool {
+
+    private final byte[][] slots;
+    private final boolean[] inUse;
+
+    private int bufferSize = 0;
+    private int cursor = 0;
+    private int occupied = 0;
+
+    private long hits = 0;
+    private long allocations = 0;
+    private long misses = 0;
+    private long resizes = 0;
+
+    public Nv21BufferPool(int capacity) {
+        slots = new byte[capacity][];
+        inUse = new boolean[capacity];
+    }
+
+    /**
+     * Size in bytes of an NV21 image with the given dimensions.
+     */
+    public static int nv21Size(int width, int height) {
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        return width * height + chromaWidth * chromaHeight * 2;
+    }
+
+    /**
+     * Acquire a buffer of exactly {@code size} bytes. Must be handed back with {@link #release}.
+     */
+    public synchronized byte[] acquire(int size) {
+        if (size != bufferSize) {
+            resize(size);
+        }
+
+        for (int i = 0; i < slots.length; i++) {
+            int index = (cursor + i) % slots.length;
+            if (inUse[index]) {
+                continue;
+            }
+            if (slots[index] == null) {
+                slots[index] = new byte[size];
+                allocations++;
+            } else {
+                hits++;
+            }
+            inUse[index] = true;
+            occupied++;
+            cursor = (index + 1) % slots.length;
+            return slots[index];
+        }
+
+        // Ring exhausted, fall back to a transient buffer
+        misses++;
+        return new byte[size];
+    }
+
+    /**
+     * Return a buffer obtained from {@link #acquire}. Transient buffers and buffers
+     * from a previous resolution are simply dropped.
+     */
+    public synchronized void release(byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == buffer) {
+                if (inUse[i]) {
+                    inUse[i] = false;
+                    occupied--;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop all buffers. Buffers still in use are released to the GC when returned.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = null;
+            inUse[i] = false;
+        }
+        occupied = 0;
+        bufferSize = 0;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("capacity", slots.length);
+        stats.put("occupied", occupied);
+        stats.put("bufferSize", bufferSize);
+        stats.put("hits", hits);
+        stats.put("allocations", allocations);
+        stats.put("misses", misses);
+        stats.put("resizes", resizes);
+        return stats;
+    }
+
+    private void resize(int size) {
+        for (int i = 0; i < slots.length; i++) {
+            // Buffers in flight are detached from the ring and dropped on release
+            slots[i] = null;
+            inUse[i] = false;
+        }
+        occupied = 0;
+        if (bufferSize != 0) {
+            resizes++;
+        }
+        bufferSize = size;
+    }
+}
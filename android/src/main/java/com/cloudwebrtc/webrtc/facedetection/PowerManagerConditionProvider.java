@@ -0,0 +1,91 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * {@link DeviceConditionProvider} backed by {@link PowerManager}.
+ * Values are cached and refreshed by the thermal status listener (API 29+) and the
+ * battery saver broadcast, so queries do not make binder calls.
+ */
+public class PowerManagerConditionProvider implements DeviceConditionProvider {
+    private final Context context;
+    private final PowerManager powerManager;
+
+    private volatile int thermalStatus = THERMAL_STATUS_NONE;
+    private volatile boolean powerSaveMode = false;
+
+    private Object thermalListener;
+    private final BroadcastReceiver powerSaveReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            powerSaveMode = powerManager.isPowerSaveMode();
+        }
+    };
+    private boolean started = false;
+
+    public PowerManagerConditionProvider(Context context) {
+        this.context = context.getApplicationContext();
+        this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    }
+
+    public synchronized void start() {
+        if (started || powerManager == null) {
+            return;
+        }
+        started = true;
+
+        powerSaveMode = powerManager.isPowerSaveMode();
+        context.registerReceiver(powerSaveReceiver,
+                new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startThermalListener();
+        }
+    }
+
+    public synchronized void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+
+        context.unregisterReceiver(powerSaveReceiver);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            stopThermalListener();
+        }
+    }
+
+    @Override
+    public int getThermalStatus() {
+        return thermalStatus;
+    }
+
+    @Override
+    public boolean isPowerSaveMode() {
+        return powerSaveMode;
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private void startThermalListener() {
+        thermalStatus = powerManager.getCurrentThermalStatus();
+        PowerManager.OnThermalStatusChangedListener listener = status -> thermalStatus = status;
+        powerManager.addThermalStatusListener(listener);
+        thermalListener = listener;
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private void stopThermalListener() {
+        if (thermalListener != null) {
+            powerManager.removeThermalStatusListener(
+                    (PowerManager.OnThermalStatusChangedListener) thermalListener);
+            thermalListener = null;
+        }
+    }
+}
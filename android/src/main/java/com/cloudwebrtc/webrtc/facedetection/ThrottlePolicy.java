@@ -0,0 +1,98 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+/**
+ * Maps device conditions to a throttle level that scales face detection down in steps.
+ *
+ * Level 0 is unthrottled. Moderate, severe and critical thermal status map to levels
+ * 1, 2 and 3; battery saver forces at least level 1. The level rises immediately and
+ * falls back one step at a time once conditions have stayed better for the recovery
+ * hold time, so it does not flap around a thermal threshold.
+ * Plain Java with explicit timestamps so the policy can be tested with a fake provider.
+ */
+public class ThrottlePolicy {
+    public static final int MAX_LEVEL = 3;
+
+    /** Detection rate factor per level */
+    private static final double[] RATE_SCALE = {1.0, 0.66, 0.5, 0.25};
+
+    /** Cap on the detection input's longest side per level (0 = no cap) */
+    private static final int[] MAX_DIMENSION = {0, 640, 480, 320};
+
+    public static final long DEFAULT_RECOVERY_HOLD_NS = 10_000_000_000L;
+
+    private final DeviceConditionProvider provider;
+    private final long recoveryHoldNs;
+
+    private int level = 0;
+    /** Last time conditions called for the current level or higher */
+    private long lastPressureNs = 0;
+
+    public ThrottlePolicy(DeviceConditionProvider provider) {
+        this(provider, DEFAULT_RECOVERY_HOLD_NS);
+    }
+
+    public ThrottlePolicy(DeviceConditionProvider provider, long recoveryHoldNs) {
+        this.provider = provider;
+        this.recoveryHoldNs = recoveryHoldNs;
+    }
+
+    /**
+     * Re-evaluate the provider; returns the current level.
+     */
+    public synchronized int update(long nowNs) {
+        int target = targetLevel(provider.getThermalStatus(), provider.isPowerSaveMode());
+        if (target >= level) {
+            level = target;
+            lastPressureNs = nowNs;
+        } else if (nowNs - lastPressureNs >= recoveryHoldNs) {
+            // Step down once per hold period
+            level--;
+            lastPressureNs = nowNs;
+        }
+        return level;
+    }
+
+    public synchronized int getLevel() {
+        return level;
+    }
+
+    DeviceConditionProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Factor applied to the detection rate at {@code level}.
+     */
+    public static double rateScale(int level) {
+        return RATE_SCALE[level];
+    }
+
+    /**
+     * Longest side of the detection input at {@code level}, given the configured one
+     * (0 = full resolution).
+     */
+    public static int maxDimension(int level, int configuredMaxDimension) {
+        int cap = MAX_DIMENSION[level];
+        if (cap == 0) {
+            return configuredMaxDimension;
+        }
+        return configuredMaxDimension > 0 ? Math.min(cap, configuredMaxDimension) : cap;
+    }
+
+    static int targetLevel(int thermalStatus, boolean powerSaveMode) {
+        int target;
+        if (thermalStatus >= DeviceConditionProvider.THERMAL_STATUS_CRITICAL) {
+            target = 3;
+        } else if (thermalStatus == DeviceConditionProvider.THERMAL_STATUS_SEVERE) {
+            target = 2;
+        } else if (thermalStatus == DeviceConditionProvider.THERMAL_STATUS_MODERATE) {
+            target = 1;
+        } else {
+            target = 0;
+        }
+        if (powerSaveMode) {
+            target = Math.max(target, 1);
+        }
+        return Math.min(target, MAX_LEVEL);
+    }
+}
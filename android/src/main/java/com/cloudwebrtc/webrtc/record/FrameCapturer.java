@@ -9,6 +9,9 @@ import android.graphics.YuvImage;
 import android.os.Handler;
 import android.os.Looper;
 
+import com.cloudwebrtc.webrtc.video.FrameConversionCache;
+import com.cloudwebrtc.webrtc.video.RemoteVideoTrack;
+
 import org.webrtc.VideoFrame;
 import org.webrtc.VideoSink;
 import org.webrtc.VideoTrack;
@@ -23,16 +26,22 @@ import java.util.Arrays;
 import io.flutter.plugin.common.MethodChannel;
 
 public class FrameCapturer implements VideoSink {
+    private final String trackOwnerId;
     private final VideoTrack videoTrack;
     private File file;
     private final MethodChannel.Result callback;
     private boolean gotFrame = false;
 
-    public FrameCapturer(VideoTrack track, File file, MethodChannel.Result callback) {
+    /**
+     * @param trackOwnerId Id of the peer connection the track was received on, or
+     *                     {@link RemoteVideoTrack#LOCAL_OWNER}
+     */
+    public FrameCapturer(String trackOwnerId, VideoTrack track, File file, MethodChannel.Result callback) {
+        this.trackOwnerId = trackOwnerId;
         videoTrack = track;
         this.file = file;
         this.callback = callback;
-        track.addSink(this);
+        RemoteVideoTrack.attachSink(trackOwnerId, track, this);
     }
 
     @Override
@@ -42,7 +51,18 @@ public class FrameCapturer implements VideoSink {
         gotFrame = true;
         videoFrame.retain();
         VideoFrame.Buffer buffer = videoFrame.getBuffer();
-        VideoFrame.I420Buffer i420Buffer = buffer.toI420();
+        // Reuse the conversion of the track's processing chain if there is one
+        FrameConversionCache conversions = FrameConversionCache.forBuffer(buffer);
+        VideoFrame.I420Buffer i420Buffer = conversions != null ? conversions.getI420() : buffer.toI420();
+        if (i420Buffer == null) {
+            // The conversion failed, e.g. the texture's context is gone
+            videoFrame.release();
+            new Handler(Looper.getMainLooper()).post(() -> {
+                RemoteVideoTrack.detachSink(trackOwnerId, videoTrack, this);
+            });
+            callback.error("CaptureFrameFailed", "Could not convert the frame to I420", null);
+            return;
+        }
         ByteBuffer y = i420Buffer.getDataY();
         ByteBuffer u = i420Buffer.getDataU();
         ByteBuffer v = i420Buffer.getDataV();
@@ -80,7 +100,7 @@ public class FrameCapturer implements VideoSink {
         i420Buffer.release();
         videoFrame.release();
         new Handler(Looper.getMainLooper()).post(() -> {
-            videoTrack.removeSink(this);
+            RemoteVideoTrack.detachSink(trackOwnerId, videoTrack, this);
         });
         try {
             if (!file.exists()) {
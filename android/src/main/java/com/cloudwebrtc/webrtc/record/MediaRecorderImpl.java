@@ -4,6 +4,7 @@ import androidx.annotation.Nullable;
 import android.util.Log;
 
 import com.cloudwebrtc.webrtc.utils.EglUtils;
+import com.cloudwebrtc.webrtc.video.RemoteVideoTrack;
 
 import org.webrtc.VideoTrack;
 
@@ -14,6 +15,7 @@ import java.util.concurrent.Executors;
 public class MediaRecorderImpl {
 
     private final Integer id;
+    private final String videoTrackOwnerId;
     private final VideoTrack videoTrack;
     private final AudioSamplesInterceptor audioInterceptor;
     private VideoFileRenderer videoFileRenderer;
@@ -21,9 +23,14 @@ public class MediaRecorderImpl {
     private boolean isRunning = false;
     private File recordFile;
 
-    public MediaRecorderImpl(Integer id, @Nullable VideoTrack videoTrack,
+    /**
+     * @param videoTrackOwnerId Id of the peer connection the video track was received on,
+     *                          or {@link RemoteVideoTrack#LOCAL_OWNER}
+     */
+    public MediaRecorderImpl(Integer id, @Nullable String videoTrackOwnerId, @Nullable VideoTrack videoTrack,
             @Nullable AudioSamplesInterceptor audioInterceptor) {
         this.id = id;
+        this.videoTrackOwnerId = videoTrackOwnerId;
         this.videoTrack = videoTrack;
         this.audioInterceptor = audioInterceptor;
     }
@@ -40,7 +47,7 @@ public class MediaRecorderImpl {
                     file.getAbsolutePath(),
                     EglUtils.getRootEglBaseContext(),
                     audioInterceptor != null);
-            videoTrack.addSink(videoFileRenderer);
+            RemoteVideoTrack.attachSink(videoTrackOwnerId, videoTrack, videoFileRenderer);
             if (audioInterceptor != null)
                 audioInterceptor.attachCallback(id, videoFileRenderer);
         } else {
@@ -66,7 +73,7 @@ public class MediaRecorderImpl {
         if (audioInterceptor != null)
             audioInterceptor.detachCallback(id);
         if (videoTrack != null && videoFileRenderer != null) {
-            videoTrack.removeSink(videoFileRenderer);
+            RemoteVideoTrack.detachSink(videoTrackOwnerId, videoTrack, videoFileRenderer);
             releaseExecutor.submit(() -> {
                 videoFileRenderer.release();
                 videoFileRenderer = null;
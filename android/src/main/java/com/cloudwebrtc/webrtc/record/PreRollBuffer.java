@@ -0,0 +1,210 @@
+package com.cloudwebrtc.webrtc.record;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded ring of encoded video and audio samples in arrival order.
+ *
+ * Samples are only ever evicted in whole groups of pictures (a video key frame and
+ * everything up to the next one), so the buffer always starts at a key frame and can
+ * be muxed as is. A group is dropped once the remaining ones still cover the
+ * configured duration, or when the buffer is over its memory cap.
+ */
+class PreRollBuffer {
+
+    static final class Sample {
+        final byte[] data;
+        final long presentationTimeUs;
+        final int flags;
+        final boolean video;
+
+        Sample(ByteBuffer source, MediaCodec.BufferInfo info, boolean video) {
+            this.data = new byte[info.size];
+            source.position(info.offset);
+            source.limit(info.offset + info.size);
+            source.get(data);
+            this.presentationTimeUs = info.presentationTimeUs;
+            this.flags = info.flags;
+            this.video = video;
+        }
+
+        boolean isKeyFrame() {
+            return video && (flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0;
+        }
+    }
+
+    /** Receives the buffered samples and every one added after; called under the buffer lock */
+    interface Tap {
+        /** The samples buffered when the tap was attached, before any {@link #onSample} */
+        void onBuffered(List<Sample> buffered);
+
+        void onSample(Sample sample);
+
+        /** The stream restarted with a new format, e.g. after a resolution change */
+        void onInterrupted();
+    }
+
+    private final long maxDurationUs;
+    private final long maxBytes;
+
+    private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+    /** Presentation times of the key frames in {@link #samples} */
+    private final ArrayDeque<Long> keyFrameTimesUs = new ArrayDeque<>();
+    private long bytes = 0;
+    private long newestVideoUs = -1;
+    private long evictedBytes = 0;
+    private long evictedGroups = 0;
+    private long droppedUntilKeyFrame = 0;
+    private boolean overBudget = false;
+
+    private MediaFormat videoFormat;
+    private MediaFormat audioFormat;
+    private Tap tap;
+
+    PreRollBuffer(long maxDurationUs, long maxBytes) {
+        this.maxDurationUs = maxDurationUs;
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized void setVideoFormat(MediaFormat format) {
+        videoFormat = format;
+    }
+
+    synchronized void setAudioFormat(MediaFormat format) {
+        audioFormat = format;
+    }
+
+    /**
+     * Append a sample and trim the buffer.
+     *
+     * @return true if trimming had to cut into the configured duration to respect the
+     * memory cap
+     */
+    synchronized boolean add(Sample sample) {
+        if (tap != null) {
+            tap.onSample(sample);
+        }
+        if (sample.video && keyFrameTimesUs.isEmpty() && !sample.isKeyFrame()) {
+            // Not decodable without the key frame it depends on
+            droppedUntilKeyFrame++;
+            return false;
+        }
+        if (!sample.video && keyFrameTimesUs.isEmpty()) {
+            // Keep audio aligned with the first group of pictures
+            return false;
+        }
+
+        samples.addLast(sample);
+        bytes += sample.data.length;
+        if (sample.video) {
+            newestVideoUs = sample.presentationTimeUs;
+            if (sample.isKeyFrame()) {
+                keyFrameTimesUs.addLast(sample.presentationTimeUs);
+            }
+        }
+
+        // Drop groups that are no longer needed for the duration
+        while (keyFrameTimesUs.size() > 1
+                && newestVideoUs - secondKeyFrameUs() >= maxDurationUs) {
+            evictOldestGroup();
+        }
+        // Respect the memory cap, giving up duration; the newest group is never split
+        overBudget = false;
+        while (bytes > maxBytes && keyFrameTimesUs.size() > 1) {
+            evictOldestGroup();
+            overBudget = true;
+        }
+        return overBudget;
+    }
+
+    /** True if the buffer is over its cap and only holds one group of pictures */
+    synchronized boolean needsKeyFrame() {
+        return bytes > maxBytes && keyFrameTimesUs.size() == 1;
+    }
+
+    private long secondKeyFrameUs() {
+        Iterator<Long> it = keyFrameTimesUs.iterator();
+        it.next();
+        return it.next();
+    }
+
+    private void evictOldestGroup() {
+        keyFrameTimesUs.removeFirst();
+        long nextKeyFrameUs = keyFrameTimesUs.peekFirst();
+        while (!samples.isEmpty()) {
+            Sample head = samples.peekFirst();
+            if (head.isKeyFrame() && head.presentationTimeUs == nextKeyFrameUs) {
+                break;
+            }
+            samples.removeFirst();
+            bytes -= head.data.length;
+            evictedBytes += head.data.length;
+        }
+        evictedGroups++;
+    }
+
+    /**
+     * Hand the buffered samples, starting at a key frame, to {@code liveTap} and install
+     * it for the samples that follow. Both happen under the lock, so the tap gets the
+     * buffered samples before any live one, without a gap or overlap between the two.
+     */
+    synchronized void attachTap(Tap liveTap) {
+        liveTap.onBuffered(new ArrayList<>(samples));
+        tap = liveTap;
+    }
+
+    synchronized void removeTap(Tap liveTap) {
+        if (tap == liveTap) {
+            tap = null;
+        }
+    }
+
+    /** Presentation time of the first buffered key frame, or -1. */
+    synchronized long getOldestKeyFrameUs() {
+        Long firstKeyFrameUs = keyFrameTimesUs.peekFirst();
+        return firstKeyFrameUs != null ? firstKeyFrameUs : -1;
+    }
+
+    synchronized MediaFormat getVideoFormat() {
+        return videoFormat;
+    }
+
+    synchronized MediaFormat getAudioFormat() {
+        return audioFormat;
+    }
+
+    /** Drop everything, e.g. before the encoder restarts with a new format. */
+    synchronized void clear() {
+        if (tap != null) {
+            tap.onInterrupted();
+            tap = null;
+        }
+        samples.clear();
+        keyFrameTimesUs.clear();
+        videoFormat = null;
+        bytes = 0;
+        newestVideoUs = -1;
+    }
+
+    synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Long firstKeyFrameUs = keyFrameTimesUs.peekFirst();
+        stats.put("bufferedMs", firstKeyFrameUs != null ? (newestVideoUs - firstKeyFrameUs) / 1000 : 0);
+        stats.put("bufferedBytes", bytes);
+        stats.put("bufferedSamples", samples.size());
+        stats.put("evictedBytes", evictedBytes);
+        stats.put("evictedGroups", evictedGroups);
+        stats.put("droppedUntilKeyFrame", droppedUntilKeyFrame);
+        stats.put("overBudget", overBudget);
+        return stats;
+    }
+}
@@ -0,0 +1,179 @@
+package com.cloudwebrtc.webrtc.record;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the contents of a {@link PreRollBuffer} plus the samples encoded during the
+ * following post-roll to an MP4 file, without re-encoding.
+ *
+ * Muxing runs on its own thread; the encoder threads only post samples to it.
+ */
+class PreRollClipWriter implements PreRollBuffer.Tap {
+    private static final String TAG = "PreRollClipWriter";
+    /** Finish this long after the post-roll even if the track stopped delivering frames */
+    private static final long FINISH_GRACE_MS = 2000;
+
+    private final String path;
+    private final PreRollBuffer buffer;
+    private final PreRollRecorder.ClipCallback callback;
+    private final HandlerThread writerThread;
+    private final Handler writerHandler;
+    private final MediaMuxer muxer;
+    private final int videoTrackIndex;
+    private final int audioTrackIndex;
+    private final long postRollUs;
+    private volatile boolean finished = false;
+
+    // Writer thread only
+    private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+    private long endUs;
+    private long baseUs = -1;
+    private long lastVideoUs = -1;
+    private long lastAudioUs = -1;
+    private long writtenBytes = 0;
+
+    PreRollClipWriter(String path, PreRollBuffer buffer, MediaFormat videoFormat,
+                      MediaFormat audioFormat, long postRollUs,
+                      PreRollRecorder.ClipCallback callback) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        this.postRollUs = postRollUs;
+        this.callback = callback;
+        muxer = new MediaMuxer(path, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        videoTrackIndex = muxer.addTrack(videoFormat);
+        audioTrackIndex = audioFormat != null ? muxer.addTrack(audioFormat) : -1;
+        muxer.start();
+        writerThread = new HandlerThread(TAG);
+        writerThread.start();
+        writerHandler = new Handler(writerThread.getLooper());
+    }
+
+    /**
+     * Write the buffered pre-roll and keep writing new samples until the post-roll is
+     * complete.
+     */
+    void start() {
+        // Same clock as the sample timestamps
+        endUs = System.nanoTime() / 1000 + postRollUs;
+        buffer.attachTap(this);
+        writerHandler.postDelayed(() -> finish(null), postRollUs / 1000 + FINISH_GRACE_MS);
+    }
+
+    /** Stop now, keeping what was written so far. */
+    void interrupt() {
+        writerHandler.post(() -> finish(null));
+    }
+
+    @Override
+    public void onBuffered(List<PreRollBuffer.Sample> buffered) {
+        // Posted under the buffer lock, so it runs before the first live sample's post
+        writerHandler.post(() -> {
+            for (PreRollBuffer.Sample sample : buffered) {
+                write(sample);
+            }
+            if (postRollUs == 0) {
+                finish(null);
+            }
+        });
+    }
+
+    @Override
+    public void onSample(PreRollBuffer.Sample sample) {
+        writerHandler.post(() -> {
+            if (baseUs >= 0 && sample.video && sample.presentationTimeUs >= endUs) {
+                finish(null);
+                return;
+            }
+            write(sample);
+        });
+    }
+
+    @Override
+    public void onInterrupted() {
+        interrupt();
+    }
+
+    private void write(PreRollBuffer.Sample sample) {
+        if (finished) {
+            return;
+        }
+        if (baseUs < 0) {
+            if (!sample.isKeyFrame()) {
+                return;
+            }
+            baseUs = sample.presentationTimeUs;
+        }
+        long timeUs = sample.presentationTimeUs - baseUs;
+        int trackIndex;
+        if (sample.video) {
+            if (timeUs <= lastVideoUs) {
+                return;
+            }
+            lastVideoUs = timeUs;
+            trackIndex = videoTrackIndex;
+        } else {
+            // Audio from before the first picture is dropped
+            if (audioTrackIndex < 0 || timeUs < 0 || timeUs <= lastAudioUs) {
+                return;
+            }
+            lastAudioUs = timeUs;
+            trackIndex = audioTrackIndex;
+        }
+        info.set(0, sample.data.length, timeUs, sample.flags);
+        try {
+            muxer.writeSampleData(trackIndex, ByteBuffer.wrap(sample.data), info);
+            writtenBytes += sample.data.length;
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            finish("Failed to write sample: " + e.getMessage());
+        }
+    }
+
+    private void finish(String error) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        buffer.removeTap(this);
+        writerHandler.removeCallbacksAndMessages(null);
+        try {
+            muxer.stop();
+        } catch (IllegalStateException e) {
+            // Nothing was written
+            if (error == null) {
+                error = "No video was buffered";
+            }
+        }
+        muxer.release();
+        writerThread.quitSafely();
+
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        if (error != null) {
+            Log.e(TAG, "Saving pre-roll clip failed: " + error);
+            String message = error;
+            mainHandler.post(() -> callback.onClipFailed(message));
+            return;
+        }
+        Map<String, Object> clip = new HashMap<>();
+        clip.put("path", path);
+        clip.put("durationMs", Math.max(0, lastVideoUs) / 1000);
+        clip.put("bytes", writtenBytes);
+        clip.put("hasAudio", lastAudioUs >= 0);
+        mainHandler.post(() -> callback.onClipSaved(clip));
+    }
+
+    boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,103 @@
+package com.cloudwebrtc.webrtc.record;
+
+import java.util.Map;
+
+/**
+ * Configuration for a {@link PreRollRecorder}.
+ */
+public class PreRollConfig {
+    /** What to give up when the buffer reaches maxBytes */
+    public enum Eviction {
+        /** Drop the oldest group of pictures; the pre-roll gets shorter */
+        DROP_OLDEST,
+        /** Also lower the encoder bitrate so the full duration fits into maxBytes */
+        REDUCE_BITRATE
+    }
+
+    /** Length of the pre-roll kept in memory */
+    public int durationMs = 10000;
+
+    /**
+     * Memory cap for the encoded video and audio. Exceeded by at most the group of
+     * pictures being encoded, which is never split.
+     */
+    public int maxBytes = 8 * 1024 * 1024;
+
+    public Eviction eviction = Eviction.DROP_OLDEST;
+
+    /** Initial video bitrate in bits per second */
+    public int bitrate = 2000000;
+
+    /** Lowest bitrate REDUCE_BITRATE goes down to */
+    public int minBitrate = 300000;
+
+    /**
+     * Key frame interval. The pre-roll is trimmed and flushed in whole groups of
+     * pictures, so this is the granularity of its start.
+     */
+    public int keyFrameIntervalMs = 1000;
+
+    /** Longest side in pixels of the encoded video; larger frames are scaled down */
+    public int maxDimension = 1280;
+
+    public static PreRollConfig fromMap(Map<String, Object> map) {
+        PreRollConfig config = new PreRollConfig();
+
+        if (map == null) {
+            return config;
+        }
+
+        if (map.containsKey("durationMs")) {
+            Object value = map.get("durationMs");
+            if (value instanceof Number) {
+                config.durationMs = Math.max(0, ((Number) value).intValue());
+            }
+        }
+
+        if (map.containsKey("maxBytes")) {
+            Object value = map.get("maxBytes");
+            if (value instanceof Number) {
+                config.maxBytes = Math.max(0, ((Number) value).intValue());
+            }
+        }
+
+        if (map.containsKey("eviction")) {
+            Object value = map.get("eviction");
+            if ("reduceBitrate".equals(value)) {
+                config.eviction = Eviction.REDUCE_BITRATE;
+            } else if ("dropOldest".equals(value)) {
+                config.eviction = Eviction.DROP_OLDEST;
+            }
+        }
+
+        if (map.containsKey("bitrate")) {
+            Object value = map.get("bitrate");
+            if (value instanceof Number) {
+                config.bitrate = ((Number) value).intValue();
+            }
+        }
+
+        if (map.containsKey("minBitrate")) {
+            Object value = map.get("minBitrate");
+            if (value instanceof Number) {
+                config.minBitrate = ((Number) value).intValue();
+            }
+        }
+
+        if (map.containsKey("keyFrameIntervalMs")) {
+            Object value = map.get("keyFrameIntervalMs");
+            if (value instanceof Number) {
+                config.keyFrameIntervalMs = Math.max(1, ((Number) value).intValue());
+            }
+        }
+
+        if (map.containsKey("maxDimension")) {
+            Object value = map.get("maxDimension");
+            if (value instanceof Number) {
+                config.maxDimension = ((Number) value).intValue();
+            }
+        }
+
+        return config;
+    }
+}
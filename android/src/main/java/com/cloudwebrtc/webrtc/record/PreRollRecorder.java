@@ -0,0 +1,466 @@
+package com.cloudwebrtc.webrtc.record;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Surface;
+
+import androidx.annotation.Nullable;
+
+import com.cloudwebrtc.webrtc.utils.EglUtils;
+import com.cloudwebrtc.webrtc.video.RemoteVideoTrack;
+
+import org.webrtc.EglBase;
+import org.webrtc.GlRectDrawer;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoFrameDrawer;
+import org.webrtc.VideoSink;
+import org.webrtc.VideoTrack;
+import org.webrtc.audio.JavaAudioDeviceModule;
+import org.webrtc.audio.JavaAudioDeviceModule.SamplesReadyCallback;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the last seconds of a video track, and optionally audio, encoded in memory so
+ * a clip that starts before the request can be saved ("save the last 10 seconds").
+ *
+ * Frames are encoded to H.264 and audio to AAC as they arrive, and the output is kept
+ * in a {@link PreRollBuffer} bounded by duration and memory. {@link #saveClip} muxes
+ * the buffer plus the following post-roll into an MP4 without re-encoding, while the
+ * buffer keeps filling.
+ */
+public class PreRollRecorder implements VideoSink, SamplesReadyCallback {
+    private static final String TAG = "PreRollRecorder";
+    private static final String VIDEO_MIME_TYPE = "video/avc";
+    private static final String AUDIO_MIME_TYPE = "audio/mp4a-latm";
+    private static final int FRAME_RATE = 30;
+    private static final int AUDIO_BITRATE = 64 * 1024;
+    /** Frames waiting for the encoder beyond which new frames are dropped */
+    private static final int MAX_PENDING_FRAMES = 2;
+
+    public interface ClipCallback {
+        void onClipSaved(Map<String, Object> clip);
+
+        void onClipFailed(String error);
+    }
+
+    private final Integer id;
+    private final String videoTrackOwnerId;
+    private final VideoTrack videoTrack;
+    private final AudioSamplesInterceptor audioInterceptor;
+    private final PreRollConfig config;
+    private final EglBase.Context sharedContext;
+    private final PreRollBuffer buffer;
+
+    private final HandlerThread renderThread;
+    private final Handler renderThreadHandler;
+    private final HandlerThread audioThread;
+    private final Handler audioThreadHandler;
+
+    private final AtomicInteger pendingFrames = new AtomicInteger();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private volatile boolean isRunning = false;
+    private volatile int bitrate;
+
+    // Render thread only
+    private EglBase eglBase;
+    private GlRectDrawer drawer;
+    private VideoFrameDrawer frameDrawer;
+    private MediaCodec encoder;
+    private Surface surface;
+    private MediaCodec.BufferInfo videoBufferInfo;
+    private int sourceWidth = -1;
+    private int sourceHeight = -1;
+    private int encodedWidth;
+    private int encodedHeight;
+    private long bitrateChangedUs = -1;
+    private boolean keyFrameRequested = false;
+
+    // Audio thread only
+    private MediaCodec audioEncoder;
+    private MediaCodec.BufferInfo audioBufferInfo;
+    private long lastAudioUs = -1;
+
+    // Main thread only
+    private PreRollClipWriter clipWriter;
+
+    /**
+     * @param videoTrackOwnerId Id of the peer connection the track was received on, or
+     *                          {@link RemoteVideoTrack#LOCAL_OWNER}
+     */
+    public PreRollRecorder(Integer id, String videoTrackOwnerId, VideoTrack videoTrack,
+                           @Nullable AudioSamplesInterceptor audioInterceptor, PreRollConfig config) {
+        this.id = id;
+        this.videoTrackOwnerId = videoTrackOwnerId;
+        this.videoTrack = videoTrack;
+        this.audioInterceptor = audioInterceptor;
+        this.config = config;
+        this.sharedContext = EglUtils.getRootEglBaseContext();
+        this.buffer = new PreRollBuffer(config.durationMs * 1000L, config.maxBytes);
+        this.bitrate = config.bitrate;
+
+        renderThread = new HandlerThread(TAG + "RenderThread");
+        renderThread.start();
+        renderThreadHandler = new Handler(renderThread.getLooper());
+        if (audioInterceptor != null) {
+            audioThread = new HandlerThread(TAG + "AudioThread");
+            audioThread.start();
+            audioThreadHandler = new Handler(audioThread.getLooper());
+        } else {
+            audioThread = null;
+            audioThreadHandler = null;
+        }
+    }
+
+    public void start() throws Exception {
+        if (isRunning) {
+            return;
+        }
+        isRunning = true;
+        RemoteVideoTrack.attachSink(videoTrackOwnerId, videoTrack, this);
+        if (audioInterceptor != null) {
+            audioInterceptor.attachCallback(id, this);
+        }
+    }
+
+    /**
+     * Write the buffered pre-roll and the next {@code postRollMs} to {@code path}. Only
+     * one clip can be written at a time. The callback runs on the main thread.
+     */
+    public void saveClip(String path, int postRollMs, ClipCallback callback) {
+        if (clipWriter != null && !clipWriter.isFinished()) {
+            callback.onClipFailed("A clip is already being saved");
+            return;
+        }
+        MediaFormat videoFormat = buffer.getVideoFormat();
+        if (!isRunning || videoFormat == null) {
+            callback.onClipFailed("Nothing has been buffered yet");
+            return;
+        }
+        File file = new File(path);
+        // noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+        try {
+            clipWriter = new PreRollClipWriter(file.getAbsolutePath(), buffer, videoFormat,
+                    audioInterceptor != null ? buffer.getAudioFormat() : null,
+                    Math.max(0, postRollMs) * 1000L, callback);
+        } catch (IOException | IllegalStateException e) {
+            callback.onClipFailed("Could not create " + path + ": " + e.getMessage());
+            return;
+        }
+        clipWriter.start();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = buffer.getStats();
+        stats.put("bitrate", bitrate);
+        stats.put("droppedFrames", droppedFrames.get());
+        stats.put("clipInProgress", clipWriter != null && !clipWriter.isFinished());
+        return stats;
+    }
+
+    /**
+     * Detach from the track and audio and release the encoders. A clip being written
+     * is finished with what it has so far.
+     */
+    public void stop() {
+        if (!isRunning) {
+            return;
+        }
+        isRunning = false;
+        if (audioInterceptor != null) {
+            audioInterceptor.detachCallback(id);
+        }
+        RemoteVideoTrack.detachSink(videoTrackOwnerId, videoTrack, this);
+        if (clipWriter != null) {
+            clipWriter.interrupt();
+            clipWriter = null;
+        }
+
+        renderThreadHandler.post(() -> {
+            releaseVideoEncoder();
+            if (drawer != null) {
+                drawer.release();
+                drawer = null;
+            }
+            if (frameDrawer != null) {
+                frameDrawer.release();
+                frameDrawer = null;
+            }
+            if (eglBase != null) {
+                eglBase.release();
+                eglBase = null;
+            }
+            buffer.clear();
+            renderThread.quitSafely();
+        });
+        if (audioThreadHandler != null) {
+            audioThreadHandler.post(() -> {
+                if (audioEncoder != null) {
+                    audioEncoder.stop();
+                    audioEncoder.release();
+                    audioEncoder = null;
+                }
+                audioThread.quitSafely();
+            });
+        }
+    }
+
+    @Override
+    public void onFrame(VideoFrame frame) {
+        if (!isRunning) {
+            return;
+        }
+        if (pendingFrames.incrementAndGet() > MAX_PENDING_FRAMES) {
+            // The encoder is behind; never queue up frames on the track's thread
+            pendingFrames.decrementAndGet();
+            droppedFrames.incrementAndGet();
+            return;
+        }
+        // Audio is stamped with the same clock
+        long timestampNs = System.nanoTime();
+        frame.retain();
+        boolean posted = renderThreadHandler.post(() -> {
+            try {
+                encodeFrame(frame, timestampNs);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Failed to encode frame", e);
+            } finally {
+                frame.release();
+                pendingFrames.decrementAndGet();
+            }
+        });
+        if (!posted) {
+            frame.release();
+            pendingFrames.decrementAndGet();
+        }
+    }
+
+    private void encodeFrame(VideoFrame frame, long timestampNs) {
+        if (!isRunning) {
+            return;
+        }
+        int width = frame.getRotatedWidth();
+        int height = frame.getRotatedHeight();
+        if (width != sourceWidth || height != sourceHeight) {
+            sourceWidth = width;
+            sourceHeight = height;
+            initVideoEncoder(width, height);
+        }
+        if (encoder == null) {
+            return;
+        }
+        frameDrawer.drawFrame(frame, drawer, null, 0, 0, encodedWidth, encodedHeight);
+        eglBase.swapBuffers(timestampNs);
+        drainVideo();
+    }
+
+    private void initVideoEncoder(int frameWidth, int frameHeight) {
+        releaseVideoEncoder();
+        // Samples of the previous encoder cannot be muxed with the new format
+        buffer.clear();
+
+        float scale = config.maxDimension > 0
+                ? Math.min(1f, (float) config.maxDimension / Math.max(frameWidth, frameHeight)) : 1f;
+        encodedWidth = Math.round(frameWidth * scale) & ~1;
+        encodedHeight = Math.round(frameHeight * scale) & ~1;
+        try {
+            MediaFormat format = MediaFormat.createVideoFormat(VIDEO_MIME_TYPE, encodedWidth, encodedHeight);
+            format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, bitrate);
+            format.setInteger(MediaFormat.KEY_FRAME_RATE, FRAME_RATE);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1) {
+                format.setFloat(MediaFormat.KEY_I_FRAME_INTERVAL, config.keyFrameIntervalMs / 1000f);
+            } else {
+                format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL,
+                        Math.max(1, Math.round(config.keyFrameIntervalMs / 1000f)));
+            }
+            encoder = MediaCodec.createEncoderByType(VIDEO_MIME_TYPE);
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            surface = encoder.createInputSurface();
+            encoder.start();
+
+            if (eglBase == null) {
+                eglBase = EglBase.create(sharedContext, EglBase.CONFIG_RECORDABLE);
+                drawer = new GlRectDrawer();
+                frameDrawer = new VideoFrameDrawer();
+            }
+            eglBase.createSurface(surface);
+            eglBase.makeCurrent();
+            videoBufferInfo = new MediaCodec.BufferInfo();
+            Log.d(TAG, "Encoder started: " + encodedWidth + "x" + encodedHeight + ", bitrate: " + bitrate);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to start encoder: " + e.getMessage());
+            releaseVideoEncoder();
+        }
+    }
+
+    private void releaseVideoEncoder() {
+        if (eglBase != null && eglBase.hasSurface()) {
+            eglBase.releaseSurface();
+        }
+        if (encoder != null) {
+            try {
+                encoder.stop();
+            } catch (IllegalStateException e) {
+                // Not started
+            }
+            encoder.release();
+            encoder = null;
+        }
+        if (surface != null) {
+            surface.release();
+            surface = null;
+        }
+    }
+
+    private void drainVideo() {
+        while (true) {
+            int index = encoder.dequeueOutputBuffer(videoBufferInfo, 0);
+            if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                break;
+            } else if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                buffer.setVideoFormat(encoder.getOutputFormat());
+            } else if (index >= 0) {
+                ByteBuffer data = encoder.getOutputBuffer(index);
+                // Codec config is part of the output format
+                if (data != null && videoBufferInfo.size > 0
+                        && (videoBufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0) {
+                    PreRollBuffer.Sample sample = new PreRollBuffer.Sample(data, videoBufferInfo, true);
+                    if (sample.isKeyFrame()) {
+                        keyFrameRequested = false;
+                    }
+                    boolean cut = buffer.add(sample);
+                    if (cut && config.eviction == PreRollConfig.Eviction.REDUCE_BITRATE) {
+                        reduceBitrate();
+                    }
+                    if (buffer.needsKeyFrame() && !keyFrameRequested) {
+                        // A single group exceeds the cap; start a new one so it can be evicted
+                        requestKeyFrame();
+                    }
+                }
+                encoder.releaseOutputBuffer(index, false);
+            }
+        }
+    }
+
+    /**
+     * Lower the bitrate so the configured duration fits into the memory cap. Only lowered
+     * further once the buffer holds nothing encoded before the previous change.
+     */
+    private void reduceBitrate() {
+        if (bitrateChangedUs >= 0 && buffer.getOldestKeyFrameUs() < bitrateChangedUs) {
+            return;
+        }
+        long budget = (long) config.maxBytes * 8 * 1000 / Math.max(1, config.durationMs) * 9 / 10;
+        if (audioInterceptor != null) {
+            budget -= AUDIO_BITRATE;
+        }
+        int target = (int) Math.max(config.minBitrate, Math.min(budget, bitrate * 4L / 5));
+        if (target >= bitrate) {
+            return;
+        }
+        Bundle params = new Bundle();
+        params.putInt(MediaCodec.PARAMETER_KEY_VIDEO_BITRATE, target);
+        try {
+            encoder.setParameters(params);
+        } catch (IllegalStateException e) {
+            return;
+        }
+        Log.d(TAG, "Pre-roll over its memory cap, bitrate " + bitrate + " -> " + target);
+        bitrate = target;
+        bitrateChangedUs = System.nanoTime() / 1000;
+    }
+
+    private void requestKeyFrame() {
+        Bundle params = new Bundle();
+        params.putInt(MediaCodec.PARAMETER_KEY_REQUEST_SYNC_FRAME, 0);
+        try {
+            encoder.setParameters(params);
+            keyFrameRequested = true;
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Key frame request failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onWebRtcAudioRecordSamplesReady(JavaAudioDeviceModule.AudioSamples audioSamples) {
+        if (!isRunning || audioThreadHandler == null) {
+            return;
+        }
+        long arrivalUs = System.nanoTime() / 1000;
+        audioThreadHandler.post(() -> {
+            if (!isRunning) {
+                return;
+            }
+            if (audioEncoder == null && !initAudioEncoder(audioSamples)) {
+                return;
+            }
+            byte[] data = audioSamples.getData();
+            int index = audioEncoder.dequeueInputBuffer(0);
+            if (index >= 0) {
+                ByteBuffer input = audioEncoder.getInputBuffer(index);
+                input.clear();
+                int size = Math.min(data.length, input.capacity());
+                input.put(data, 0, size);
+                // The samples end at arrival; 16 bit PCM
+                long durationUs = size * 1000000L
+                        / (2L * audioSamples.getChannelCount() * audioSamples.getSampleRate());
+                long timeUs = Math.max(arrivalUs - durationUs, lastAudioUs + 1);
+                lastAudioUs = timeUs;
+                audioEncoder.queueInputBuffer(index, 0, size, timeUs, 0);
+            }
+            drainAudio();
+        });
+    }
+
+    private boolean initAudioEncoder(JavaAudioDeviceModule.AudioSamples audioSamples) {
+        try {
+            MediaFormat format = MediaFormat.createAudioFormat(AUDIO_MIME_TYPE,
+                    audioSamples.getSampleRate(), audioSamples.getChannelCount());
+            format.setInteger(MediaFormat.KEY_BIT_RATE, AUDIO_BITRATE);
+            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+            audioEncoder = MediaCodec.createEncoderByType(AUDIO_MIME_TYPE);
+            audioEncoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            audioEncoder.start();
+            audioBufferInfo = new MediaCodec.BufferInfo();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to start audio encoder: " + e.getMessage());
+            if (audioEncoder != null) {
+                audioEncoder.release();
+                audioEncoder = null;
+            }
+            return false;
+        }
+    }
+
+    private void drainAudio() {
+        while (true) {
+            int index = audioEncoder.dequeueOutputBuffer(audioBufferInfo, 0);
+            if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                break;
+            } else if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                buffer.setAudioFormat(audioEncoder.getOutputFormat());
+            } else if (index >= 0) {
+                ByteBuffer data = audioEncoder.getOutputBuffer(index);
+                if (data != null && audioBufferInfo.size > 0
+                        && (audioBufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0) {
+                    buffer.add(new PreRollBuffer.Sample(data, audioBufferInfo, false));
+                }
+                audioEncoder.releaseOutputBuffer(index, false);
+            }
+        }
+    }
+}
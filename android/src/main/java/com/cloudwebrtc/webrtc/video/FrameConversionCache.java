@@ -0,0 +1,199 @@
+package com.cloudwebrtc.webrtc.video;
+
+import androidx.annotation.Nullable;
+
+import org.webrtc.VideoFrame;
+
+import java.util.Arrays;
+
+/**
+ * Memoizes the I420 conversions of one frame buffer, so all consumers of a captured
+ * frame share a single {@code toI420()} per size. On texture frames every conversion
+ * is a GPU readback.
+ *
+ * Reference counted: the track holds one reference while the frame moves through its
+ * processor chain and every asynchronous consumer holds one until it is done. The
+ * cached buffers are released with the last reference, after which the track may
+ * {@link #reset} the cache for a later frame, so steady state delivery does not allocate.
+ *
+ * Conversions run outside the lock. Other threads wait for a conversion in progress,
+ * but the capturing thread never does: a texture readback started elsewhere may need
+ * that very thread, so it converts on its own instead.
+ */
+public final class FrameConversionCache {
+    /** Cache of the frame being delivered to the track's sinks on this thread */
+    private static final ThreadLocal<FrameConversionCache> delivering = new ThreadLocal<>();
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private VideoFrame.Buffer buffer;
+    private Thread captureThread;
+    // Conversions by size key; a null buffer marks a conversion in progress
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private VideoFrame.I420Buffer[] conversions = new VideoFrame.I420Buffer[INITIAL_CAPACITY];
+    private int count = 0;
+    private int refCount = 0;
+
+    FrameConversionCache() {}
+
+    FrameConversionCache(VideoFrame.Buffer buffer) {
+        reset(buffer);
+    }
+
+    /**
+     * Start caching conversions of {@code buffer}, holding the first reference.
+     *
+     * @return false if the cache is still referenced by a consumer of an earlier frame
+     */
+    synchronized boolean reset(VideoFrame.Buffer buffer) {
+        if (refCount > 0) {
+            return false;
+        }
+        this.buffer = buffer;
+        this.captureThread = Thread.currentThread();
+        refCount = 1;
+        buffer.retain();
+        return true;
+    }
+
+    /**
+     * Full-size I420 version of the frame. The caller owns the returned reference and
+     * must release it.
+     */
+    @Nullable
+    public VideoFrame.I420Buffer getI420() {
+        return getI420(buffer.getWidth(), buffer.getHeight());
+    }
+
+    /**
+     * I420 version of the whole frame scaled to {@code width} x {@code height}. The first
+     * request for a size converts, later ones reuse the result. The caller owns the
+     * returned reference and must release it.
+     *
+     * @return null if the conversion failed
+     */
+    @Nullable
+    public VideoFrame.I420Buffer getI420(int width, int height) {
+        long key = ((long) width << 32) | (height & 0xffffffffL);
+        VideoFrame.Buffer buffer;
+        synchronized (this) {
+            if (refCount == 0) {
+                throw new IllegalStateException("FrameConversionCache used after release");
+            }
+            buffer = this.buffer;
+            while (true) {
+                int index = indexOf(key);
+                if (index < 0) {
+                    // This thread converts
+                    add(key);
+                    break;
+                }
+                VideoFrame.I420Buffer cached = conversions[index];
+                if (cached != null) {
+                    cached.retain();
+                    return cached;
+                }
+                if (Thread.currentThread() == captureThread) {
+                    // Do not wait for another thread; convert without caching
+                    return convert(buffer, width, height);
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return convert(buffer, width, height);
+                }
+            }
+        }
+
+        VideoFrame.I420Buffer converted = null;
+        try {
+            converted = convert(buffer, width, height);
+        } finally {
+            synchronized (this) {
+                int index = indexOf(key);
+                if (converted != null) {
+                    conversions[index] = converted;
+                    converted.retain();
+                } else {
+                    removeAt(index);
+                }
+                notifyAll();
+            }
+        }
+        return converted;
+    }
+
+    private int indexOf(long key) {
+        for (int i = 0; i < count; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void add(long key) {
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+            conversions = Arrays.copyOf(conversions, count * 2);
+        }
+        keys[count] = key;
+        conversions[count] = null;
+        count++;
+    }
+
+    private void removeAt(int index) {
+        count--;
+        keys[index] = keys[count];
+        conversions[index] = conversions[count];
+        conversions[count] = null;
+    }
+
+    @Nullable
+    private static VideoFrame.I420Buffer convert(VideoFrame.Buffer buffer, int width, int height) {
+        if (width == buffer.getWidth() && height == buffer.getHeight()) {
+            return buffer.toI420();
+        }
+        VideoFrame.Buffer scaled = buffer.cropAndScale(
+                0, 0, buffer.getWidth(), buffer.getHeight(), width, height);
+        VideoFrame.I420Buffer i420 = scaled.toI420();
+        scaled.release();
+        return i420;
+    }
+
+    synchronized void retain() {
+        refCount++;
+    }
+
+    synchronized void release() {
+        if (--refCount > 0) {
+            return;
+        }
+        // No conversion is in progress: converting threads hold a reference
+        for (int i = 0; i < count; i++) {
+            conversions[i].release();
+            conversions[i] = null;
+        }
+        count = 0;
+        buffer.release();
+        buffer = null;
+        captureThread = null;
+    }
+
+    /**
+     * The cache of {@code buffer} if that buffer is being delivered to the track's sinks
+     * on the calling thread, e.g. for a sink like FrameCapturer, otherwise null.
+     * Only valid until the sink's onFrame returns.
+     */
+    @Nullable
+    public static FrameConversionCache forBuffer(VideoFrame.Buffer buffer) {
+        FrameConversionCache cache = delivering.get();
+        return cache != null && cache.buffer == buffer ? cache : null;
+    }
+
+    static void setDelivering(@Nullable FrameConversionCache cache) {
+        // set(null) rather than remove(), which would drop the thread's map entry every frame
+        delivering.set(cache);
+    }
+}
@@ -9,8 +9,8 @@ import org.webrtc.VideoProcessor;
 import org.webrtc.VideoSink;
 import org.webrtc.VideoTrack;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 public class LocalVideoTrack extends LocalTrack implements VideoProcessor {
     public interface ExternalVideoFrameProcessing {
@@ -20,24 +20,77 @@ public class LocalVideoTrack extends LocalTrack implements VideoProcessor {
          * @return The processed video frame.
          */
         public abstract VideoFrame onFrame(VideoFrame frame);
+
+        /**
+         * Like {@link #onFrame(VideoFrame)}, with the frame's shared I420 conversions.
+         * Override to reuse a conversion another consumer of the frame already made.
+         */
+        default VideoFrame onFrame(VideoFrame frame, FrameConversionCache conversions) {
+            return onFrame(frame);
+        }
+    }
+
+    /**
+     * Read-only frame consumer that runs off the capture thread, e.g. an analyzer
+     * like face detection. Analyzers see the captured frame before any
+     * {@link ExternalVideoFrameProcessing} modifies it and never delay the outgoing video.
+     */
+    public interface ExternalVideoFrameAnalyzer {
+        /**
+         * Called on the capture thread for every frame and must be cheap.
+         * Return false to skip the frame without it being retained or queued.
+         */
+        boolean shouldAnalyze(VideoFrame frame);
+
+        /**
+         * Called on the analyzer's executor with a retained frame, which is released
+         * when this returns. The frame must not be modified; get I420 data from
+         * {@code conversions} so it is shared with the other consumers of the frame.
+         * While this runs, further frames for this analyzer are dropped.
+         */
+        void analyze(VideoFrame frame, FrameConversionCache conversions);
     }
 
     public LocalVideoTrack(VideoTrack videoTrack) {
         super(videoTrack);
     }
 
-    List<ExternalVideoFrameProcessing> processors = new ArrayList<>();
+    private final VideoFrameChain chain = new VideoFrameChain();
 
     public void addProcessor(ExternalVideoFrameProcessing processor) {
-        synchronized (processors) {
-            processors.add(processor);
-        }
+        chain.addProcessor(processor);
     }
 
+    /**
+     * Remove a processor. A frame already being processed with the previous chain may
+     * still reach it, so processors must tolerate a call after removal.
+     */
     public void removeProcessor(ExternalVideoFrameProcessing processor) {
-        synchronized (processors) {
-            processors.remove(processor);
-        }
+        chain.removeProcessor(processor);
+    }
+
+    /**
+     * Register a read-only analyzer that is fed on {@code executor}, which should not be
+     * the capture thread. Frames arriving while the analyzer is busy are dropped.
+     */
+    public void addAnalyzer(ExternalVideoFrameAnalyzer analyzer, Executor executor) {
+        chain.addAnalyzer(analyzer, executor);
+    }
+
+    /**
+     * Remove an analyzer. A frame already queued to it is still analyzed.
+     */
+    public void removeAnalyzer(ExternalVideoFrameAnalyzer analyzer) {
+        chain.removeAnalyzer(analyzer);
+    }
+
+    /**
+     * Delivered, dropped-while-busy and rejected frame counts of an analyzer,
+     * or null if it is not registered.
+     */
+    @Nullable
+    public Map<String, Object> getAnalyzerStats(ExternalVideoFrameAnalyzer analyzer) {
+        return chain.getAnalyzerStats(analyzer);
     }
 
     private VideoSink sink = null;
@@ -55,13 +108,9 @@ public class LocalVideoTrack extends LocalTrack implements VideoProcessor {
 
     @Override
     public void onFrameCaptured(VideoFrame videoFrame) {
+        VideoSink sink = this.sink;
         if (sink != null) {
-            synchronized (processors) {
-                for (ExternalVideoFrameProcessing processor : processors) {
-                    videoFrame = processor.onFrame(videoFrame);
-                }
-            }
-            sink.onFrame(videoFrame);
+            chain.deliver(videoFrame, sink);
         }
     }
 }
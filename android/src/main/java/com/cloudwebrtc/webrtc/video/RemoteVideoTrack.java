@@ -0,0 +1,336 @@
+package com.cloudwebrtc.webrtc.video;
+
+import androidx.annotation.Nullable;
+
+import com.cloudwebrtc.webrtc.video.LocalVideoTrack.ExternalVideoFrameAnalyzer;
+import com.cloudwebrtc.webrtc.video.LocalVideoTrack.ExternalVideoFrameProcessing;
+
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoSink;
+import org.webrtc.VideoTrack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Processor and analyzer chain for a received {@link VideoTrack}, with the same
+ * registration API as {@link LocalVideoTrack}.
+ *
+ * The wrapper is the only sink on the native track; renderers and recorders attached
+ * with {@link #attachSink} receive the processed frames from it. Frames arrive on the
+ * decoder thread. As long as no processor or analyzer is registered they are passed
+ * to the sinks as they are, without a copy or conversion.
+ *
+ * Wrappers are created on demand with {@link #obtain} and removed again with
+ * {@link #releaseIfUnused}. Sinks attached before or after are moved between the
+ * native track and the wrapper, so they do not need to know whether one exists.
+ *
+ * Track ids are only unique per peer connection, so wrappers and sinks are kept by
+ * owner id, the peer connection's id or {@link #LOCAL_OWNER}, and track id. Everything
+ * of a peer connection is dropped with {@link #releaseOwner} when it is disposed.
+ */
+public class RemoteVideoTrack implements VideoSink {
+    /** Owner id of tracks that were not received on a peer connection */
+    public static final String LOCAL_OWNER = "local";
+
+    private static final VideoSink[] NO_SINKS = new VideoSink[0];
+
+    /** Wrappers by owner and track id; guarded by the class lock */
+    private static final Map<TrackKey, RemoteVideoTrack> wrappers = new HashMap<>();
+    /**
+     * Sinks attached through {@link #attachSink} by owner and track id, with the
+     * VideoTrack object each was attached with; guarded by the class lock
+     */
+    private static final Map<TrackKey, Map<VideoSink, VideoTrack>> attachedSinks = new HashMap<>();
+
+    private static final class TrackKey {
+        final String ownerId;
+        final String trackId;
+
+        TrackKey(String ownerId, String trackId) {
+            this.ownerId = ownerId;
+            this.trackId = trackId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TrackKey)) {
+                return false;
+            }
+            TrackKey other = (TrackKey) o;
+            return ownerId.equals(other.ownerId) && trackId.equals(other.trackId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ownerId.hashCode() + trackId.hashCode();
+        }
+    }
+
+    private final TrackKey key;
+    private final VideoTrack videoTrack;
+    private final VideoFrameChain chain = new VideoFrameChain();
+    private final VideoSink fanOut = this::deliverToSinks;
+
+    /** Copy-on-write, read on the decoder thread without locking */
+    private volatile VideoSink[] sinks = NO_SINKS;
+    private final Object sinksLock = new Object();
+
+    private RemoteVideoTrack(TrackKey key, VideoTrack videoTrack) {
+        this.key = key;
+        this.videoTrack = videoTrack;
+    }
+
+    public VideoTrack getTrack() {
+        return videoTrack;
+    }
+
+    /** Id of the peer connection the track was received on, or {@link #LOCAL_OWNER}. */
+    public String getOwnerId() {
+        return key.ownerId;
+    }
+
+    public void addProcessor(ExternalVideoFrameProcessing processor) {
+        chain.addProcessor(processor);
+    }
+
+    /**
+     * Remove a processor. A frame already being processed with the previous chain may
+     * still reach it, so processors must tolerate a call after removal.
+     */
+    public void removeProcessor(ExternalVideoFrameProcessing processor) {
+        chain.removeProcessor(processor);
+    }
+
+    /**
+     * Register a read-only analyzer that is fed on {@code executor}, which should not be
+     * the decoder thread. Frames arriving while the analyzer is busy are dropped.
+     */
+    public void addAnalyzer(ExternalVideoFrameAnalyzer analyzer, Executor executor) {
+        chain.addAnalyzer(analyzer, executor);
+    }
+
+    /**
+     * Remove an analyzer. A frame already queued to it is still analyzed.
+     */
+    public void removeAnalyzer(ExternalVideoFrameAnalyzer analyzer) {
+        chain.removeAnalyzer(analyzer);
+    }
+
+    /**
+     * Delivered, dropped-while-busy and rejected frame counts of an analyzer,
+     * or null if it is not registered.
+     */
+    @Nullable
+    public Map<String, Object> getAnalyzerStats(ExternalVideoFrameAnalyzer analyzer) {
+        return chain.getAnalyzerStats(analyzer);
+    }
+
+    /**
+     * Add a sink that receives the processed frames. Prefer {@link #attachSink}, which
+     * keeps the sink attached when the wrapper is released.
+     */
+    public void addSink(VideoSink sink) {
+        synchronized (sinksLock) {
+            VideoSink[] current = sinks;
+            for (VideoSink existing : current) {
+                if (existing == sink) {
+                    return;
+                }
+            }
+            VideoSink[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = sink;
+            sinks = updated;
+        }
+    }
+
+    public void removeSink(VideoSink sink) {
+        synchronized (sinksLock) {
+            VideoSink[] current = sinks;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == sink) {
+                    VideoSink[] updated = new VideoSink[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    sinks = updated;
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onFrame(VideoFrame frame) {
+        if (chain.isEmpty()) {
+            // Fast path: the decoded frame goes to the sinks untouched
+            deliverToSinks(frame);
+            return;
+        }
+        chain.deliver(frame, fanOut);
+    }
+
+    private void deliverToSinks(VideoFrame frame) {
+        VideoSink[] targets = sinks;
+        for (int i = 0; i < targets.length; i++) {
+            targets[i].onFrame(frame);
+        }
+    }
+
+    /**
+     * Attach {@code sink} to {@code track}, through the track's wrapper if it has one.
+     * Sinks attached this way follow the wrapper when it is created or released; detach
+     * them with {@link #detachSink}.
+     *
+     * @param ownerId Id of the peer connection the track was received on, or
+     *                {@link #LOCAL_OWNER}
+     */
+    public static synchronized void attachSink(String ownerId, VideoTrack track, VideoSink sink) {
+        TrackKey key = new TrackKey(ownerId, track.id());
+        Map<VideoSink, VideoTrack> sinks = attachedSinks.get(key);
+        if (sinks == null) {
+            sinks = new IdentityHashMap<>();
+            attachedSinks.put(key, sinks);
+        }
+        sinks.put(sink, track);
+        RemoteVideoTrack wrapper = wrappers.get(key);
+        if (wrapper != null) {
+            wrapper.addSink(sink);
+        } else {
+            track.addSink(sink);
+        }
+    }
+
+    /**
+     * Detach a sink attached with {@link #attachSink}. Safe to call after the track was
+     * disposed.
+     */
+    public static synchronized void detachSink(String ownerId, VideoTrack track, VideoSink sink) {
+        TrackKey key;
+        try {
+            key = new TrackKey(ownerId, track.id());
+        } catch (IllegalStateException e) {
+            // Track disposed; drop the bookkeeping for the sink wherever it is
+            for (Map<VideoSink, VideoTrack> sinks : attachedSinks.values()) {
+                sinks.remove(sink);
+            }
+            return;
+        }
+        Map<VideoSink, VideoTrack> sinks = attachedSinks.get(key);
+        VideoTrack attachedTo = track;
+        if (sinks != null) {
+            VideoTrack recorded = sinks.remove(sink);
+            if (recorded != null) {
+                attachedTo = recorded;
+            }
+            if (sinks.isEmpty()) {
+                attachedSinks.remove(key);
+            }
+        }
+        RemoteVideoTrack wrapper = wrappers.get(key);
+        if (wrapper != null) {
+            wrapper.removeSink(sink);
+        } else {
+            removeFromTrack(attachedTo, sink);
+        }
+    }
+
+    /**
+     * The wrapper of {@code track}, created on first use. Sinks already attached with
+     * {@link #attachSink} are moved onto it.
+     *
+     * @param ownerId Id of the peer connection the track was received on
+     */
+    public static synchronized RemoteVideoTrack obtain(String ownerId, VideoTrack track) {
+        TrackKey key = new TrackKey(ownerId, track.id());
+        RemoteVideoTrack wrapper = wrappers.get(key);
+        if (wrapper != null) {
+            return wrapper;
+        }
+        wrapper = new RemoteVideoTrack(key, track);
+        Map<VideoSink, VideoTrack> sinks = attachedSinks.get(key);
+        if (sinks != null) {
+            for (Map.Entry<VideoSink, VideoTrack> entry : sinks.entrySet()) {
+                removeFromTrack(entry.getValue(), entry.getKey());
+                wrapper.addSink(entry.getKey());
+            }
+        }
+        track.addSink(wrapper);
+        wrappers.put(key, wrapper);
+        return wrapper;
+    }
+
+    /**
+     * Remove {@code wrapper} once it has no processors or analyzers left, handing its
+     * sinks back to the native track.
+     */
+    public static synchronized void releaseIfUnused(RemoteVideoTrack wrapper) {
+        if (wrappers.get(wrapper.key) != wrapper || !wrapper.chain.isEmpty()) {
+            return;
+        }
+        wrappers.remove(wrapper.key);
+        release(wrapper);
+    }
+
+    /**
+     * Remove the wrappers and sink bookkeeping of all tracks of a peer connection, e.g.
+     * when it is disposed.
+     */
+    public static synchronized void releaseOwner(String ownerId) {
+        Iterator<RemoteVideoTrack> wrapperIt = wrappers.values().iterator();
+        while (wrapperIt.hasNext()) {
+            RemoteVideoTrack wrapper = wrapperIt.next();
+            if (wrapper.key.ownerId.equals(ownerId)) {
+                wrapperIt.remove();
+                release(wrapper);
+            }
+        }
+        Iterator<TrackKey> sinkIt = attachedSinks.keySet().iterator();
+        while (sinkIt.hasNext()) {
+            if (sinkIt.next().ownerId.equals(ownerId)) {
+                sinkIt.remove();
+            }
+        }
+    }
+
+    /** Remove all wrappers, e.g. when the plugin is detached. */
+    public static synchronized void releaseAll() {
+        for (RemoteVideoTrack wrapper : new ArrayList<>(wrappers.values())) {
+            release(wrapper);
+        }
+        wrappers.clear();
+        attachedSinks.clear();
+    }
+
+    private static void release(RemoteVideoTrack wrapper) {
+        removeFromTrack(wrapper.videoTrack, wrapper);
+        Map<VideoSink, VideoTrack> sinks = attachedSinks.get(wrapper.key);
+        if (sinks != null) {
+            boolean trackDisposed = false;
+            for (Map.Entry<VideoSink, VideoTrack> entry : sinks.entrySet()) {
+                wrapper.removeSink(entry.getKey());
+                try {
+                    entry.getValue().addSink(entry.getKey());
+                } catch (IllegalStateException e) {
+                    trackDisposed = true;
+                }
+            }
+            if (trackDisposed) {
+                // Track went away together with its peer connection
+                attachedSinks.remove(wrapper.key);
+            }
+        }
+    }
+
+    private static void removeFromTrack(VideoTrack track, VideoSink sink) {
+        try {
+            track.removeSink(sink);
+        } catch (IllegalStateException e) {
+            // Track already disposed together with its peer connection
+        }
+    }
+}
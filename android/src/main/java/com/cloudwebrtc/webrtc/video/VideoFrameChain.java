@@ -0,0 +1,223 @@
+package com.cloudwebrtc.webrtc.video;
+
+import androidx.annotation.Nullable;
+
+import com.cloudwebrtc.webrtc.video.LocalVideoTrack.ExternalVideoFrameAnalyzer;
+import com.cloudwebrtc.webrtc.video.LocalVideoTrack.ExternalVideoFrameProcessing;
+
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoSink;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Analyzers and processors of one video track, shared by {@link LocalVideoTrack} and
+ * {@link RemoteVideoTrack}.
+ *
+ * Both lists are immutable snapshots. Mutations copy the array under a lock and
+ * publish the copy, so the frame thread reads them without locking and never waits
+ * for add/remove calls.
+ */
+final class VideoFrameChain {
+    private static final ExternalVideoFrameProcessing[] NO_PROCESSORS = new ExternalVideoFrameProcessing[0];
+    private static final AnalyzerSlot[] NO_ANALYZERS = new AnalyzerSlot[0];
+    /** Enough for the frame in flight, one held by each busy analyzer and a few spare */
+    private static final int MAX_POOLED_CACHES = 8;
+
+    private static final class AnalyzerSlot {
+        final ExternalVideoFrameAnalyzer analyzer;
+        final Executor executor;
+        final AtomicBoolean busy = new AtomicBoolean(false);
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong droppedBusy = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+
+        AnalyzerSlot(ExternalVideoFrameAnalyzer analyzer, Executor executor) {
+            this.analyzer = analyzer;
+            this.executor = executor;
+        }
+
+        void offer(VideoFrame frame, FrameConversionCache conversions) {
+            if (!analyzer.shouldAnalyze(frame)) {
+                return;
+            }
+            if (!busy.compareAndSet(false, true)) {
+                droppedBusy.incrementAndGet();
+                return;
+            }
+            frame.retain();
+            conversions.retain();
+            try {
+                executor.execute(() -> {
+                    try {
+                        analyzer.analyze(frame, conversions);
+                    } finally {
+                        conversions.release();
+                        frame.release();
+                        busy.set(false);
+                    }
+                });
+                delivered.incrementAndGet();
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                conversions.release();
+                frame.release();
+                busy.set(false);
+            }
+        }
+
+        Map<String, Object> getStats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("delivered", delivered.get());
+            stats.put("droppedBusy", droppedBusy.get());
+            stats.put("rejected", rejected.get());
+            stats.put("busy", busy.get());
+            return stats;
+        }
+    }
+
+    private volatile ExternalVideoFrameProcessing[] processors = NO_PROCESSORS;
+    private volatile AnalyzerSlot[] analyzers = NO_ANALYZERS;
+    /** Conversion caches reused across frames; only grows, under {@link #lock} */
+    private volatile FrameConversionCache[] caches = new FrameConversionCache[0];
+    private final Object lock = new Object();
+
+    void addProcessor(ExternalVideoFrameProcessing processor) {
+        synchronized (lock) {
+            ExternalVideoFrameProcessing[] current = processors;
+            ExternalVideoFrameProcessing[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = processor;
+            processors = updated;
+        }
+    }
+
+    void removeProcessor(ExternalVideoFrameProcessing processor) {
+        synchronized (lock) {
+            ExternalVideoFrameProcessing[] current = processors;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == processor) {
+                    ExternalVideoFrameProcessing[] updated = new ExternalVideoFrameProcessing[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    processors = updated;
+                    return;
+                }
+            }
+        }
+    }
+
+    void addAnalyzer(ExternalVideoFrameAnalyzer analyzer, Executor executor) {
+        synchronized (lock) {
+            AnalyzerSlot[] current = analyzers;
+            AnalyzerSlot[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = new AnalyzerSlot(analyzer, executor);
+            analyzers = updated;
+        }
+    }
+
+    void removeAnalyzer(ExternalVideoFrameAnalyzer analyzer) {
+        synchronized (lock) {
+            AnalyzerSlot[] current = analyzers;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].analyzer == analyzer) {
+                    AnalyzerSlot[] updated = new AnalyzerSlot[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    analyzers = updated;
+                    return;
+                }
+            }
+        }
+    }
+
+    @Nullable
+    Map<String, Object> getAnalyzerStats(ExternalVideoFrameAnalyzer analyzer) {
+        for (AnalyzerSlot slot : analyzers) {
+            if (slot.analyzer == analyzer) {
+                return slot.getStats();
+            }
+        }
+        return null;
+    }
+
+    boolean isEmpty() {
+        return analyzers.length == 0 && processors.length == 0;
+    }
+
+    /**
+     * Offer {@code videoFrame} to the analyzers, run it through the processors and hand
+     * the result to {@code sink}. Without analyzers and processors the frame goes to the
+     * sink as is. The caller keeps ownership of {@code videoFrame}, and frames returned
+     * by processors stay owned by the processor that created them; they are only
+     * retained while being passed on, in case the processor is removed meanwhile.
+     */
+    void deliver(VideoFrame videoFrame, VideoSink sink) {
+        AnalyzerSlot[] analyzerChain = analyzers;
+        ExternalVideoFrameProcessing[] chain = processors;
+        if (analyzerChain.length == 0 && chain.length == 0) {
+            sink.onFrame(videoFrame);
+            return;
+        }
+
+        // Conversions of the current frame, shared by everything that consumes it
+        FrameConversionCache conversions = acquireCache(videoFrame.getBuffer());
+        for (int i = 0; i < analyzerChain.length; i++) {
+            analyzerChain[i].offer(videoFrame, conversions);
+        }
+
+        VideoFrame frame = videoFrame;
+        for (int i = 0; i < chain.length; i++) {
+            VideoFrame processed = chain[i].onFrame(frame, conversions);
+            if (processed != frame) {
+                processed.retain();
+                if (frame != videoFrame) {
+                    // Our reference to the frame of an earlier processor
+                    frame.release();
+                }
+                conversions.release();
+                conversions = acquireCache(processed.getBuffer());
+            }
+            frame = processed;
+        }
+
+        FrameConversionCache.setDelivering(conversions);
+        try {
+            sink.onFrame(frame);
+        } finally {
+            FrameConversionCache.setDelivering(null);
+            conversions.release();
+            if (frame != videoFrame) {
+                frame.release();
+            }
+        }
+    }
+
+    /**
+     * A pooled cache that no consumer of an earlier frame still holds, reset to
+     * {@code buffer}. A new cache joins the pool only when all pooled ones are in use.
+     */
+    private FrameConversionCache acquireCache(VideoFrame.Buffer buffer) {
+        FrameConversionCache[] pool = caches;
+        for (int i = 0; i < pool.length; i++) {
+            if (pool[i].reset(buffer)) {
+                return pool[i];
+            }
+        }
+        FrameConversionCache cache = new FrameConversionCache(buffer);
+        synchronized (lock) {
+            FrameConversionCache[] current = caches;
+            if (current.length < MAX_POOLED_CACHES) {
+                FrameConversionCache[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = cache;
+                caches = updated;
+            }
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,47 @@
+package com.cloudwebrtc.webrtc;
+
+import org.webrtc.JavaI420Buffer;
+import org.webrtc.VideoFrame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Synthetic I420 frames for JVM tests and benchmarks. Buffers are wrapped in plain
+ * Java, so no native WebRTC code is needed as long as they are not scaled.
+ */
+public final class TestFrames {
+
+    private TestFrames() {}
+
+    /**
+     * I420 buffer filled with a deterministic pattern derived from {@code seed}.
+     *
+     * @param stridePadding Extra bytes at the end of every plane row
+     */
+    public static JavaI420Buffer i420Buffer(int width, int height, int stridePadding, int seed) {
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        int strideY = width + stridePadding;
+        int strideUV = chromaWidth + stridePadding;
+
+        ByteBuffer dataY = plane(strideY, height, seed);
+        ByteBuffer dataU = plane(strideUV, chromaHeight, seed + 1);
+        ByteBuffer dataV = plane(strideUV, chromaHeight, seed + 2);
+        return JavaI420Buffer.wrap(width, height, dataY, strideY, dataU, strideUV, dataV, strideUV, null);
+    }
+
+    public static VideoFrame frame(int width, int height, long timestampNs) {
+        return new VideoFrame(i420Buffer(width, height, 0, (int) timestampNs), 0, timestampNs);
+    }
+
+    private static ByteBuffer plane(int stride, int rows, int seed) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(stride * rows);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < stride; col++) {
+                buffer.put((byte) (col * 7 + row * 13 + seed * 31));
+            }
+        }
+        buffer.rewind();
+        return buffer;
+    }
+}
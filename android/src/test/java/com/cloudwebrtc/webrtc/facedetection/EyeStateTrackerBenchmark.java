@@ -0,0 +1,68 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Steady-state cost of blink tracking with many concurrent faces. Faces come and go,
+ * so states are evicted and recycled, yet nothing is allocated once the table has
+ * grown to size.
+ */
+public class EyeStateTrackerBenchmark {
+    private static final int FACES = 32;
+    private static final int WARM_UP_FRAMES = 20000;
+    private static final int MEASURED_FRAMES = 100000;
+
+    private long blinks = 0;
+
+    @Test
+    public void steadyStateDoesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long threadId = Thread.currentThread().getId();
+
+        EyeStateTracker tracker = new EyeStateTracker();
+        runFrames(tracker, 0, WARM_UP_FRAMES);
+
+        // Cost of the measurement itself
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        long overhead = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        before = allocations.getThreadAllocatedBytes(threadId);
+        long startNs = System.nanoTime();
+        runFrames(tracker, WARM_UP_FRAMES, MEASURED_FRAMES);
+        long elapsedNs = System.nanoTime() - startNs;
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        System.out.printf("EyeStateTrackerBenchmark %d faces: %.1f ns per face update, %d bytes allocated "
+                        + "over %d frames (%d blinks)%n",
+                FACES, (double) elapsedNs / ((long) MEASURED_FRAMES * FACES), allocated, MEASURED_FRAMES, blinks);
+        assertEquals(0, allocated);
+    }
+
+    /**
+     * Every 50 frames one face leaves and a new one enters; eyes close and reopen on a
+     * per-face cycle so blinks keep completing.
+     */
+    private void runFrames(EyeStateTracker tracker, int firstFrame, int frameCount) {
+        for (int frame = firstFrame; frame < firstFrame + frameCount; frame++) {
+            int firstId = frame / 50;
+            tracker.beginFrame();
+            for (int i = 0; i < FACES; i++) {
+                int id = firstId + i;
+                boolean closed = (frame + id) % 7 == 0;
+                float probability = closed ? 0.1f : 0.9f;
+                if (tracker.updateEyeState(id, probability, probability, null) != null) {
+                    blinks++;
+                }
+            }
+            tracker.endFrame();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class EyeStateTrackerTest {
+
+    @Test
+    public void blinkCompletesWhenEyeReopens() {
+        EyeStateTracker tracker = new EyeStateTracker();
+        tracker.beginFrame();
+        assertNull(tracker.updateEyeState(1, 0.9f, 0.9f, null));
+        tracker.endFrame();
+
+        tracker.beginFrame();
+        assertNull(tracker.updateEyeState(1, 0.1f, 0.9f, null));
+        tracker.endFrame();
+
+        tracker.beginFrame();
+        EyeStateTracker.BlinkResult blink = tracker.updateEyeState(1, 0.9f, 0.9f, null);
+        tracker.endFrame();
+        assertNotNull(blink);
+        assertEquals("left", blink.eye);
+        assertEquals(1, blink.leftBlinkCount);
+        assertEquals(0, blink.rightBlinkCount);
+
+        tracker.beginFrame();
+        tracker.updateEyeState(1, 0.1f, 0.1f, null);
+        tracker.endFrame();
+        tracker.beginFrame();
+        EyeStateTracker.BlinkResult both = tracker.updateEyeState(1, 0.8f, 0.8f, null);
+        tracker.endFrame();
+        // The result object is reused
+        assertSame(blink, both);
+        assertEquals("both", both.eye);
+        assertEquals(2, both.leftBlinkCount);
+        assertEquals(1, both.rightBlinkCount);
+    }
+
+    @Test
+    public void facesMissingFromAFrameAreEvicted() {
+        EyeStateTracker tracker = new EyeStateTracker();
+        tracker.beginFrame();
+        tracker.updateEyeState(1, 0.9f, 0.9f, null);
+        tracker.updateEyeState(2, 0.9f, 0.9f, null);
+        tracker.updateEyeState(3, 0.9f, 0.9f, null);
+        tracker.endFrame();
+        assertEquals(3, tracker.size());
+
+        tracker.beginFrame();
+        tracker.updateEyeState(1, 0.9f, 0.9f, null);
+        tracker.touch(3);
+        tracker.endFrame();
+        assertEquals(2, tracker.size());
+        assertNotNull(tracker.getFaceState(1));
+        assertNull(tracker.getFaceState(2));
+        assertNotNull(tracker.getFaceState(3));
+    }
+
+    /**
+     * Randomized run against a HashMap reference model, with enough faces to grow the
+     * table and ids that collide after masking.
+     */
+    @Test
+    public void matchesReferenceModel() {
+        Random random = new Random(42);
+        EyeStateTracker tracker = new EyeStateTracker();
+        Map<Integer, int[]> reference = new HashMap<>(); // id -> {leftOpen, rightOpen, leftCount, rightCount}
+
+        for (int frame = 0; frame < 20000; frame++) {
+            tracker.beginFrame();
+            int faceCount = random.nextInt(40);
+            List<Integer> seen = new ArrayList<>();
+            for (int i = 0; i < faceCount; i++) {
+                int id = random.nextInt(64) * 1024 + (random.nextBoolean() ? 0 : Integer.MAX_VALUE / 2);
+                if (seen.contains(id)) {
+                    continue;
+                }
+                seen.add(id);
+                float left = random.nextFloat();
+                float right = random.nextFloat();
+
+                int[] state = reference.get(id);
+                if (state == null) {
+                    state = new int[]{1, 1, 0, 0};
+                    reference.put(id, state);
+                }
+                boolean leftOpen = left > 0.3f;
+                boolean rightOpen = right > 0.3f;
+                boolean leftBlinked = state[0] == 0 && leftOpen;
+                boolean rightBlinked = state[1] == 0 && rightOpen;
+                state[2] += leftBlinked ? 1 : 0;
+                state[3] += rightBlinked ? 1 : 0;
+                state[0] = leftOpen ? 1 : 0;
+                state[1] = rightOpen ? 1 : 0;
+
+                EyeStateTracker.BlinkResult blink = tracker.updateEyeState(id, left, right, null);
+                if (leftBlinked || rightBlinked) {
+                    assertNotNull(blink);
+                    assertEquals(leftBlinked && rightBlinked ? "both" : leftBlinked ? "left" : "right",
+                            blink.eye);
+                    assertEquals(state[2], blink.leftBlinkCount);
+                    assertEquals(state[3], blink.rightBlinkCount);
+                } else {
+                    assertNull(blink);
+                }
+            }
+            tracker.endFrame();
+
+            for (Iterator<Integer> it = reference.keySet().iterator(); it.hasNext(); ) {
+                if (!seen.contains(it.next())) {
+                    it.remove();
+                }
+            }
+            assertEquals(reference.size(), tracker.size());
+            for (Map.Entry<Integer, int[]> entry : reference.entrySet()) {
+                EyeStateTracker.FaceEyeState state = tracker.getFaceState(entry.getKey());
+                assertNotNull(state);
+                assertEquals(entry.getValue()[2], state.leftEye.blinkCount);
+                assertEquals(entry.getValue()[3], state.rightEye.blinkCount);
+            }
+        }
+    }
+}
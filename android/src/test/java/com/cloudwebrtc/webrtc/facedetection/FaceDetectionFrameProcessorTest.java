@@ -0,0 +1,299 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import com.cloudwebrtc.webrtc.TestFrames;
+
+import org.junit.After;
+import org.junit.Test;
+import org.webrtc.VideoFrame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FaceDetectionFrameProcessorTest {
+    private static final long TIMEOUT_MS = 5000;
+
+    private FaceDetectionFrameProcessor processor;
+
+    @After
+    public void tearDown() {
+        if (processor != null) {
+            processor.dispose();
+        }
+    }
+
+    static FaceResult face(int trackingId, float left, float top, float right, float bottom) {
+        FaceResult face = new FaceResult();
+        face.trackingId = trackingId;
+        face.left = left;
+        face.top = top;
+        face.right = right;
+        face.bottom = bottom;
+        return face;
+    }
+
+    static FaceDetectionConfig everyFrameConfig() {
+        FaceDetectionConfig config = new FaceDetectionConfig();
+        config.frameSkipCount = 1;
+        return config;
+    }
+
+    static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private void feed(long timestampNs) {
+        VideoFrame frame = TestFrames.frame(64, 48, timestampNs);
+        processor.onFrame(frame);
+        frame.release();
+    }
+
+    private long stat(String key) {
+        return (Long) processor.getStats().get(key);
+    }
+
+    @Test
+    public void scriptedFacesReachLatestResult() throws InterruptedException {
+        List<List<FaceResult>> script = Arrays.asList(
+                Collections.singletonList(face(7, 4, 6, 20, 30)),
+                Arrays.asList(face(7, 5, 6, 21, 30), face(8, 30, 10, 50, 40)));
+        processor = new FaceDetectionFrameProcessor(
+                (executor, features) -> new ScriptedFaceDetectorBackend(script));
+        processor.setConfig(everyFrameConfig());
+
+        LatestFaceResultSlot slot = processor.getLatestResultSlot();
+        feed(1000);
+        waitFor(() -> slot.getSeq() >= 1);
+        LatestFaceResultSlot.Snapshot first = slot.get();
+        assertEquals(1000, first.timestampNs);
+        assertEquals(1, first.faces.size());
+        assertEquals(7, first.faces.get(0).trackingId);
+        assertEquals(4f, first.faces.get(0).left, 0f);
+
+        feed(2000);
+        waitFor(() -> slot.getSeq() >= 2);
+        LatestFaceResultSlot.Snapshot second = slot.get();
+        assertEquals(2000, second.timestampNs);
+        assertEquals(2, second.faces.size());
+        assertEquals(8, second.faces.get(1).trackingId);
+        assertEquals(64, second.frameWidth);
+        assertEquals(48, second.frameHeight);
+    }
+
+    @Test
+    public void latestFacesCarryTrackId() throws InterruptedException {
+        processor = new FaceDetectionFrameProcessor((executor, features) -> new ScriptedFaceDetectorBackend(
+                Collections.singletonList(Collections.singletonList(face(3, 1, 1, 9, 9)))));
+        processor.setTrackId("remote-video");
+        processor.setConfig(everyFrameConfig());
+
+        feed(1000);
+        waitFor(() -> processor.getLatestResultSlot().getSeq() >= 1);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> result = (Map<String, Object>) processor.getLatestFaces(0).get("result");
+        assertEquals("remote-video", result.get("trackId"));
+    }
+
+    @Test
+    public void failedDetectionDoesNotBlockLaterFrames() throws InterruptedException {
+        processor = new FaceDetectionFrameProcessor((executor, features) -> {
+            ScriptedFaceDetectorBackend backend = new ScriptedFaceDetectorBackend(new ArrayList<>());
+            backend.close();
+            return backend;
+        });
+        processor.setConfig(everyFrameConfig());
+
+        // Frames arriving while a failure is being handled are dropped as busy, so keep
+        // feeding; a processor stuck after the first failure never gets to three
+        final long[] timestampNs = {0};
+        waitFor(() -> {
+            feed(timestampNs[0] += 1000);
+            return stat("detectionsFailed") >= 3;
+        });
+        assertEquals(0, stat("detectionsCompleted"));
+        // Failures still feed the scheduler's rate estimate
+        assertTrue((Double) processor.getStats().get("detectionRate") > 0);
+        assertEquals(0, processor.getLatestResultSlot().getSeq());
+    }
+
+    @Test
+    public void conversionErrorDoesNotBlockLaterFrames() throws InterruptedException {
+        processor = new FaceDetectionFrameProcessor((executor, features) -> new ScriptedFaceDetectorBackend(
+                Collections.singletonList(Collections.singletonList(face(1, 0, 0, 10, 10)))));
+        processor.setConfig(everyFrameConfig());
+
+        VideoFrame broken = new VideoFrame(new FailingBuffer(64, 48), 0, 500);
+        try {
+            processor.onFrame(broken);
+            fail("Conversion error was swallowed");
+        } catch (IllegalStateException expected) {
+            // Thrown by FailingBuffer
+        }
+        assertEquals(1, stat("detectionsFailed"));
+
+        feed(1000);
+        waitFor(() -> processor.getLatestResultSlot().getSeq() >= 1);
+        assertEquals(1000, processor.getLatestResultSlot().get().timestampNs);
+    }
+
+    /**
+     * Buffer whose conversion to I420 fails, e.g. a texture whose context is gone.
+     */
+    private static class FailingBuffer implements VideoFrame.Buffer {
+        private final int width;
+        private final int height;
+
+        FailingBuffer(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public VideoFrame.I420Buffer toI420() {
+            throw new IllegalStateException("Conversion failed");
+        }
+
+        @Override
+        public VideoFrame.Buffer cropAndScale(int cropX, int cropY, int cropWidth, int cropHeight,
+                                              int scaleWidth, int scaleHeight) {
+            return this;
+        }
+
+        @Override
+        public void retain() {}
+
+        @Override
+        public void release() {}
+    }
+
+    @Test
+    public void classificationFollowsBlinkListener() throws InterruptedException {
+        List<Integer> features = Collections.synchronizedList(new ArrayList<>());
+        processor = new FaceDetectionFrameProcessor((executor, requested) -> {
+            features.add(requested);
+            return new ScriptedFaceDetectorBackend(new ArrayList<>());
+        });
+        processor.setConfig(everyFrameConfig());
+
+        final long[] timestampNs = {0};
+        waitFor(() -> {
+            feed(timestampNs[0] += 1000);
+            return !features.isEmpty();
+        });
+        assertEquals(FaceDetectorBackend.FEATURE_LANDMARKS, (int) features.get(0));
+
+        processor.setBlinkEventSink(FaceDetectionPipelineBenchmark.NO_OP_SINK);
+        waitFor(() -> {
+            feed(timestampNs[0] += 1000);
+            return features.size() >= 2;
+        });
+        assertEquals(FaceDetectorBackend.FEATURE_LANDMARKS | FaceDetectorBackend.FEATURE_CLASSIFICATION,
+                (int) features.get(1));
+    }
+
+    @Test
+    public void eyeProbabilitiesAreReportedWithoutLandmarks() {
+        FaceResult face = face(1, 0, 0, 10, 10);
+        face.leftEyeOpenProbability = 0.8f;
+        face.rightEyeOpenProbability = 0.2f;
+
+        Map<String, Object> map = face.toMap(0.3);
+        assertEquals(0.8f, map.get("leftEyeOpenProbability"));
+        assertEquals(0.2f, map.get("rightEyeOpenProbability"));
+        assertTrue(((Map<?, ?>) map.get("landmarks")).isEmpty());
+    }
+
+    @Test
+    public void warmUpReportsBackOnceWhenDetectThrows() throws InterruptedException {
+        processor = new FaceDetectionFrameProcessor((executor, features) -> new ScriptedFaceDetectorBackend(
+                new ArrayList<>()) {
+            @Override
+            public synchronized void detect(byte[] nv21Data, int width, int height, int rotation,
+                                            Callback callback) {
+                throw new IllegalStateException("Detector not ready");
+            }
+        });
+        AtomicInteger completions = new AtomicInteger();
+        processor.warmUp(elapsedNs -> completions.incrementAndGet());
+        waitFor(() -> completions.get() == 1);
+
+        // The backend was handed back, so frames still reach it
+        processor.setConfig(everyFrameConfig());
+        final long[] timestampNs = {0};
+        waitFor(() -> {
+            feed(timestampNs[0] += 1000);
+            return stat("detectionsFailed") >= 1;
+        });
+        assertEquals(1, completions.get());
+    }
+
+    @Test
+    public void configUpdatesKeepTheThrottleHold() {
+        processor = new FaceDetectionFrameProcessor((executor, features) -> new ScriptedFaceDetectorBackend(
+                new ArrayList<>()));
+        ThrottlePolicyTest.FakeConditionProvider provider = new ThrottlePolicyTest.FakeConditionProvider();
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_CRITICAL;
+        processor.setConditionProvider(provider);
+        feed(1000);
+        assertEquals(3, processor.getStats().get("throttleLevel"));
+
+        // A config update hands over the same provider; the level must not drop before
+        // the recovery hold has passed
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_NONE;
+        processor.setConfig(everyFrameConfig());
+        processor.setConditionProvider(provider);
+        feed(2000);
+        assertEquals(3, processor.getStats().get("throttleLevel"));
+
+        processor.setConditionProvider(null);
+        assertEquals(0, processor.getStats().get("throttleLevel"));
+    }
+
+    @Test
+    public void closedBackendReportsFailureOnce() {
+        ScriptedFaceDetectorBackend backend = new ScriptedFaceDetectorBackend(
+                Collections.singletonList(Collections.singletonList(face(1, 0, 0, 10, 10))));
+        backend.close();
+
+        final int[] calls = new int[2];
+        backend.detect(new byte[Nv21BufferPool.nv21Size(4, 4)], 4, 4, 0, new FaceDetectorBackend.Callback() {
+            @Override
+            public void onSuccess(List<FaceResult> faces) {
+                calls[0]++;
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                calls[1]++;
+            }
+        });
+        assertEquals(0, calls[0]);
+        assertEquals(1, calls[1]);
+        assertEquals(0, backend.getDetectCount());
+        assertTrue(backend.isClosed());
+    }
+}
@@ -0,0 +1,116 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import com.cloudwebrtc.webrtc.TestFrames;
+
+import org.junit.Test;
+import org.webrtc.VideoFrame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.flutter.plugin.common.EventChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Per-frame overhead the plugin adds on top of inference: conversion, queueing on the
+ * detection service, result mapping and event building. The scripted backend answers
+ * instantly, so the measured time is all pipeline overhead.
+ */
+public class FaceDetectionPipelineBenchmark {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int WARM_UP_FRAMES = 300;
+    private static final int MEASURED_FRAMES = 1000;
+
+    static final EventChannel.EventSink NO_OP_SINK = new EventChannel.EventSink() {
+        @Override
+        public void success(Object event) {}
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {}
+
+        @Override
+        public void endOfStream() {}
+    };
+
+    @Test
+    public void mapEvents() {
+        run("map events", false);
+    }
+
+    @Test
+    public void compactEvents() {
+        run("compact events", true);
+    }
+
+    private void run(String name, boolean compactEncoding) {
+        List<List<FaceResult>> script = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            script.add(Arrays.asList(
+                    FaceDetectionFrameProcessorTest.face(1, 100 + i, 80, 260 + i, 280),
+                    FaceDetectionFrameProcessorTest.face(2, 380, 90 - i, 520, 250 - i)));
+        }
+        AtomicReference<ScriptedFaceDetectorBackend> backend = new AtomicReference<>();
+        FaceDetectionFrameProcessor processor = new FaceDetectionFrameProcessor((executor, features) -> {
+            backend.set(new ScriptedFaceDetectorBackend(script));
+            return backend.get();
+        });
+        FaceDetectionConfig config = FaceDetectionFrameProcessorTest.everyFrameConfig();
+        config.compactEncoding = compactEncoding;
+        processor.setConfig(config);
+        processor.setFaceEventSink(NO_OP_SINK);
+
+        VideoFrame frame = new VideoFrame(TestFrames.i420Buffer(WIDTH, HEIGHT, 0, 1), 90, 0);
+        try {
+            for (int i = 0; i < WARM_UP_FRAMES; i++) {
+                runFrame(processor, backend, frame);
+            }
+            long[] latencies = new long[MEASURED_FRAMES];
+            for (int i = 0; i < MEASURED_FRAMES; i++) {
+                latencies[i] = runFrame(processor, backend, frame);
+            }
+            Arrays.sort(latencies);
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> stages = (Map<String, Object>) processor.getStats().get("stages");
+            System.out.printf("FaceDetectionPipelineBenchmark %s %dx%d: p50 %.3f ms, p99 %.3f ms, "
+                            + "convert mean %.3f ms, queue mean %.3f ms, map mean %.3f ms%n",
+                    name, WIDTH, HEIGHT,
+                    latencies[MEASURED_FRAMES / 2] / 1e6, latencies[MEASURED_FRAMES * 99 / 100] / 1e6,
+                    meanMs(stages, "convert"), meanMs(stages, "queue"), meanMs(stages, "map"));
+            assertEquals(WARM_UP_FRAMES + MEASURED_FRAMES, backend.get().getCompletedCount());
+        } finally {
+            frame.release();
+            processor.dispose();
+        }
+    }
+
+    /**
+     * Feed one frame and wait until the processor is done with it.
+     */
+    private static long runFrame(FaceDetectionFrameProcessor processor,
+                                 AtomicReference<ScriptedFaceDetectorBackend> backend, VideoFrame frame) {
+        int completed = backend.get() != null ? backend.get().getCompletedCount() : 0;
+        long startNs = System.nanoTime();
+        processor.onFrame(frame);
+        // Spin rather than sleep so the wait does not dominate the measurement
+        long deadlineNs = startNs + 5_000_000_000L;
+        while (backend.get() == null || backend.get().getCompletedCount() == completed) {
+            if (System.nanoTime() > deadlineNs) {
+                fail("Frame was not processed");
+            }
+            Thread.yield();
+        }
+        return System.nanoTime() - startNs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double meanMs(Map<String, Object> stages, String stage) {
+        return (Double) ((Map<String, Object>) stages.get(stage)).get("meanMs");
+    }
+}
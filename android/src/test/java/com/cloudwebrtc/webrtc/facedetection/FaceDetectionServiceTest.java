@@ -0,0 +1,134 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.cloudwebrtc.webrtc.facedetection.FaceDetectionFrameProcessorTest.waitFor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class FaceDetectionServiceTest {
+    private final List<ScriptedFaceDetectorBackend> created = Collections.synchronizedList(new ArrayList<>());
+    private final List<Thread> creatingThreads = Collections.synchronizedList(new ArrayList<>());
+    private FaceDetectionService service;
+
+    @After
+    public void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    private FaceDetectionService newService(int maxConcurrentDetections) {
+        return new FaceDetectionService(maxConcurrentDetections, (executor, features) -> {
+            creatingThreads.add(Thread.currentThread());
+            ScriptedFaceDetectorBackend backend = new ScriptedFaceDetectorBackend(new ArrayList<>());
+            created.add(backend);
+            return backend;
+        });
+    }
+
+    /**
+     * Job that holds its backend until {@code release} is counted down.
+     */
+    private static FaceDetectionService.Job holdingJob(CountDownLatch started, CountDownLatch release,
+                                                       AtomicInteger cancelled) {
+        return new FaceDetectionService.Job() {
+            @Override
+            public void run(FaceDetectorBackend backend, Runnable done) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.run();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    public void backendsAreBuiltOnWorkersNotOnSubmit() throws InterruptedException {
+        service = newService(1);
+        AtomicInteger cancelled = new AtomicInteger();
+
+        CountDownLatch first = new CountDownLatch(1);
+        service.submit(this, FaceDetectorBackend.FEATURE_CLASSIFICATION, holdingJob(first, new CountDownLatch(0), cancelled));
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        waitFor(() -> !((Integer) service.getStats().get("busyBackends") > 0));
+
+        // A different feature set rebuilds the backend, again on the worker
+        CountDownLatch second = new CountDownLatch(1);
+        service.submit(this, 0, holdingJob(second, new CountDownLatch(0), cancelled));
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+
+        assertEquals(2, created.size());
+        for (Thread thread : creatingThreads) {
+            assertNotSame(Thread.currentThread(), thread);
+        }
+        waitFor(() -> created.get(0).isClosed());
+        assertFalse(created.get(1).isClosed());
+        assertEquals(1L, service.getStats().get("rebuilds"));
+        assertEquals(0, cancelled.get());
+    }
+
+    @Test
+    public void shutdownClosesBusyBackendsWhenTheirJobCompletes() throws InterruptedException {
+        service = newService(2);
+        AtomicInteger cancelled = new AtomicInteger();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        service.submit("running", 0, holdingJob(started, release, cancelled));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ScriptedFaceDetectorBackend running = created.get(0);
+
+        service.shutdown();
+        assertFalse(running.isClosed());
+        // New work is rejected, the queued job is cancelled right away
+        assertFalse(service.execute(() -> {}));
+        service.submit("late", 0, holdingJob(new CountDownLatch(1), new CountDownLatch(0), cancelled));
+        assertEquals(1, cancelled.get());
+
+        release.countDown();
+        waitFor(running::isClosed);
+        assertEquals(0, service.getStats().get("backends"));
+    }
+
+    @Test
+    public void failingFactoryCancelsTheJobAndReleasesTheSlot() throws InterruptedException {
+        AtomicReference<Boolean> fail = new AtomicReference<>(true);
+        service = new FaceDetectionService(1, (executor, features) -> {
+            if (fail.get()) {
+                throw new IllegalStateException("no detector");
+            }
+            return new ScriptedFaceDetectorBackend(new ArrayList<>());
+        });
+        AtomicInteger cancelled = new AtomicInteger();
+
+        service.submit(this, 0, holdingJob(new CountDownLatch(1), new CountDownLatch(0), cancelled));
+        // The job never ran, so it is cancelled and can clean up
+        waitFor(() -> cancelled.get() == 1);
+        waitFor(() -> (Integer) service.getStats().get("busyBackends") == 0);
+
+        fail.set(false);
+        CountDownLatch started = new CountDownLatch(1);
+        service.submit(this, 0, holdingJob(started, new CountDownLatch(0), cancelled));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+}
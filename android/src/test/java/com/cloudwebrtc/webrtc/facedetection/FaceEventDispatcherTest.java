@@ -0,0 +1,40 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Main-thread delivery needs a looper; these tests only cover what happens on offer.
+ */
+public class FaceEventDispatcherTest {
+
+    @Test
+    public void latePredictionIsDroppedAsStale() {
+        FaceEventDispatcher dispatcher = new FaceEventDispatcher(queuedNs -> {});
+        dispatcher.offerFace("detected", 2000, false);
+        dispatcher.offerFace("late prediction", 1000, true);
+        dispatcher.offerFace("same-frame prediction", 2000, true);
+        dispatcher.offerFace("prediction", 3000, true);
+        dispatcher.offerFace("slow detection", 2500, false);
+
+        Map<String, Object> stats = dispatcher.getStats();
+        assertEquals(2L, stats.get("facesStale"));
+        // Undelivered results coalesce into the posted delivery
+        assertEquals(2L, stats.get("facesCoalesced"));
+    }
+
+    @Test
+    public void blinkQueueDropsOldestOnOverflow() {
+        FaceEventDispatcher dispatcher = new FaceEventDispatcher(2, queuedNs -> {});
+        for (int i = 0; i < 5; i++) {
+            dispatcher.offerBlink(i);
+        }
+        Map<String, Object> stats = dispatcher.getStats();
+        assertEquals(3L, stats.get("blinksDropped"));
+        assertEquals(2, stats.get("blinksQueued"));
+        assertEquals(2, stats.get("blinkQueueHighWater"));
+    }
+}
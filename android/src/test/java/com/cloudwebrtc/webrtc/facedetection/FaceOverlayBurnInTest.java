@@ -0,0 +1,73 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import com.cloudwebrtc.webrtc.TestFrames;
+
+import org.junit.Test;
+import org.webrtc.VideoFrame;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class FaceOverlayBurnInTest {
+
+    private static FaceOverlayBurnIn burnInWithFace() {
+        LatestFaceResultSlot slot = new LatestFaceResultSlot();
+        slot.publish(Collections.singletonList(FaceDetectionFrameProcessorTest.face(1, 4, 4, 20, 20)),
+                0, 64, 48, 0, false);
+        return new FaceOverlayBurnIn(slot, FaceOverlayStyle.FLAG_BOXES);
+    }
+
+    private static void assertReleased(VideoFrame frame) {
+        try {
+            frame.retain();
+            fail("Frame is still referenced");
+        } catch (IllegalStateException expected) {
+            // Retaining a released buffer throws
+        }
+    }
+
+    @Test
+    public void previousOutputIsReleasedByTheNextFrame() {
+        FaceOverlayBurnIn burnIn = burnInWithFace();
+        VideoFrame input = TestFrames.frame(64, 48, 1000);
+        try {
+            VideoFrame first = burnIn.onFrame(input);
+            assertNotSame(input, first);
+            VideoFrame second = burnIn.onFrame(input);
+            assertNotSame(input, second);
+            assertReleased(first);
+
+            burnIn.release();
+            assertReleased(second);
+        } finally {
+            input.release();
+        }
+    }
+
+    @Test
+    public void framesPassThroughAfterRelease() {
+        FaceOverlayBurnIn burnIn = burnInWithFace();
+        burnIn.release();
+        VideoFrame input = TestFrames.frame(64, 48, 1000);
+        try {
+            assertSame(input, burnIn.onFrame(input));
+        } finally {
+            input.release();
+        }
+    }
+
+    @Test
+    public void framesWithoutFacesPassThrough() {
+        FaceOverlayBurnIn burnIn = new FaceOverlayBurnIn(new LatestFaceResultSlot(), FaceOverlayStyle.FLAG_BOXES);
+        VideoFrame input = TestFrames.frame(64, 48, 1000);
+        try {
+            assertSame(input, burnIn.onFrame(input));
+            burnIn.release();
+        } finally {
+            input.release();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class FaceResultEncoderTest {
+
+    @Test
+    public void encodeBlinkWritesHeaderAndJpeg() {
+        byte[] jpeg = {(byte) 0xff, (byte) 0xd8, 1, 2};
+        byte[] data = FaceResultEncoder.encodeBlink("right", 3, 4, 12, 987654321L, "cam", jpeg);
+        assertEquals(FaceResultEncoder.BLINK_HEADER_SIZE + 3 + jpeg.length, data.length);
+
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(FaceResultEncoder.VERSION, buffer.getInt(0));
+        assertEquals(FaceResultEncoder.BLINK_EYE_RIGHT, buffer.getInt(4));
+        assertEquals(3, buffer.getInt(8));
+        assertEquals(4, buffer.getInt(12));
+        assertEquals(12, buffer.getInt(16));
+        assertEquals(jpeg.length, buffer.getInt(20));
+        assertEquals(987654321L, buffer.getLong(24));
+        assertEquals(3, buffer.getInt(32));
+        assertEquals("cam", new String(data, FaceResultEncoder.BLINK_HEADER_SIZE, 3, StandardCharsets.UTF_8));
+        assertEquals((byte) 0xd8, data[FaceResultEncoder.BLINK_HEADER_SIZE + 3 + 1]);
+    }
+
+    @Test
+    public void encodeBlinkWithoutSnapshot() {
+        byte[] data = FaceResultEncoder.encodeBlink("both", 1, 1, -1, 0, null, null);
+        assertEquals(FaceResultEncoder.BLINK_HEADER_SIZE, data.length);
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(FaceResultEncoder.BLINK_EYE_BOTH, buffer.getInt(4));
+        assertEquals(-1, buffer.getInt(16));
+        assertEquals(0, buffer.getInt(20));
+        assertEquals(0, buffer.getInt(32));
+    }
+
+    @Test
+    public void encodeAppendsTrackIdAfterFaces() {
+        FaceResult face = FaceDetectionFrameProcessorTest.face(5, 1, 2, 3, 4);
+        byte[] data = FaceResultEncoder.encode(Collections.singletonList(face), 42, 640, 480, 0,
+                10, 5, 0.3, 0, "remote-1");
+        int trackIdOffset = FaceResultEncoder.HEADER_SIZE + FaceResultEncoder.FACE_RECORD_SIZE;
+        assertEquals(trackIdOffset + 8, data.length);
+
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(8, buffer.getInt(48));
+        assertEquals(5, buffer.getInt(FaceResultEncoder.HEADER_SIZE));
+        assertEquals("remote-1", new String(data, trackIdOffset, 8, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,58 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import com.cloudwebrtc.webrtc.TestFrames;
+
+import org.junit.Test;
+import org.webrtc.VideoFrame;
+
+import java.util.Arrays;
+
+/**
+ * Bulk row conversion against the previous per-pixel ByteBuffer.get loop, on the
+ * direct buffers WebRTC hands out.
+ */
+public class I420ToNv21ConverterBenchmark {
+    private static final int WARM_UP_ITERATIONS = 200;
+    private static final int MEASURED_ITERATIONS = 500;
+
+    private interface Conversion {
+        void run(VideoFrame.I420Buffer src, byte[] dst, int width, int height);
+    }
+
+    @Test
+    public void vgaAndHd() {
+        run(640, 480, 0);
+        run(640, 480, 64);
+        run(1280, 720, 0);
+    }
+
+    private static void run(int width, int height, int stridePadding) {
+        VideoFrame.I420Buffer buffer = TestFrames.i420Buffer(width, height, stridePadding, 1);
+        byte[] dst = new byte[Nv21BufferPool.nv21Size(width, height)];
+        I420ToNv21Converter converter = new I420ToNv21Converter();
+        try {
+            double perPixelMs = medianMs(I420ToNv21ConverterTest::convertPerPixel, buffer, dst, width, height);
+            double bulkMs = medianMs(converter::convert, buffer, dst, width, height);
+            System.out.printf("I420ToNv21ConverterBenchmark %dx%d padding %d: per-pixel %.3f ms, "
+                            + "bulk rows %.3f ms (%.1fx)%n",
+                    width, height, stridePadding, perPixelMs, bulkMs, perPixelMs / bulkMs);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static double medianMs(Conversion conversion, VideoFrame.I420Buffer src, byte[] dst,
+                                   int width, int height) {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            conversion.run(src, dst, width, height);
+        }
+        long[] durations = new long[MEASURED_ITERATIONS];
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long startNs = System.nanoTime();
+            conversion.run(src, dst, width, height);
+            durations[i] = System.nanoTime() - startNs;
+        }
+        Arrays.sort(durations);
+        return durations[MEASURED_ITERATIONS / 2] / 1e6;
+    }
+}
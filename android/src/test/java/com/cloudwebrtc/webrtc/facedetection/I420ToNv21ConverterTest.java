@@ -0,0 +1,86 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import com.cloudwebrtc.webrtc.TestFrames;
+
+import org.junit.Test;
+import org.webrtc.VideoFrame;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class I420ToNv21ConverterTest {
+
+    /**
+     * The per-pixel conversion the converter replaced, kept as the reference.
+     */
+    static void convertPerPixel(VideoFrame.I420Buffer src, byte[] dst, int width, int height) {
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        int ySize = width * height;
+
+        ByteBuffer yBuffer = src.getDataY();
+        int yStride = src.getStrideY();
+        for (int row = 0; row < height; row++) {
+            yBuffer.position(row * yStride);
+            yBuffer.get(dst, row * width, width);
+        }
+
+        ByteBuffer uBuffer = src.getDataU();
+        ByteBuffer vBuffer = src.getDataV();
+        int uStride = src.getStrideU();
+        int vStride = src.getStrideV();
+
+        int uvOffset = ySize;
+        for (int row = 0; row < chromaHeight; row++) {
+            for (int col = 0; col < chromaWidth; col++) {
+                dst[uvOffset++] = vBuffer.get(row * vStride + col);
+                dst[uvOffset++] = uBuffer.get(row * uStride + col);
+            }
+        }
+    }
+
+    private static void assertMatchesReference(int width, int height, int stridePadding) {
+        VideoFrame.I420Buffer buffer = TestFrames.i420Buffer(width, height, stridePadding, width + height);
+        byte[] expected = new byte[Nv21BufferPool.nv21Size(width, height)];
+        byte[] actual = new byte[expected.length];
+        convertPerPixel(buffer, expected, width, height);
+        new I420ToNv21Converter().convert(buffer, actual, width, height);
+        buffer.release();
+        assertArrayEquals(width + "x" + height + " padding " + stridePadding, expected, actual);
+    }
+
+    @Test
+    public void matchesPerPixelConversion() {
+        assertMatchesReference(640, 480, 0);
+        assertMatchesReference(320, 180, 0);
+    }
+
+    @Test
+    public void handlesStridePadding() {
+        assertMatchesReference(640, 480, 64);
+        assertMatchesReference(64, 48, 3);
+    }
+
+    @Test
+    public void handlesOddSizes() {
+        assertMatchesReference(63, 47, 0);
+        assertMatchesReference(1, 1, 0);
+        assertMatchesReference(99, 35, 5);
+    }
+
+    @Test
+    public void reusesScratchRowsAcrossSizes() {
+        I420ToNv21Converter converter = new I420ToNv21Converter();
+        int[][] sizes = {{64, 48}, {640, 480}, {33, 17}};
+        for (int[] size : sizes) {
+            VideoFrame.I420Buffer buffer = TestFrames.i420Buffer(size[0], size[1], 2, 7);
+            byte[] expected = new byte[Nv21BufferPool.nv21Size(size[0], size[1])];
+            byte[] actual = new byte[expected.length];
+            convertPerPixel(buffer, expected, size[0], size[1]);
+            converter.convert(buffer, actual, size[0], size[1]);
+            buffer.release();
+            assertArrayEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LatestFaceResultSlotTest {
+    private static final List<FaceResult> FACES =
+            Collections.singletonList(FaceDetectionFrameProcessorTest.face(1, 0, 0, 10, 10));
+
+    @Test
+    public void latePredictionDoesNotReplaceNewerDetection() {
+        LatestFaceResultSlot slot = new LatestFaceResultSlot();
+        assertTrue(slot.publish(FACES, 2000, 64, 48, 0, false));
+        assertFalse(slot.publish(FACES, 1000, 64, 48, 0, true));
+        assertFalse(slot.publish(FACES, 2000, 64, 48, 0, true));
+        assertEquals(2000, slot.get().timestampNs);
+        assertFalse(slot.get().predicted);
+        assertEquals(1, slot.getSeq());
+    }
+
+    @Test
+    public void detectionReplacesPredictionOfLaterFrame() {
+        LatestFaceResultSlot slot = new LatestFaceResultSlot();
+        assertTrue(slot.publish(FACES, 1000, 64, 48, 0, false));
+        assertTrue(slot.publish(FACES, 3000, 64, 48, 0, true));
+        // The slow detection of an earlier frame is still real data
+        assertTrue(slot.publish(FACES, 2000, 64, 48, 0, false));
+        assertEquals(2000, slot.get().timestampNs);
+        assertFalse(slot.get().predicted);
+    }
+
+    @Test
+    public void getIfNewerAndClear() {
+        LatestFaceResultSlot slot = new LatestFaceResultSlot();
+        assertNull(slot.getIfNewer(0));
+        slot.publish(FACES, 1000, 64, 48, 90, false);
+        assertEquals(48, slot.get().getUprightWidth());
+        assertNull(slot.getIfNewer(1));
+        slot.clear();
+        assertNull(slot.get());
+        assertTrue(slot.publish(FACES, 500, 64, 48, 0, true));
+        assertEquals(2, slot.getIfNewer(1).seq);
+    }
+}
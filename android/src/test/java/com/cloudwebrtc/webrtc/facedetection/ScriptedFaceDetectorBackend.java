@@ -0,0 +1,70 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deterministic {@link FaceDetectorBackend} that replays a fixed script of results.
+ * Each detect call returns copies of the next script entry (wrapping around) and
+ * completes synchronously on the calling thread, so it runs in plain JVM tests and
+ * benchmarks without a device or model. Detect calls after {@link #close()} fail.
+ */
+public class ScriptedFaceDetectorBackend implements FaceDetectorBackend {
+
+    private final List<List<FaceResult>> script;
+    private int position = 0;
+    private int detectCount = 0;
+    private boolean closed = false;
+    private final AtomicInteger completedCount = new AtomicInteger();
+
+    /**
+     * @param script Faces to report for consecutive frames
+     */
+    public ScriptedFaceDetectorBackend(List<List<FaceResult>> script) {
+        this.script = script.isEmpty()
+                ? Collections.singletonList(Collections.<FaceResult>emptyList())
+                : new ArrayList<>(script);
+    }
+
+    @Override
+    public synchronized void detect(byte[] nv21Data, int width, int height, int rotation, Callback callback) {
+        if (closed) {
+            callback.onFailure(new IllegalStateException("Backend is closed"));
+            return;
+        }
+        List<FaceResult> entry = script.get(position);
+        position = (position + 1) % script.size();
+        detectCount++;
+
+        List<FaceResult> faces = new ArrayList<>(entry.size());
+        for (FaceResult face : entry) {
+            faces.add(face.copy());
+        }
+        callback.onSuccess(faces);
+        completedCount.incrementAndGet();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Number of successful detect calls whose callback has returned, i.e. the caller
+     * is done with the frame. Readable without blocking a running detection.
+     */
+    public int getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /** Number of frames passed to {@link #detect} so far. */
+    public synchronized int getDetectCount() {
+        return detectCount;
+    }
+}
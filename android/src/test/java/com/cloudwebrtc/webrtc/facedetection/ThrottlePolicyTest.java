@@ -0,0 +1,100 @@
+package com.cloudwebrtc.webrtc.facedetection;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ThrottlePolicyTest {
+    private static final long HOLD_NS = 10_000_000_000L;
+    private static final long SECOND_NS = 1_000_000_000L;
+
+    static class FakeConditionProvider implements DeviceConditionProvider {
+        volatile int thermalStatus = THERMAL_STATUS_NONE;
+        volatile boolean powerSaveMode = false;
+
+        @Override
+        public int getThermalStatus() {
+            return thermalStatus;
+        }
+
+        @Override
+        public boolean isPowerSaveMode() {
+            return powerSaveMode;
+        }
+    }
+
+    @Test
+    public void escalatesImmediately() {
+        FakeConditionProvider provider = new FakeConditionProvider();
+        ThrottlePolicy policy = new ThrottlePolicy(provider, HOLD_NS);
+        assertEquals(0, policy.update(0));
+
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_LIGHT;
+        assertEquals(0, policy.update(1));
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_MODERATE;
+        assertEquals(1, policy.update(2));
+        // Skipping a level on the way up
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_CRITICAL;
+        assertEquals(3, policy.update(3));
+        // EMERGENCY and above stay at the top level
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_CRITICAL + 2;
+        assertEquals(ThrottlePolicy.MAX_LEVEL, policy.update(4));
+    }
+
+    @Test
+    public void batterySaverForcesAtLeastLevelOne() {
+        FakeConditionProvider provider = new FakeConditionProvider();
+        provider.powerSaveMode = true;
+        ThrottlePolicy policy = new ThrottlePolicy(provider, HOLD_NS);
+        assertEquals(1, policy.update(0));
+
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_SEVERE;
+        assertEquals(2, policy.update(1));
+    }
+
+    @Test
+    public void recoversOneStepPerHoldPeriod() {
+        FakeConditionProvider provider = new FakeConditionProvider();
+        ThrottlePolicy policy = new ThrottlePolicy(provider, HOLD_NS);
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_CRITICAL;
+        assertEquals(3, policy.update(0));
+
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_NONE;
+        assertEquals(3, policy.update(SECOND_NS));
+        assertEquals(3, policy.update(HOLD_NS - 1));
+        assertEquals(2, policy.update(HOLD_NS));
+        assertEquals(2, policy.update(HOLD_NS + SECOND_NS));
+        assertEquals(1, policy.update(2 * HOLD_NS));
+        assertEquals(0, policy.update(3 * HOLD_NS));
+        assertEquals(0, policy.update(4 * HOLD_NS));
+    }
+
+    @Test
+    public void renewedPressureRestartsTheHold() {
+        FakeConditionProvider provider = new FakeConditionProvider();
+        ThrottlePolicy policy = new ThrottlePolicy(provider, HOLD_NS);
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_SEVERE;
+        assertEquals(2, policy.update(0));
+
+        // Cools briefly, then heats up again just before the hold would expire
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_NONE;
+        assertEquals(2, policy.update(5 * SECOND_NS));
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_SEVERE;
+        assertEquals(2, policy.update(9 * SECOND_NS));
+
+        provider.thermalStatus = DeviceConditionProvider.THERMAL_STATUS_NONE;
+        assertEquals(2, policy.update(HOLD_NS + SECOND_NS));
+        assertEquals(1, policy.update(9 * SECOND_NS + HOLD_NS));
+    }
+
+    @Test
+    public void levelsScaleRateAndResolution() {
+        assertEquals(1.0, ThrottlePolicy.rateScale(0), 0);
+        assertEquals(0.25, ThrottlePolicy.rateScale(3), 0);
+        assertEquals(0, ThrottlePolicy.maxDimension(0, 0));
+        assertEquals(720, ThrottlePolicy.maxDimension(0, 720));
+        assertEquals(640, ThrottlePolicy.maxDimension(1, 720));
+        assertEquals(320, ThrottlePolicy.maxDimension(3, 0));
+        assertEquals(256, ThrottlePolicy.maxDimension(3, 256));
+    }
+}
@@ -0,0 +1,102 @@
+package com.cloudwebrtc.webrtc.video;
+
+import org.junit.After;
+import org.junit.Test;
+import org.webrtc.VideoSink;
+import org.webrtc.VideoTrack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RemoteVideoTrackTest {
+
+    /** Track that keeps its sinks in Java instead of the native track */
+    private static final class FakeVideoTrack extends VideoTrack {
+        final List<VideoSink> sinks = new ArrayList<>();
+        private final String id;
+
+        FakeVideoTrack(String id) {
+            super(1);
+            this.id = id;
+        }
+
+        @Override
+        public String id() {
+            return id;
+        }
+
+        @Override
+        public void addSink(VideoSink sink) {
+            sinks.add(sink);
+        }
+
+        @Override
+        public void removeSink(VideoSink sink) {
+            sinks.remove(sink);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        RemoteVideoTrack.releaseAll();
+    }
+
+    @Test
+    public void sameTrackIdOnTwoPeerConnectionsGetsTwoWrappers() {
+        FakeVideoTrack first = new FakeVideoTrack("video0");
+        FakeVideoTrack second = new FakeVideoTrack("video0");
+        VideoSink firstSink = frame -> {};
+        VideoSink secondSink = frame -> {};
+        RemoteVideoTrack.attachSink("pc1", first, firstSink);
+        RemoteVideoTrack.attachSink("pc2", second, secondSink);
+
+        RemoteVideoTrack firstWrapper = RemoteVideoTrack.obtain("pc1", first);
+        RemoteVideoTrack secondWrapper = RemoteVideoTrack.obtain("pc2", second);
+
+        assertNotSame(firstWrapper, secondWrapper);
+        assertSame(first, firstWrapper.getTrack());
+        assertSame(second, secondWrapper.getTrack());
+        assertEquals(1, first.sinks.size());
+        assertSame(firstWrapper, first.sinks.get(0));
+        assertEquals(1, second.sinks.size());
+        assertSame(secondWrapper, second.sinks.get(0));
+    }
+
+    @Test
+    public void releaseOwnerOnlyDropsThatPeerConnection() {
+        FakeVideoTrack first = new FakeVideoTrack("video0");
+        FakeVideoTrack second = new FakeVideoTrack("video0");
+        VideoSink firstSink = frame -> {};
+        RemoteVideoTrack.attachSink("pc1", first, firstSink);
+        RemoteVideoTrack firstWrapper = RemoteVideoTrack.obtain("pc1", first);
+        RemoteVideoTrack secondWrapper = RemoteVideoTrack.obtain("pc2", second);
+
+        RemoteVideoTrack.releaseOwner("pc1");
+
+        // The sink is back on the native track and no longer follows a new wrapper
+        assertEquals(1, first.sinks.size());
+        assertSame(firstSink, first.sinks.get(0));
+        RemoteVideoTrack recreated = RemoteVideoTrack.obtain("pc1", first);
+        assertNotSame(firstWrapper, recreated);
+        assertTrue(first.sinks.contains(firstSink));
+        assertSame(secondWrapper, RemoteVideoTrack.obtain("pc2", second));
+    }
+
+    @Test
+    public void releaseIfUnusedIgnoresAReplacedWrapper() {
+        FakeVideoTrack track = new FakeVideoTrack("video0");
+        RemoteVideoTrack stale = RemoteVideoTrack.obtain("pc1", track);
+        RemoteVideoTrack.releaseOwner("pc1");
+        RemoteVideoTrack current = RemoteVideoTrack.obtain("pc1", track);
+
+        RemoteVideoTrack.releaseIfUnused(stale);
+
+        assertSame(current, RemoteVideoTrack.obtain("pc1", track));
+        assertTrue(track.sinks.contains(current));
+    }
+}
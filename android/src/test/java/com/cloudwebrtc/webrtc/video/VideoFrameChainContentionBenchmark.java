@@ -0,0 +1,200 @@
+package com.cloudwebrtc.webrtc.video;
+
+import com.cloudwebrtc.webrtc.TestFrames;
+import com.cloudwebrtc.webrtc.video.LocalVideoTrack.ExternalVideoFrameProcessing;
+
+import org.junit.Test;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoSink;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Frame delivery latency while other threads keep adding and removing processors,
+ * for {@link VideoFrameChain} and for the previous design that ran the processors
+ * while holding the list lock. Also reports how long add/remove calls take, since
+ * with the list lock they had to wait for the frame being processed.
+ */
+public class VideoFrameChainContentionBenchmark {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int PROCESSORS = 3;
+    private static final int MUTATOR_THREADS = 2;
+    private static final int WARM_UP_FRAMES = 300;
+    private static final int MEASURED_FRAMES = 2000;
+
+    /** The chain under test, reduced to what the benchmark needs */
+    private interface Chain {
+        void addProcessor(ExternalVideoFrameProcessing processor);
+
+        void removeProcessor(ExternalVideoFrameProcessing processor);
+
+        void deliver(VideoFrame frame, VideoSink sink);
+    }
+
+    private static Chain snapshotChain() {
+        VideoFrameChain chain = new VideoFrameChain();
+        return new Chain() {
+            @Override
+            public void addProcessor(ExternalVideoFrameProcessing processor) {
+                chain.addProcessor(processor);
+            }
+
+            @Override
+            public void removeProcessor(ExternalVideoFrameProcessing processor) {
+                chain.removeProcessor(processor);
+            }
+
+            @Override
+            public void deliver(VideoFrame frame, VideoSink sink) {
+                chain.deliver(frame, sink);
+            }
+        };
+    }
+
+    /** LocalVideoTrack before the snapshot chain: processors run under the list lock */
+    private static Chain lockedListChain() {
+        List<ExternalVideoFrameProcessing> processors = new ArrayList<>();
+        return new Chain() {
+            @Override
+            public void addProcessor(ExternalVideoFrameProcessing processor) {
+                synchronized (processors) {
+                    processors.add(processor);
+                }
+            }
+
+            @Override
+            public void removeProcessor(ExternalVideoFrameProcessing processor) {
+                synchronized (processors) {
+                    processors.remove(processor);
+                }
+            }
+
+            @Override
+            public void deliver(VideoFrame videoFrame, VideoSink sink) {
+                VideoFrame frame = videoFrame;
+                synchronized (processors) {
+                    for (ExternalVideoFrameProcessing processor : processors) {
+                        frame = processor.onFrame(frame);
+                    }
+                }
+                sink.onFrame(frame);
+            }
+        };
+    }
+
+    /**
+     * Pass-through processor that reads the luma plane, standing in for real work.
+     */
+    private static final class ChecksumProcessor implements ExternalVideoFrameProcessing {
+        volatile int checksum;
+
+        @Override
+        public VideoFrame onFrame(VideoFrame frame) {
+            ByteBuffer y = ((VideoFrame.I420Buffer) frame.getBuffer()).getDataY();
+            int sum = 0;
+            for (int i = 0; i < y.capacity(); i++) {
+                sum += y.get(i);
+            }
+            checksum = sum;
+            return frame;
+        }
+    }
+
+    @Test
+    public void snapshotChainIdle() throws InterruptedException {
+        run("snapshot chain, idle", snapshotChain(), 0);
+    }
+
+    @Test
+    public void snapshotChainContended() throws InterruptedException {
+        run("snapshot chain, contended", snapshotChain(), MUTATOR_THREADS);
+    }
+
+    @Test
+    public void lockedListContended() throws InterruptedException {
+        run("locked list, contended", lockedListChain(), MUTATOR_THREADS);
+    }
+
+    private void run(String name, Chain chain, int mutatorThreads) throws InterruptedException {
+        for (int i = 0; i < PROCESSORS; i++) {
+            chain.addProcessor(new ChecksumProcessor());
+        }
+
+        AtomicBoolean stop = new AtomicBoolean(false);
+        long[][] mutationLatencies = new long[mutatorThreads][];
+        AtomicInteger[] mutationCounts = new AtomicInteger[mutatorThreads];
+        Thread[] mutators = new Thread[mutatorThreads];
+        for (int t = 0; t < mutatorThreads; t++) {
+            long[] latencies = new long[100_000];
+            AtomicInteger count = new AtomicInteger();
+            mutationLatencies[t] = latencies;
+            mutationCounts[t] = count;
+            mutators[t] = new Thread(() -> {
+                ExternalVideoFrameProcessing processor = new ChecksumProcessor();
+                while (!stop.get()) {
+                    long startNs = System.nanoTime();
+                    chain.addProcessor(processor);
+                    chain.removeProcessor(processor);
+                    int n = count.get();
+                    if (n < latencies.length) {
+                        latencies[n] = System.nanoTime() - startNs;
+                        count.set(n + 1);
+                    }
+                    Thread.yield();
+                }
+            });
+            mutators[t].start();
+        }
+
+        AtomicInteger delivered = new AtomicInteger();
+        VideoSink sink = frame -> delivered.incrementAndGet();
+        VideoFrame frame = TestFrames.frame(WIDTH, HEIGHT, 0);
+        long[] latencies = new long[MEASURED_FRAMES];
+        try {
+            for (int i = 0; i < WARM_UP_FRAMES; i++) {
+                chain.deliver(frame, sink);
+            }
+            for (int i = 0; i < MEASURED_FRAMES; i++) {
+                long startNs = System.nanoTime();
+                chain.deliver(frame, sink);
+                latencies[i] = System.nanoTime() - startNs;
+            }
+        } finally {
+            stop.set(true);
+            for (Thread mutator : mutators) {
+                mutator.join();
+            }
+            frame.release();
+        }
+        assertEquals(WARM_UP_FRAMES + MEASURED_FRAMES, delivered.get());
+
+        Arrays.sort(latencies);
+        String mutations = "";
+        if (mutatorThreads > 0) {
+            int total = 0;
+            for (AtomicInteger count : mutationCounts) {
+                total += count.get();
+            }
+            long[] all = new long[total];
+            int offset = 0;
+            for (int t = 0; t < mutatorThreads; t++) {
+                System.arraycopy(mutationLatencies[t], 0, all, offset, mutationCounts[t].get());
+                offset += mutationCounts[t].get();
+            }
+            Arrays.sort(all);
+            mutations = String.format(", add+remove p50 %.3f ms, p99 %.3f ms (%d calls)",
+                    all[total / 2] / 1e6, all[total * 99 / 100] / 1e6, total);
+        }
+        System.out.printf("VideoFrameChainContentionBenchmark %s: deliver p50 %.3f ms, p99 %.3f ms, max %.3f ms%s%n",
+                name, latencies[MEASURED_FRAMES / 2] / 1e6, latencies[MEASURED_FRAMES * 99 / 100] / 1e6,
+                latencies[MEASURED_FRAMES - 1] / 1e6, mutations);
+    }
+}
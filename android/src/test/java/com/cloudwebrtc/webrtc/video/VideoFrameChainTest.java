@@ -0,0 +1,78 @@
+package com.cloudwebrtc.webrtc.video;
+
+import com.cloudwebrtc.webrtc.TestFrames;
+import com.cloudwebrtc.webrtc.video.LocalVideoTrack.ExternalVideoFrameAnalyzer;
+
+import org.junit.Test;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoSink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class VideoFrameChainTest {
+    private static final VideoSink NO_OP_SINK = frame -> {};
+
+    /** Analyzer that records the cache and full-size conversion width it was given */
+    private static final class RecordingAnalyzer implements ExternalVideoFrameAnalyzer {
+        final List<FrameConversionCache> caches = new ArrayList<>();
+        final List<Integer> widths = new ArrayList<>();
+
+        @Override
+        public boolean shouldAnalyze(VideoFrame frame) {
+            return true;
+        }
+
+        @Override
+        public void analyze(VideoFrame frame, FrameConversionCache conversions) {
+            caches.add(conversions);
+            VideoFrame.I420Buffer i420 = conversions.getI420();
+            widths.add(i420.getWidth());
+            i420.release();
+        }
+    }
+
+    private static void deliver(VideoFrameChain chain, int width, int height) {
+        VideoFrame frame = TestFrames.frame(width, height, 0);
+        chain.deliver(frame, NO_OP_SINK);
+        frame.release();
+    }
+
+    @Test
+    public void releasedCacheIsReusedForTheNextFrame() {
+        VideoFrameChain chain = new VideoFrameChain();
+        RecordingAnalyzer analyzer = new RecordingAnalyzer();
+        chain.addAnalyzer(analyzer, Runnable::run);
+
+        deliver(chain, 64, 48);
+        deliver(chain, 32, 24);
+
+        assertSame(analyzer.caches.get(0), analyzer.caches.get(1));
+        assertEquals(64, (int) analyzer.widths.get(0));
+        assertEquals(32, (int) analyzer.widths.get(1));
+    }
+
+    @Test
+    public void cacheHeldByAnAnalyzerIsNotReset() {
+        VideoFrameChain chain = new VideoFrameChain();
+        List<Runnable> queued = new ArrayList<>();
+        RecordingAnalyzer slow = new RecordingAnalyzer();
+        chain.addAnalyzer(slow, queued::add);
+        RecordingAnalyzer fast = new RecordingAnalyzer();
+        chain.addAnalyzer(fast, Runnable::run);
+
+        deliver(chain, 64, 48);
+        deliver(chain, 32, 24);
+        // The slow analyzer still holds the first frame's cache
+        queued.get(0).run();
+
+        assertNotSame(fast.caches.get(0), fast.caches.get(1));
+        assertSame(fast.caches.get(0), slow.caches.get(0));
+        assertEquals(64, (int) slow.widths.get(0));
+        assertEquals(32, (int) fast.widths.get(1));
+    }
+}
@@ -60,6 +60,8 @@ NS_ASSUME_NONNULL_BEGIN
 @property(nonatomic, weak, nullable) FlutterEventSink faceEventSink;
 @property(nonatomic, weak, nullable) FlutterEventSink blinkEventSink;
 @property(nonatomic, strong) FaceDetectionConfig* config;
+/// Id of the analyzed track, reported as trackId in face and blink events
+@property(nonatomic, copy, nullable) NSString* trackId;
 
 - (instancetype)init;
 - (void)setConfig:(FaceDetectionConfig*)config;
@@ -449,6 +449,14 @@
             faceData[@"smilingProbability"] = @(face.smilingProbability);
         }
 
+        // Eye open probabilities, also present when landmarks are off
+        if (face.hasLeftEyeOpenProbability) {
+            faceData[@"leftEyeOpenProbability"] = @(face.leftEyeOpenProbability);
+        }
+        if (face.hasRightEyeOpenProbability) {
+            faceData[@"rightEyeOpenProbability"] = @(face.rightEyeOpenProbability);
+        }
+
         [faceDataList addObject:faceData];
 
         // Blink detection
@@ -480,6 +488,9 @@
                     NSMutableDictionary* blinkEvent = [blinkResult mutableCopy];
                     blinkEvent[@"trackingId"] = @(trackingId);
                     blinkEvent[@"timestamp"] = @(timestampNs);
+                    if (_trackId != nil) {
+                        blinkEvent[@"trackId"] = _trackId;
+                    }
                     [self emitBlinkEvent:blinkEvent];
                 }
             }
@@ -491,12 +502,15 @@
 
     // Emit face detection results
     if (_faceEventSink != nil) {
-        NSDictionary* result = @{
+        NSMutableDictionary* result = [@{
             @"faces": faceDataList,
             @"timestamp": @(timestampNs),
             @"frameWidth": @(width),
             @"frameHeight": @(height)
-        };
+        } mutableCopy];
+        if (_trackId != nil) {
+            result[@"trackId"] = _trackId;
+        }
         [self emitFaceEvent:result];
     }
 }
@@ -1794,6 +1794,16 @@ static FlutterWebRTCPlugin *sharedSingleton;
       NSString* trackId = argsMap[@"trackId"];
       NSDictionary* config = argsMap[@"config"];
       [self updateFaceDetectionConfig:trackId config:config result:result];
+    } else if ([@"configureFaceDetectionService" isEqualToString:call.method] ||
+               [@"setFaceDetectionOverlay" isEqualToString:call.method]) {
+      // Only implemented on Android, ignored here
+      result(nil);
+    } else if ([@"getFaceDetectionStats" isEqualToString:call.method]) {
+      // Only implemented on Android, no stats are collected here
+      result(@{});
+    } else if ([@"getLatestFaces" isEqualToString:call.method]) {
+      // Only implemented on Android, never a newer result here
+      result(nil);
     } else {
       if([self handleFrameCryptorMethodCall:call result:result]) {
           return;
@@ -2761,6 +2771,7 @@ static FlutterWebRTCPlugin *sharedSingleton;
 
     // Create and configure the face detection processor
     FaceDetectionFrameProcessor* processor = [[FaceDetectionFrameProcessor alloc] init];
+    processor.trackId = trackId;
     FaceDetectionConfig* config = [FaceDetectionConfig configFromDictionary:configDict];
     [processor setConfig:config];
 
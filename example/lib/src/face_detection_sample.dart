@@ -1,5 +1,4 @@
 import 'dart:async';
-import 'dart:convert';
 
 import 'package:flutter/material.dart';
 import 'package:flutter_webrtc/flutter_webrtc.dart';
@@ -130,6 +129,7 @@ class _FaceDetectionSampleState extends State<FaceDetectionSample> {
       final config = FaceDetectionConfig(
         blinkThreshold: _blinkThreshold,
         captureOnBlink: _captureOnBlink,
+        enableLandmarks: true,
       );
       await track.enableFaceDetection(config: config);
 
@@ -171,6 +171,7 @@ class _FaceDetectionSampleState extends State<FaceDetectionSample> {
     final config = FaceDetectionConfig(
       blinkThreshold: _blinkThreshold,
       captureOnBlink: _captureOnBlink,
+      enableLandmarks: true,
     );
     await track.enableFaceDetection(config: config);
 
@@ -430,12 +431,12 @@ class _FaceDetectionSampleState extends State<FaceDetectionSample> {
                         style: TextStyle(color: Colors.grey, fontSize: 12)),
                   ],
                 ),
-                if (event.capturedFrame != null) ...[
+                if (event.capturedFrameBytes != null) ...[
                   SizedBox(height: 8),
                   ClipRRect(
                     borderRadius: BorderRadius.circular(4),
                     child: Image.memory(
-                      base64Decode(event.capturedFrame!),
+                      event.capturedFrameBytes!,
                       height: 120,
                       fit: BoxFit.cover,
                     ),
@@ -7,6 +7,7 @@ export 'src/helper.dart';
 export 'src/desktop_capturer.dart';
 export 'src/media_devices.dart';
 export 'src/media_recorder.dart';
+export 'src/pre_roll_recorder.dart';
 export 'src/video_renderer_extension.dart';
 export 'src/native/factory_impl.dart'
     if (dart.library.js_interop) 'src/web/factory_impl.dart';
@@ -27,6 +28,7 @@ export 'src/native/rtc_video_platform_view.dart';
 // Face detection exports
 export 'src/face_detection/face_detection_config.dart';
 export 'src/face_detection/face_detection_result.dart';
+export 'src/face_detection/face_overlay_options.dart';
 export 'src/face_detection/face_landmarks.dart';
 export 'src/face_detection/head_pose.dart';
 export 'src/face_detection/blink_event.dart';
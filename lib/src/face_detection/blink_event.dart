@@ -1,3 +1,6 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
 /// Which eye(s) blinked.
 enum BlinkEye {
   left,
@@ -19,21 +22,45 @@ class BlinkEvent {
   /// Face tracking ID.
   final int? trackingId;
 
+  /// Id of the track the blink was detected in.
+  final String? trackId;
+
   /// Timestamp of the event in nanoseconds.
   final int? timestamp;
 
-  /// Base64-encoded JPEG image captured at the moment of the blink.
-  /// Only present if captureOnBlink was enabled in the config.
-  final String? capturedFrame;
+  final Uint8List? _capturedFrameBytes;
+  final String? _capturedFrame;
 
+  /// Pass the captured JPEG as [capturedFrameBytes]. The Base64 [capturedFrame]
+  /// parameter is still accepted for existing callers.
   const BlinkEvent({
     required this.eye,
     required this.leftBlinkCount,
     required this.rightBlinkCount,
     this.trackingId,
+    this.trackId,
     this.timestamp,
-    this.capturedFrame,
-  });
+    Uint8List? capturedFrameBytes,
+    @Deprecated('Use capturedFrameBytes') String? capturedFrame,
+  })  : assert(capturedFrameBytes == null || capturedFrame == null,
+            'Pass either capturedFrameBytes or capturedFrame'),
+        _capturedFrameBytes = capturedFrameBytes,
+        _capturedFrame = capturedFrame;
+
+  /// JPEG image captured at the moment of the blink.
+  /// Only present if captureOnBlink was enabled in the config.
+  Uint8List? get capturedFrameBytes {
+    final base64 = _capturedFrame;
+    return _capturedFrameBytes ??
+        (base64 != null ? base64Decode(base64) : null);
+  }
+
+  /// Base64-encoded form of [capturedFrameBytes].
+  @Deprecated('Use capturedFrameBytes')
+  String? get capturedFrame {
+    final bytes = _capturedFrameBytes;
+    return _capturedFrame ?? (bytes != null ? base64Encode(bytes) : null);
+  }
 
   /// Total blink count (max of left and right).
   int get blinkCount =>
@@ -45,11 +72,64 @@ class BlinkEvent {
       leftBlinkCount: map['leftBlinkCount'] as int? ?? 0,
       rightBlinkCount: map['rightBlinkCount'] as int? ?? 0,
       trackingId: map['trackingId'] as int?,
+      trackId: map['trackId'] as String?,
       timestamp: map['timestamp'] as int?,
-      capturedFrame: map['capturedFrame'] as String?,
+      capturedFrameBytes: _parseCapturedFrame(map['capturedFrame']),
     );
   }
 
+  /// Decodes a blink event sent with compact encoding. The layout is
+  /// documented in FaceResultEncoder.java.
+  factory BlinkEvent.fromPacked(Uint8List bytes) {
+    final data = ByteData.sublistView(bytes);
+    if (data.lengthInBytes < _packedHeaderSize) {
+      throw const FormatException('Packed blink event too short');
+    }
+    final version = data.getInt32(0, Endian.little);
+    if (version != _packedVersion) {
+      throw FormatException('Unsupported packed blink event version $version');
+    }
+    final trackingId = data.getInt32(16, Endian.little);
+    final jpegLength = data.getInt32(20, Endian.little);
+    final trackIdLength = data.getInt32(32, Endian.little);
+    final jpegOffset = _packedHeaderSize + trackIdLength;
+    if (data.lengthInBytes < jpegOffset + jpegLength) {
+      throw const FormatException('Packed blink event truncated');
+    }
+    return BlinkEvent(
+      eye: _packedEyes[data.getInt32(4, Endian.little)] ?? BlinkEye.both,
+      leftBlinkCount: data.getInt32(8, Endian.little),
+      rightBlinkCount: data.getInt32(12, Endian.little),
+      trackingId: trackingId >= 0 ? trackingId : null,
+      trackId: trackIdLength > 0
+          ? utf8.decode(
+              Uint8List.sublistView(bytes, _packedHeaderSize, jpegOffset))
+          : null,
+      timestamp: data.getInt64(24, Endian.little),
+      capturedFrameBytes: jpegLength > 0
+          ? Uint8List.sublistView(bytes, jpegOffset, jpegOffset + jpegLength)
+          : null,
+    );
+  }
+
+  static const int _packedVersion = 2;
+  static const int _packedHeaderSize = 36;
+  static const Map<int, BlinkEye> _packedEyes = {
+    0: BlinkEye.left,
+    1: BlinkEye.right,
+    2: BlinkEye.both,
+  };
+
+  static Uint8List? _parseCapturedFrame(dynamic frame) {
+    // Android sends raw JPEG bytes, iOS a Base64 string
+    if (frame is Uint8List) {
+      return frame;
+    } else if (frame is String) {
+      return base64Decode(frame);
+    }
+    return null;
+  }
+
   static BlinkEye _parseBlinkEye(String? eye) {
     switch (eye) {
       case 'left':
@@ -69,12 +149,14 @@ class BlinkEvent {
       'leftBlinkCount': leftBlinkCount,
       'rightBlinkCount': rightBlinkCount,
       if (trackingId != null) 'trackingId': trackingId,
+      if (trackId != null) 'trackId': trackId,
       if (timestamp != null) 'timestamp': timestamp,
-      if (capturedFrame != null) 'capturedFrame': capturedFrame,
+      if (_capturedFrameBytes != null || _capturedFrame != null)
+        'capturedFrame': capturedFrameBytes,
     };
   }
 
   @override
   String toString() =>
-      'BlinkEvent(eye: ${eye.name}, leftCount: $leftBlinkCount, rightCount: $rightBlinkCount, trackingId: $trackingId)';
+      'BlinkEvent(eye: ${eye.name}, leftCount: $leftBlinkCount, rightCount: $rightBlinkCount, trackingId: $trackingId, trackId: $trackId)';
 }
@@ -18,6 +18,82 @@ class FaceDetectionConfig {
   /// Maximum width for captured images in pixels.
   final int maxImageWidth;
 
+  /// Longest side in pixels of the image fed to the detector (0 = full
+  /// capture resolution). Results are still reported in full-frame
+  /// coordinates. 320-480 is usually enough and much cheaper at 720p/1080p.
+  final int detectionMaxDimension;
+
+  /// Target detections per second. When greater than 0 the detection rate is
+  /// scheduled adaptively and [frameSkipCount] is ignored.
+  final double targetDetectionsPerSecond;
+
+  /// Detections per second once no face has been seen for [idleTimeoutMs].
+  final double idleDetectionsPerSecond;
+
+  /// Time without faces before falling back to [idleDetectionsPerSecond].
+  final int idleTimeoutMs;
+
+  /// Maximum fraction of wall time the detector may be busy (0 = no limit).
+  final double maxDetectionLoad;
+
+  /// Emit predicted face positions (flagged [Face.predicted]) for frames that
+  /// are not sent to the detector, giving results at capture frame rate.
+  final bool interpolateResults;
+
+  /// Stop predicting a face this long after its last real detection.
+  final int maxPredictionMs;
+
+  /// Send face results and blink events as packed binary buffers instead of
+  /// nested maps. Cheaper to produce and transfer; decoded lazily in Dart.
+  final bool compactEncoding;
+
+  /// Detect facial landmarks (eyes, nose, mouth); [Face.landmarks] is only
+  /// filled in when enabled. Turn it off to save inference time when only face
+  /// boxes are needed. Eye open and smiling probabilities are classified while
+  /// a blink listener is attached.
+  final bool enableLandmarks;
+
+  /// Only emit face results that changed beyond [minBoundsChangePx],
+  /// [minHeadPoseChangeDegrees] or [minProbabilityChange], plus a keyframe
+  /// every [keyframeIntervalMs] and immediately when faces appear or
+  /// disappear. Cuts channel traffic and rebuilds while faces hold still.
+  /// Android only.
+  final bool filterInsignificantChanges;
+
+  /// Bounds edge movement in pixels that counts as a change.
+  final double minBoundsChangePx;
+
+  /// Head yaw/pitch/roll change in degrees that counts as a change.
+  final double minHeadPoseChangeDegrees;
+
+  /// Eye open / smiling probability change that counts as a change.
+  final double minProbabilityChange;
+
+  /// Emit a result at least this often while filtering (0 = never force).
+  final int keyframeIntervalMs;
+
+  /// Lower the detection rate and resolution while the device is hot or in
+  /// battery saver mode, and restore them once conditions recover. The level
+  /// in effect is reported as [FaceDetectionResult.throttleLevel]. Android
+  /// only.
+  final bool thermalThrottling;
+
+  /// Push face results to [FaceDetectionExtension.onFaceDetected]. Turn off
+  /// for screens that poll [FaceDetectionExtension.getLatestFaces] instead;
+  /// blink events are still pushed. Android only.
+  final bool emitFaceEvents;
+
+  /// Load the detector model and run a synthetic frame before the track
+  /// starts delivering frames, so the first live result is not delayed by the
+  /// cold start. `enableFaceDetection` then completes after the warm-up and
+  /// returns its duration. Android only.
+  final bool warmUp;
+
+  /// Attach the processor stats (see `getFaceDetectionStats()`) to every face
+  /// result as [FaceDetectionResult.stats]. Only with map events, not with
+  /// [compactEncoding].
+  final bool includeStats;
+
   const FaceDetectionConfig({
     this.frameSkipCount = 3,
     this.blinkThreshold = 0.3,
@@ -25,6 +101,24 @@ class FaceDetectionConfig {
     this.cropToFace = true,
     this.imageQuality = 0.7,
     this.maxImageWidth = 480,
+    this.detectionMaxDimension = 0,
+    this.targetDetectionsPerSecond = 0,
+    this.idleDetectionsPerSecond = 2,
+    this.idleTimeoutMs = 2000,
+    this.maxDetectionLoad = 0.5,
+    this.interpolateResults = false,
+    this.maxPredictionMs = 500,
+    this.compactEncoding = false,
+    this.enableLandmarks = true,
+    this.filterInsignificantChanges = false,
+    this.minBoundsChangePx = 4,
+    this.minHeadPoseChangeDegrees = 3,
+    this.minProbabilityChange = 0.1,
+    this.keyframeIntervalMs = 1000,
+    this.thermalThrottling = true,
+    this.emitFaceEvents = true,
+    this.warmUp = false,
+    this.includeStats = false,
   });
 
   /// Converts the config to a map for platform channel communication.
@@ -36,6 +130,24 @@ class FaceDetectionConfig {
       'cropToFace': cropToFace,
       'imageQuality': imageQuality,
       'maxImageWidth': maxImageWidth,
+      'detectionMaxDimension': detectionMaxDimension,
+      'targetDetectionsPerSecond': targetDetectionsPerSecond,
+      'idleDetectionsPerSecond': idleDetectionsPerSecond,
+      'idleTimeoutMs': idleTimeoutMs,
+      'maxDetectionLoad': maxDetectionLoad,
+      'interpolateResults': interpolateResults,
+      'maxPredictionMs': maxPredictionMs,
+      'compactEncoding': compactEncoding,
+      'enableLandmarks': enableLandmarks,
+      'filterInsignificantChanges': filterInsignificantChanges,
+      'minBoundsChangePx': minBoundsChangePx,
+      'minHeadPoseChangeDegrees': minHeadPoseChangeDegrees,
+      'minProbabilityChange': minProbabilityChange,
+      'keyframeIntervalMs': keyframeIntervalMs,
+      'thermalThrottling': thermalThrottling,
+      'emitFaceEvents': emitFaceEvents,
+      'warmUp': warmUp,
+      'includeStats': includeStats,
     };
   }
 
@@ -48,6 +160,29 @@ class FaceDetectionConfig {
       cropToFace: map['cropToFace'] as bool? ?? true,
       imageQuality: (map['imageQuality'] as num?)?.toDouble() ?? 0.7,
       maxImageWidth: map['maxImageWidth'] as int? ?? 480,
+      detectionMaxDimension: map['detectionMaxDimension'] as int? ?? 0,
+      targetDetectionsPerSecond:
+          (map['targetDetectionsPerSecond'] as num?)?.toDouble() ?? 0,
+      idleDetectionsPerSecond:
+          (map['idleDetectionsPerSecond'] as num?)?.toDouble() ?? 2,
+      idleTimeoutMs: map['idleTimeoutMs'] as int? ?? 2000,
+      maxDetectionLoad: (map['maxDetectionLoad'] as num?)?.toDouble() ?? 0.5,
+      interpolateResults: map['interpolateResults'] as bool? ?? false,
+      maxPredictionMs: map['maxPredictionMs'] as int? ?? 500,
+      compactEncoding: map['compactEncoding'] as bool? ?? false,
+      enableLandmarks: map['enableLandmarks'] as bool? ?? true,
+      filterInsignificantChanges:
+          map['filterInsignificantChanges'] as bool? ?? false,
+      minBoundsChangePx: (map['minBoundsChangePx'] as num?)?.toDouble() ?? 4,
+      minHeadPoseChangeDegrees:
+          (map['minHeadPoseChangeDegrees'] as num?)?.toDouble() ?? 3,
+      minProbabilityChange:
+          (map['minProbabilityChange'] as num?)?.toDouble() ?? 0.1,
+      keyframeIntervalMs: map['keyframeIntervalMs'] as int? ?? 1000,
+      thermalThrottling: map['thermalThrottling'] as bool? ?? true,
+      emitFaceEvents: map['emitFaceEvents'] as bool? ?? true,
+      warmUp: map['warmUp'] as bool? ?? false,
+      includeStats: map['includeStats'] as bool? ?? false,
     );
   }
 
@@ -58,6 +193,24 @@ class FaceDetectionConfig {
     bool? cropToFace,
     double? imageQuality,
     int? maxImageWidth,
+    int? detectionMaxDimension,
+    double? targetDetectionsPerSecond,
+    double? idleDetectionsPerSecond,
+    int? idleTimeoutMs,
+    double? maxDetectionLoad,
+    bool? interpolateResults,
+    int? maxPredictionMs,
+    bool? compactEncoding,
+    bool? enableLandmarks,
+    bool? filterInsignificantChanges,
+    double? minBoundsChangePx,
+    double? minHeadPoseChangeDegrees,
+    double? minProbabilityChange,
+    int? keyframeIntervalMs,
+    bool? thermalThrottling,
+    bool? emitFaceEvents,
+    bool? warmUp,
+    bool? includeStats,
   }) {
     return FaceDetectionConfig(
       frameSkipCount: frameSkipCount ?? this.frameSkipCount,
@@ -66,6 +219,29 @@ class FaceDetectionConfig {
       cropToFace: cropToFace ?? this.cropToFace,
       imageQuality: imageQuality ?? this.imageQuality,
       maxImageWidth: maxImageWidth ?? this.maxImageWidth,
+      detectionMaxDimension:
+          detectionMaxDimension ?? this.detectionMaxDimension,
+      targetDetectionsPerSecond:
+          targetDetectionsPerSecond ?? this.targetDetectionsPerSecond,
+      idleDetectionsPerSecond:
+          idleDetectionsPerSecond ?? this.idleDetectionsPerSecond,
+      idleTimeoutMs: idleTimeoutMs ?? this.idleTimeoutMs,
+      maxDetectionLoad: maxDetectionLoad ?? this.maxDetectionLoad,
+      interpolateResults: interpolateResults ?? this.interpolateResults,
+      maxPredictionMs: maxPredictionMs ?? this.maxPredictionMs,
+      compactEncoding: compactEncoding ?? this.compactEncoding,
+      enableLandmarks: enableLandmarks ?? this.enableLandmarks,
+      filterInsignificantChanges:
+          filterInsignificantChanges ?? this.filterInsignificantChanges,
+      minBoundsChangePx: minBoundsChangePx ?? this.minBoundsChangePx,
+      minHeadPoseChangeDegrees:
+          minHeadPoseChangeDegrees ?? this.minHeadPoseChangeDegrees,
+      minProbabilityChange: minProbabilityChange ?? this.minProbabilityChange,
+      keyframeIntervalMs: keyframeIntervalMs ?? this.keyframeIntervalMs,
+      thermalThrottling: thermalThrottling ?? this.thermalThrottling,
+      emitFaceEvents: emitFaceEvents ?? this.emitFaceEvents,
+      warmUp: warmUp ?? this.warmUp,
+      includeStats: includeStats ?? this.includeStats,
     );
   }
 }
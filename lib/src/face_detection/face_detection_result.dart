@@ -1,3 +1,6 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
 import 'face_landmarks.dart';
 import 'head_pose.dart';
 
@@ -68,12 +71,26 @@ class Face {
   /// Probability that the face is smiling (0.0-1.0).
   final double? smilingProbability;
 
+  /// Probability that the left eye is open (0.0-1.0). Present while a blink
+  /// listener is attached, also when landmarks are disabled.
+  final double? leftEyeOpenProbability;
+
+  /// Probability that the right eye is open (0.0-1.0).
+  final double? rightEyeOpenProbability;
+
+  /// Whether the position was extrapolated between detections rather than
+  /// detected. Probabilities are carried over from the last detection.
+  final bool predicted;
+
   const Face({
     required this.bounds,
     this.trackingId,
     this.headPose,
     this.landmarks,
     this.smilingProbability,
+    this.leftEyeOpenProbability,
+    this.rightEyeOpenProbability,
+    this.predicted = false,
   });
 
   factory Face.fromMap(Map<String, dynamic> map) {
@@ -90,6 +107,11 @@ class Face {
               Map<String, dynamic>.from(map['landmarks'] as Map))
           : null,
       smilingProbability: (map['smilingProbability'] as num?)?.toDouble(),
+      leftEyeOpenProbability:
+          (map['leftEyeOpenProbability'] as num?)?.toDouble(),
+      rightEyeOpenProbability:
+          (map['rightEyeOpenProbability'] as num?)?.toDouble(),
+      predicted: map['predicted'] as bool? ?? false,
     );
   }
 
@@ -100,6 +122,11 @@ class Face {
       if (headPose != null) 'headPose': headPose!.toMap(),
       if (landmarks != null) 'landmarks': landmarks!.toMap(),
       if (smilingProbability != null) 'smilingProbability': smilingProbability,
+      if (leftEyeOpenProbability != null)
+        'leftEyeOpenProbability': leftEyeOpenProbability,
+      if (rightEyeOpenProbability != null)
+        'rightEyeOpenProbability': rightEyeOpenProbability,
+      if (predicted) 'predicted': predicted,
     };
   }
 
@@ -116,17 +143,49 @@ class FaceDetectionResult {
   /// Timestamp of the frame in nanoseconds.
   final int? timestamp;
 
+  /// Id of the track the faces were detected in.
+  final String? trackId;
+
   /// Width of the frame in pixels.
   final int? frameWidth;
 
   /// Height of the frame in pixels.
   final int? frameHeight;
 
+  /// Smoothed number of completed detections per second.
+  final double? detectionRate;
+
+  /// Smoothed detector latency in milliseconds.
+  final double? detectionLatencyMs;
+
+  /// Whether adaptive scheduling has backed off to the idle rate.
+  final bool idle;
+
+  /// Whether all faces were extrapolated between detections (see
+  /// [FaceDetectionConfig.interpolateResults]). A real result for an earlier
+  /// frame may still arrive after a predicted one.
+  final bool predicted;
+
+  /// Device condition throttle level: 0 = none, up to 3 when the device is
+  /// critically hot. See [FaceDetectionConfig.thermalThrottling].
+  final int throttleLevel;
+
+  /// Processor stats when [FaceDetectionConfig.includeStats] is enabled, in
+  /// the same format as `getFaceDetectionStats()`.
+  final Map<String, dynamic>? stats;
+
   const FaceDetectionResult({
     required this.faces,
     this.timestamp,
+    this.trackId,
     this.frameWidth,
     this.frameHeight,
+    this.detectionRate,
+    this.detectionLatencyMs,
+    this.idle = false,
+    this.predicted = false,
+    this.throttleLevel = 0,
+    this.stats,
   });
 
   /// Whether any faces were detected.
@@ -135,6 +194,12 @@ class FaceDetectionResult {
   /// Number of detected faces.
   int get faceCount => faces.length;
 
+  /// Creates a result from the packed binary layout sent when
+  /// [FaceDetectionConfig.compactEncoding] is enabled. Faces are decoded
+  /// lazily on first access to [faces].
+  factory FaceDetectionResult.fromPacked(Uint8List data) =>
+      _PackedFaceDetectionResult.decode(data);
+
   factory FaceDetectionResult.fromMap(Map<String, dynamic> map) {
     final facesList = map['faces'] as List<dynamic>?;
     return FaceDetectionResult(
@@ -143,8 +208,17 @@ class FaceDetectionResult {
               .toList() ??
           [],
       timestamp: map['timestamp'] as int?,
+      trackId: map['trackId'] as String?,
       frameWidth: map['frameWidth'] as int?,
       frameHeight: map['frameHeight'] as int?,
+      detectionRate: (map['detectionRate'] as num?)?.toDouble(),
+      detectionLatencyMs: (map['detectionLatencyMs'] as num?)?.toDouble(),
+      idle: map['idle'] as bool? ?? false,
+      predicted: map['predicted'] as bool? ?? false,
+      throttleLevel: map['throttleLevel'] as int? ?? 0,
+      stats: map['stats'] != null
+          ? Map<String, dynamic>.from(map['stats'] as Map)
+          : null,
     );
   }
 
@@ -152,12 +226,219 @@ class FaceDetectionResult {
     return {
       'faces': faces.map((f) => f.toMap()).toList(),
       if (timestamp != null) 'timestamp': timestamp,
+      if (trackId != null) 'trackId': trackId,
       if (frameWidth != null) 'frameWidth': frameWidth,
       if (frameHeight != null) 'frameHeight': frameHeight,
+      if (detectionRate != null) 'detectionRate': detectionRate,
+      if (detectionLatencyMs != null) 'detectionLatencyMs': detectionLatencyMs,
+      'idle': idle,
+      if (predicted) 'predicted': predicted,
+      if (throttleLevel != 0) 'throttleLevel': throttleLevel,
+      if (stats != null) 'stats': stats,
     };
   }
 
   @override
   String toString() =>
-      'FaceDetectionResult(faceCount: $faceCount, frameSize: ${frameWidth}x$frameHeight)';
+      'FaceDetectionResult(trackId: $trackId, faceCount: $faceCount, frameSize: ${frameWidth}x$frameHeight)';
+}
+
+/// The latest face result of a track as returned by `getLatestFaces()`.
+class LatestFaceDetection {
+  /// Sequence number of the result; pass it as `sinceSeq` on the next poll.
+  final int seq;
+
+  /// Time in milliseconds since the result was produced.
+  final double ageMs;
+
+  final FaceDetectionResult result;
+
+  const LatestFaceDetection({
+    required this.seq,
+    required this.ageMs,
+    required this.result,
+  });
+
+  factory LatestFaceDetection.fromMap(Map<String, dynamic> map) {
+    final result = map['result'];
+    return LatestFaceDetection(
+      seq: map['seq'] as int,
+      ageMs: (map['ageMs'] as num?)?.toDouble() ?? 0,
+      result: result is Uint8List
+          ? FaceDetectionResult.fromPacked(result)
+          : FaceDetectionResult.fromMap(
+              Map<String, dynamic>.from(result as Map),
+            ),
+    );
+  }
+
+  @override
+  String toString() => 'LatestFaceDetection(seq: $seq, ageMs: $ageMs)';
+}
+
+/// [FaceDetectionResult] backed by the packed layout written by the native
+/// FaceResultEncoder. Keep the offsets below in sync with it.
+class _PackedFaceDetectionResult extends FaceDetectionResult {
+  static const int _version = 2;
+  static const int _headerSize = 52;
+  static const int _flagPredicted = 1;
+  static const int _flagIdle = 1 << 1;
+  static const int _landmarkCount = 6;
+
+  final ByteData _data;
+  final int _faceCount;
+  final int _recordSize;
+  final double _blinkThreshold;
+  List<Face>? _faces;
+
+  _PackedFaceDetectionResult._(
+    this._data,
+    this._faceCount,
+    this._recordSize,
+    this._blinkThreshold, {
+    required int timestamp,
+    required String? trackId,
+    required int frameWidth,
+    required int frameHeight,
+    required double detectionRate,
+    required double detectionLatencyMs,
+    required bool idle,
+    required bool predicted,
+    required int throttleLevel,
+  }) : super(
+          faces: const [],
+          timestamp: timestamp,
+          trackId: trackId,
+          frameWidth: frameWidth,
+          frameHeight: frameHeight,
+          detectionRate: detectionRate,
+          detectionLatencyMs: detectionLatencyMs,
+          idle: idle,
+          predicted: predicted,
+          throttleLevel: throttleLevel,
+        );
+
+  factory _PackedFaceDetectionResult.decode(Uint8List bytes) {
+    final data = ByteData.sublistView(bytes);
+    if (data.lengthInBytes < _headerSize) {
+      throw const FormatException('Packed face result too short');
+    }
+    final version = data.getInt32(0, Endian.little);
+    if (version != _version) {
+      throw FormatException('Unsupported packed face result version $version');
+    }
+    final faceCount = data.getInt32(4, Endian.little);
+    final flags = data.getInt32(24, Endian.little);
+    final recordSize = data.getInt32(40, Endian.little);
+    final trackIdOffset = _headerSize + faceCount * recordSize;
+    final trackIdLength = data.getInt32(48, Endian.little);
+    if (data.lengthInBytes < trackIdOffset + trackIdLength) {
+      throw const FormatException('Packed face result truncated');
+    }
+    return _PackedFaceDetectionResult._(
+      data,
+      faceCount,
+      recordSize,
+      data.getFloat32(36, Endian.little),
+      timestamp: data.getInt64(8, Endian.little),
+      trackId: trackIdLength > 0
+          ? utf8.decode(Uint8List.sublistView(
+              bytes, trackIdOffset, trackIdOffset + trackIdLength))
+          : null,
+      frameWidth: data.getInt32(16, Endian.little),
+      frameHeight: data.getInt32(20, Endian.little),
+      detectionRate: data.getFloat32(28, Endian.little),
+      detectionLatencyMs: data.getFloat32(32, Endian.little),
+      idle: flags & _flagIdle != 0,
+      predicted: flags & _flagPredicted != 0,
+      throttleLevel: data.getInt32(44, Endian.little),
+    );
+  }
+
+  @override
+  List<Face> get faces => _faces ??= List<Face>.generate(
+        _faceCount,
+        (i) => _decodeFace(_headerSize + i * _recordSize),
+        growable: false,
+      );
+
+  @override
+  int get faceCount => _faceCount;
+
+  @override
+  bool get hasFaces => _faceCount > 0;
+
+  double _float(int offset) => _data.getFloat32(offset, Endian.little);
+
+  double? _optional(int offset) {
+    final value = _float(offset);
+    return value.isNaN ? null : value;
+  }
+
+  Face _decodeFace(int offset) {
+    final trackingId = _data.getInt32(offset, Endian.little);
+    final flags = _data.getInt32(offset + 4, Endian.little);
+
+    final left = _float(offset + 8).round();
+    final top = _float(offset + 12).round();
+    final right = _float(offset + 16).round();
+    final bottom = _float(offset + 20).round();
+
+    final landmarksOffset = offset + 36;
+    final probabilitiesOffset = landmarksOffset + _landmarkCount * 8;
+    final leftEyeOpen = _optional(probabilitiesOffset);
+    final rightEyeOpen = _optional(probabilitiesOffset + 4);
+    final smiling = _optional(probabilitiesOffset + 8);
+
+    bool hasLandmark(int index) => !_float(landmarksOffset + index * 8).isNaN;
+    double landmarkX(int index) => _float(landmarksOffset + index * 8);
+    double landmarkY(int index) => _float(landmarksOffset + index * 8 + 4);
+
+    EyeState? eye(int index, double? openProbability) => hasLandmark(index)
+        ? EyeState(
+            x: landmarkX(index),
+            y: landmarkY(index),
+            openProbability: openProbability,
+            isOpen: openProbability == null ||
+                openProbability > _blinkThreshold,
+          )
+        : null;
+
+    return Face(
+      bounds: BoundingBox(
+        left: left,
+        top: top,
+        width: right - left,
+        height: bottom - top,
+      ),
+      trackingId: trackingId >= 0 ? trackingId : null,
+      headPose: HeadPose(
+        yaw: _float(offset + 24),
+        pitch: _float(offset + 28),
+        roll: _float(offset + 32),
+      ),
+      landmarks: FaceLandmarks(
+        leftEye: eye(0, leftEyeOpen),
+        rightEye: eye(1, rightEyeOpen),
+        nose: hasLandmark(2)
+            ? PointLandmark(x: landmarkX(2), y: landmarkY(2))
+            : null,
+        mouth: hasLandmark(3) && hasLandmark(4)
+            ? MouthLandmark(
+                leftX: landmarkX(3),
+                leftY: landmarkY(3),
+                rightX: landmarkX(4),
+                rightY: landmarkY(4),
+                bottomX: hasLandmark(5) ? landmarkX(5) : null,
+                bottomY: hasLandmark(5) ? landmarkY(5) : null,
+                smilingProbability: smiling,
+              )
+            : null,
+      ),
+      smilingProbability: smiling,
+      leftEyeOpenProbability: leftEyeOpen,
+      rightEyeOpenProbability: rightEyeOpen,
+      predicted: flags & _flagPredicted != 0,
+    );
+  }
 }
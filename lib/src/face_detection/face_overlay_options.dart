@@ -0,0 +1,39 @@
+/// What a native face overlay draws (Android only).
+///
+/// See `MediaStreamTrackNative.setFaceDetectionOverlay`.
+class FaceOverlayOptions {
+  /// Draw face bounding boxes.
+  final bool boxes;
+
+  /// Draw eye, nose and mouth landmarks. Requires
+  /// `FaceDetectionConfig.enableLandmarks`.
+  final bool landmarks;
+
+  /// Draw predicted results in a different colour and a head pose line.
+  final bool debug;
+
+  /// Also draw into the frames themselves: for a local track the video sent to
+  /// peers and recorders, for a remote track every renderer and recording of
+  /// it. Off by default, so only the given renderer shows the overlay.
+  final bool burnIn;
+
+  const FaceOverlayOptions({
+    this.boxes = true,
+    this.landmarks = false,
+    this.debug = false,
+    this.burnIn = false,
+  });
+
+  /// Options that turn the overlay off.
+  static const FaceOverlayOptions none =
+      FaceOverlayOptions(boxes: false, landmarks: false, debug: false);
+
+  Map<String, dynamic> toMap() {
+    return {
+      'boxes': boxes,
+      'landmarks': landmarks,
+      'debug': debug,
+      'burnIn': burnIn,
+    };
+  }
+}
@@ -1,4 +1,5 @@
 import 'dart:async';
+import 'dart:typed_data';
 
 import 'package:flutter/services.dart';
 
@@ -31,15 +32,19 @@ class FaceDetectionEventChannel {
             .receiveBroadcastStream()
             .listen(
           (dynamic event) {
-            if (event is Map) {
-              try {
+            try {
+              if (event is Uint8List) {
+                // Compact encoding
+                _faceDetectionController
+                    ?.add(FaceDetectionResult.fromPacked(event));
+              } else if (event is Map) {
                 final result = FaceDetectionResult.fromMap(
                   Map<String, dynamic>.from(event),
                 );
                 _faceDetectionController?.add(result);
-              } catch (e) {
-                _faceDetectionController?.addError(e);
               }
+            } catch (e) {
+              _faceDetectionController?.addError(e);
             }
           },
           onError: (dynamic error) {
@@ -48,8 +53,9 @@ class FaceDetectionEventChannel {
         );
       },
       onCancel: () {
-        // Keep the subscription alive - don't cancel on individual listener cancel
-        // The native side manages the lifecycle
+        // Last listener gone: stop the native stream so no events are built for it
+        _faceEventSubscription?.cancel();
+        _faceEventSubscription = null;
       },
     );
   }
@@ -61,15 +67,18 @@ class FaceDetectionEventChannel {
             .receiveBroadcastStream()
             .listen(
           (dynamic event) {
-            if (event is Map) {
-              try {
+            try {
+              if (event is Uint8List) {
+                // Compact encoding
+                _blinkEventController?.add(BlinkEvent.fromPacked(event));
+              } else if (event is Map) {
                 final blinkEvent = BlinkEvent.fromMap(
                   Map<String, dynamic>.from(event),
                 );
                 _blinkEventController?.add(blinkEvent);
-              } catch (e) {
-                _blinkEventController?.addError(e);
               }
+            } catch (e) {
+              _blinkEventController?.addError(e);
             }
           },
           onError: (dynamic error) {
@@ -78,7 +87,10 @@ class FaceDetectionEventChannel {
         );
       },
       onCancel: () {
-        // Keep the subscription alive
+        // Last listener gone: stop the native stream, which also turns off
+        // classification in the detector when nothing else needs it
+        _blinkEventSubscription?.cancel();
+        _blinkEventSubscription = null;
       },
     );
   }
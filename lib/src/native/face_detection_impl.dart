@@ -3,33 +3,74 @@ import 'dart:async';
 import '../face_detection/blink_event.dart';
 import '../face_detection/face_detection_config.dart';
 import '../face_detection/face_detection_result.dart';
+import '../face_detection/face_overlay_options.dart';
 import 'face_detection_event_channel.dart';
 import 'media_stream_track_impl.dart';
+import 'rtc_video_renderer_impl.dart';
 import 'utils.dart';
 
+/// Plugin-wide settings of the face detection service shared by all tracks.
+///
+/// Android only; iOS and macOS ignore these settings.
+class FaceDetectionService {
+  FaceDetectionService._();
+
+  /// Configures the shared detection service.
+  ///
+  /// [maxConcurrentDetections] - Number of detector instances, and so of frames
+  /// in detection at the same time, across all tracks (default 2).
+  ///
+  /// [maxDetectionsPerSecond] - Global cap on detections per second over all
+  /// tracks (0 = unlimited). Tracks are served round-robin under the cap.
+  static Future<void> configure({
+    int? maxConcurrentDetections,
+    double? maxDetectionsPerSecond,
+  }) async {
+    await WebRTC.invokeMethod('configureFaceDetectionService', {
+      if (maxConcurrentDetections != null)
+        'maxConcurrentDetections': maxConcurrentDetections,
+      if (maxDetectionsPerSecond != null)
+        'maxDetectionsPerSecond': maxDetectionsPerSecond,
+    });
+  }
+}
+
 /// Extension on MediaStreamTrackNative to add face detection capabilities.
 extension FaceDetectionExtension on MediaStreamTrackNative {
   /// Enables face detection on this video track.
   ///
+  /// On Android this works for local tracks and for remote tracks received from
+  /// a peer connection. Remote frames are analyzed off the decoder thread and
+  /// dropped while the previous frame is still being analyzed.
+  ///
   /// [config] - Optional configuration for face detection.
   ///
+  /// Returns the detector warm-up time in milliseconds when
+  /// [FaceDetectionConfig.warmUp] is enabled, otherwise null.
+  ///
   /// Throws an exception if the track is not a video track or if face detection
   /// is already enabled.
-  Future<void> enableFaceDetection({FaceDetectionConfig? config}) async {
+  Future<double?> enableFaceDetection({FaceDetectionConfig? config}) async {
     if (kind != 'video') {
       throw Exception('Face detection can only be enabled on video tracks');
     }
 
-    await WebRTC.invokeMethod('enableFaceDetection', {
+    final result = await WebRTC.invokeMethod('enableFaceDetection', {
       'trackId': id,
+      'peerConnectionId': peerConnectionId,
       'config': (config ?? const FaceDetectionConfig()).toMap(),
     });
+    if (result is Map) {
+      return (result['warmUpTimeMs'] as num?)?.toDouble();
+    }
+    return null;
   }
 
   /// Disables face detection on this video track.
   Future<void> disableFaceDetection() async {
     await WebRTC.invokeMethod('disableFaceDetection', {
       'trackId': id,
+      'peerConnectionId': peerConnectionId,
     });
   }
 
@@ -37,10 +78,72 @@ extension FaceDetectionExtension on MediaStreamTrackNative {
   Future<bool> isFaceDetectionEnabled() async {
     final result = await WebRTC.invokeMethod('isFaceDetectionEnabled', {
       'trackId': id,
+      'peerConnectionId': peerConnectionId,
     });
     return result as bool? ?? false;
   }
 
+  /// Returns face detection stats for this track (Android only, empty on iOS
+  /// and macOS).
+  ///
+  /// Includes per-stage latency histograms (`stages`: convert, queue, detect,
+  /// map, emit, encode, each with count, meanMs, maxMs, p50Ms, p90Ms, p99Ms and
+  /// `buckets` over `bucketBoundsMs`), frame counters (framesSeen,
+  /// framesSkipped, framesDroppedBusy, detectionsCompleted, detectionsFailed),
+  /// scheduler state, `bufferPool`, `delivery` (faces delivered and
+  /// coalesced, blinks delivered and dropped, blink queue depth), for local
+  /// tracks `analyzer` (frames delivered off the capture thread and dropped
+  /// while busy) and shared `service` stats.
+  Future<Map<String, dynamic>> getFaceDetectionStats() async {
+    final result = await WebRTC.invokeMethod('getFaceDetectionStats', {
+      'trackId': id,
+      'peerConnectionId': peerConnectionId,
+    });
+    return Map<String, dynamic>.from(result as Map);
+  }
+
+  /// Returns the latest face result of this track if it is newer than
+  /// [sinceSeq], otherwise null (Android only, always null on iOS and macOS).
+  ///
+  /// Lets screens that only need face positions at refresh time poll, e.g.
+  /// once per frame, instead of listening to [onFaceDetected]. Combine with
+  /// [FaceDetectionConfig.emitFaceEvents] set to false to stop pushing
+  /// results altogether. Pass the `seq` of the previous result as [sinceSeq].
+  Future<LatestFaceDetection?> getLatestFaces({int sinceSeq = 0}) async {
+    final result = await WebRTC.invokeMethod('getLatestFaces', {
+      'trackId': id,
+      'peerConnectionId': peerConnectionId,
+      'sinceSeq': sinceSeq,
+    });
+    if (result == null) {
+      return null;
+    }
+    return LatestFaceDetection.fromMap(
+      Map<String, dynamic>.from(result as Map),
+    );
+  }
+
+  /// Draws this track's face detection results natively (Android only, a no-op
+  /// on iOS and macOS).
+  ///
+  /// With a [renderer] the overlay is drawn over that renderer's video on every
+  /// rendered frame, using the latest (and with
+  /// [FaceDetectionConfig.interpolateResults] predicted) result, without any
+  /// per-frame platform channel traffic. The encoded stream is not affected
+  /// unless [FaceOverlayOptions.burnIn] is set. Pass [FaceOverlayOptions.none]
+  /// to remove the overlay.
+  Future<void> setFaceDetectionOverlay({
+    RTCVideoRenderer? renderer,
+    FaceOverlayOptions options = const FaceOverlayOptions(),
+  }) async {
+    await WebRTC.invokeMethod('setFaceDetectionOverlay', {
+      'trackId': id,
+      'peerConnectionId': peerConnectionId,
+      if (renderer?.textureId != null) 'textureId': renderer!.textureId,
+      'options': options.toMap(),
+    });
+  }
+
   /// Stream of face detection results.
   ///
   /// This stream emits [FaceDetectionResult] objects containing information
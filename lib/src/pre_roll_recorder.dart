@@ -0,0 +1,148 @@
+import 'dart:math';
+
+import 'package:webrtc_interface/webrtc_interface.dart';
+
+import 'native/media_stream_track_impl.dart';
+import 'native/utils.dart';
+
+/// What a [PreRollRecorder] gives up when its buffer reaches
+/// [PreRollOptions.maxBytes].
+enum PreRollEviction {
+  /// Drop the oldest second(s) of video; the saved pre-roll gets shorter.
+  dropOldest,
+
+  /// Also lower the encoder bitrate until [PreRollOptions.duration] fits.
+  reduceBitrate,
+}
+
+/// Configuration of a [PreRollRecorder].
+class PreRollOptions {
+  /// Length of the pre-roll kept in memory.
+  final Duration duration;
+
+  /// Memory cap for the encoded video and audio. Exceeded by at most one key
+  /// frame interval of video.
+  final int maxBytes;
+
+  final PreRollEviction eviction;
+
+  /// Initial video bitrate in bits per second.
+  final int bitrate;
+
+  /// Lowest bitrate [PreRollEviction.reduceBitrate] goes down to.
+  final int minBitrate;
+
+  /// Key frame interval. A saved clip starts at a key frame, so this is how
+  /// precisely [duration] is honoured.
+  final Duration keyFrameInterval;
+
+  /// Longest side in pixels of the encoded video.
+  final int maxDimension;
+
+  const PreRollOptions({
+    this.duration = const Duration(seconds: 10),
+    this.maxBytes = 8 * 1024 * 1024,
+    this.eviction = PreRollEviction.dropOldest,
+    this.bitrate = 2000000,
+    this.minBitrate = 300000,
+    this.keyFrameInterval = const Duration(seconds: 1),
+    this.maxDimension = 1280,
+  });
+
+  Map<String, dynamic> toMap() => {
+        'durationMs': duration.inMilliseconds,
+        'maxBytes': maxBytes,
+        'eviction': eviction.name,
+        'bitrate': bitrate,
+        'minBitrate': minBitrate,
+        'keyFrameIntervalMs': keyFrameInterval.inMilliseconds,
+        'maxDimension': maxDimension,
+      };
+}
+
+/// An MP4 file written by [PreRollRecorder.save].
+class PreRollClip {
+  final String path;
+  final Duration duration;
+  final int bytes;
+  final bool hasAudio;
+
+  const PreRollClip({
+    required this.path,
+    required this.duration,
+    required this.bytes,
+    required this.hasAudio,
+  });
+
+  factory PreRollClip.fromMap(Map<dynamic, dynamic> map) => PreRollClip(
+        path: map['path'] as String,
+        duration: Duration(milliseconds: (map['durationMs'] as num).toInt()),
+        bytes: (map['bytes'] as num).toInt(),
+        hasAudio: map['hasAudio'] == true,
+      );
+}
+
+/// Keeps the last seconds of a video track, and optionally audio, encoded in
+/// memory so a clip that began before the request can be saved (Android only).
+///
+/// ```dart
+/// final preRoll = PreRollRecorder();
+/// await preRoll.start(videoTrack, audioChannel: RecorderAudioChannel.INPUT);
+/// // Later: the last 10 seconds plus the next 5
+/// final clip = await preRoll.save(path, postRoll: Duration(seconds: 5));
+/// ```
+class PreRollRecorder {
+  static final _random = Random();
+  final _preRollId = _random.nextInt(0x7FFFFFFF);
+  var _isStarted = false;
+
+  Future<void> start(
+    MediaStreamTrack videoTrack, {
+    RecorderAudioChannel? audioChannel,
+    PreRollOptions options = const PreRollOptions(),
+  }) async {
+    await WebRTC.invokeMethod('startPreRoll', {
+      'preRollId': _preRollId,
+      'videoTrackId': videoTrack.id,
+      'peerConnectionId': videoTrack is MediaStreamTrackNative
+          ? videoTrack.peerConnectionId
+          : null,
+      if (audioChannel != null) 'audioChannel': audioChannel.index,
+      'options': options.toMap(),
+    });
+    _isStarted = true;
+  }
+
+  /// Writes the buffered pre-roll and the following [postRoll] to [path].
+  /// Completes once the file is finished; buffering continues meanwhile.
+  Future<PreRollClip> save(String path,
+      {Duration postRoll = Duration.zero}) async {
+    if (!_isStarted) {
+      throw 'Pre-roll recorder not started!';
+    }
+    final response = await WebRTC.invokeMethod('savePreRoll', {
+      'preRollId': _preRollId,
+      'path': path,
+      'postRollMs': postRoll.inMilliseconds,
+    });
+    return PreRollClip.fromMap(response as Map<dynamic, dynamic>);
+  }
+
+  /// Buffered duration and size, evictions and the current bitrate.
+  Future<Map<String, dynamic>> getStats() async {
+    final response = await WebRTC.invokeMethod('getPreRollStats', {
+      'preRollId': _preRollId,
+    });
+    return Map<String, dynamic>.from(response as Map);
+  }
+
+  Future<void> stop() async {
+    if (!_isStarted) {
+      return;
+    }
+    _isStarted = false;
+    await WebRTC.invokeMethod('stopPreRoll', {
+      'preRollId': _preRollId,
+    });
+  }
+}
@@ -0,0 +1,107 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:flutter_test/flutter_test.dart';
+
+import 'package:flutter_webrtc/src/face_detection/blink_event.dart';
+
+void main() {
+  final jpeg = Uint8List.fromList([0xff, 0xd8, 0xff, 0xe0, 1, 2, 3]);
+
+  test('capturedFrameBytes is also exposed as Base64', () {
+    final event = BlinkEvent(
+      eye: BlinkEye.left,
+      leftBlinkCount: 1,
+      rightBlinkCount: 0,
+      capturedFrameBytes: jpeg,
+    );
+    expect(event.capturedFrameBytes, jpeg);
+    expect(event.capturedFrame, base64Encode(jpeg));
+  });
+
+  test('deprecated Base64 capturedFrame maps to bytes', () {
+    final event = BlinkEvent(
+      eye: BlinkEye.both,
+      leftBlinkCount: 2,
+      rightBlinkCount: 2,
+      capturedFrame: base64Encode(jpeg),
+    );
+    expect(event.capturedFrameBytes, jpeg);
+    expect(event.capturedFrame, base64Encode(jpeg));
+    expect(event.toMap()['capturedFrame'], jpeg);
+  });
+
+  test('fromMap accepts raw bytes and Base64 frames', () {
+    final fromBytes = BlinkEvent.fromMap({
+      'eye': 'right',
+      'rightBlinkCount': 3,
+      'capturedFrame': jpeg,
+    });
+    expect(fromBytes.eye, BlinkEye.right);
+    expect(fromBytes.trackId, isNull);
+    expect(fromBytes.capturedFrameBytes, jpeg);
+
+    final fromBase64 = BlinkEvent.fromMap({
+      'eye': 'left',
+      'capturedFrame': base64Encode(jpeg),
+    });
+    expect(fromBase64.capturedFrameBytes, jpeg);
+    expect(fromBase64.capturedFrame, base64Encode(jpeg));
+  });
+
+  test('no frame', () {
+    const event = BlinkEvent(
+        eye: BlinkEye.both, leftBlinkCount: 0, rightBlinkCount: 0);
+    expect(event.capturedFrameBytes, isNull);
+    expect(event.capturedFrame, isNull);
+    expect(event.toMap().containsKey('capturedFrame'), isFalse);
+  });
+
+  Uint8List packedBlink(
+      {required int trackingId, String trackId = '', Uint8List? frame}) {
+    final trackIdBytes = utf8.encode(trackId);
+    final jpegLength = frame?.length ?? 0;
+    final data = ByteData(36 + trackIdBytes.length + jpegLength);
+    data.setInt32(0, 2, Endian.little); // version
+    data.setInt32(4, 1, Endian.little); // right
+    data.setInt32(8, 4, Endian.little);
+    data.setInt32(12, 5, Endian.little);
+    data.setInt32(16, trackingId, Endian.little);
+    data.setInt32(20, jpegLength, Endian.little);
+    data.setInt64(24, 987654321, Endian.little);
+    data.setInt32(32, trackIdBytes.length, Endian.little);
+    final bytes = data.buffer.asUint8List();
+    bytes.setRange(36, 36 + trackIdBytes.length, trackIdBytes);
+    if (frame != null) {
+      bytes.setRange(36 + trackIdBytes.length, bytes.length, frame);
+    }
+    return bytes;
+  }
+
+  test('fromPacked decodes compact blink events', () {
+    final event = BlinkEvent.fromPacked(
+        packedBlink(trackingId: 9, trackId: 'camera', frame: jpeg));
+    expect(event.eye, BlinkEye.right);
+    expect(event.leftBlinkCount, 4);
+    expect(event.rightBlinkCount, 5);
+    expect(event.trackingId, 9);
+    expect(event.trackId, 'camera');
+    expect(event.timestamp, 987654321);
+    expect(event.capturedFrameBytes, jpeg);
+
+    final noFrame = BlinkEvent.fromPacked(packedBlink(trackingId: -1));
+    expect(noFrame.trackingId, isNull);
+    expect(noFrame.trackId, isNull);
+    expect(noFrame.capturedFrameBytes, isNull);
+  });
+
+  test('fromPacked rejects unknown versions and truncated data', () {
+    final wrongVersion = packedBlink(trackingId: 1);
+    ByteData.sublistView(wrongVersion).setInt32(0, 99, Endian.little);
+    expect(() => BlinkEvent.fromPacked(wrongVersion), throwsFormatException);
+
+    final truncated = packedBlink(trackingId: 1, frame: jpeg);
+    expect(() => BlinkEvent.fromPacked(truncated.sublist(0, 38)),
+        throwsFormatException);
+  });
+}
@@ -0,0 +1,142 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:flutter_test/flutter_test.dart';
+
+import 'package:flutter_webrtc/src/face_detection/face_detection_config.dart';
+import 'package:flutter_webrtc/src/face_detection/face_detection_result.dart';
+
+Uint8List _packedFrame({required bool withLandmarks, String trackId = ''}) {
+  final trackIdBytes = utf8.encode(trackId);
+  final data = ByteData(52 + 96 + trackIdBytes.length);
+  data.setInt32(0, 2, Endian.little); // version
+  data.setInt32(4, 1, Endian.little); // face count
+  data.setInt64(8, 123456789, Endian.little);
+  data.setInt32(16, 640, Endian.little);
+  data.setInt32(20, 480, Endian.little);
+  data.setInt32(24, 2, Endian.little); // idle
+  data.setFloat32(28, 10, Endian.little);
+  data.setFloat32(32, 25, Endian.little);
+  data.setFloat32(36, 0.3, Endian.little);
+  data.setInt32(40, 96, Endian.little);
+  data.setInt32(48, trackIdBytes.length, Endian.little);
+
+  const face = 52;
+  data.setInt32(face, 7, Endian.little);
+  data.setInt32(face + 4, 1, Endian.little); // predicted
+  data.setFloat32(face + 8, 10.4, Endian.little);
+  data.setFloat32(face + 12, 20.6, Endian.little);
+  data.setFloat32(face + 16, 110.4, Endian.little);
+  data.setFloat32(face + 20, 140.6, Endian.little);
+  data.setFloat32(face + 24, 5, Endian.little);
+  data.setFloat32(face + 28, -3, Endian.little);
+  data.setFloat32(face + 32, 1, Endian.little);
+  for (var i = 0; i < 6; i++) {
+    data.setFloat32(
+        face + 36 + i * 8, withLandmarks ? 30.0 + i : double.nan, Endian.little);
+    data.setFloat32(face + 40 + i * 8, withLandmarks ? 50.0 + i : double.nan,
+        Endian.little);
+  }
+  data.setFloat32(face + 84, 0.9, Endian.little);
+  data.setFloat32(face + 88, 0.1, Endian.little);
+  data.setFloat32(face + 92, double.nan, Endian.little);
+  final bytes = data.buffer.asUint8List();
+  bytes.setRange(face + 96, bytes.length, trackIdBytes);
+  return bytes;
+}
+
+void main() {
+  test('decodes packed face results', () {
+    final result = FaceDetectionResult.fromPacked(
+        _packedFrame(withLandmarks: true, trackId: 'video-track-1'));
+
+    expect(result.timestamp, 123456789);
+    expect(result.trackId, 'video-track-1');
+    expect(result.frameWidth, 640);
+    expect(result.frameHeight, 480);
+    expect(result.idle, isTrue);
+    expect(result.predicted, isFalse);
+    expect(result.faceCount, 1);
+
+    final face = result.faces.single;
+    expect(face.trackingId, 7);
+    expect(face.predicted, isTrue);
+    expect(face.bounds.left, 10);
+    expect(face.bounds.top, 21);
+    expect(face.bounds.width, 100);
+    expect(face.bounds.height, 120);
+    expect(face.headPose!.pitch, -3);
+    expect(face.smilingProbability, isNull);
+    expect(face.landmarks!.leftEye!.x, 30);
+    expect(face.landmarks!.leftEye!.isOpen, isTrue);
+    expect(face.landmarks!.rightEye!.isOpen, isFalse);
+    expect(face.landmarks!.mouth!.bottomY, 55);
+    expect(face.leftEyeOpenProbability, closeTo(0.9, 1e-6));
+    expect(face.rightEyeOpenProbability, closeTo(0.1, 1e-6));
+  });
+
+  test('face-level eye probabilities are read without landmarks', () {
+    final face = Face.fromMap({
+      'bounds': {'left': 1, 'top': 2, 'width': 3, 'height': 4},
+      'landmarks': <String, dynamic>{},
+      'leftEyeOpenProbability': 0.75,
+      'rightEyeOpenProbability': 0.25,
+    });
+    expect(face.leftEyeOpenProbability, 0.75);
+    expect(face.rightEyeOpenProbability, 0.25);
+    expect(face.toMap()['leftEyeOpenProbability'], 0.75);
+  });
+
+  test('missing landmarks decode as null', () {
+    final result =
+        FaceDetectionResult.fromPacked(_packedFrame(withLandmarks: false));
+    final landmarks = result.faces.single.landmarks!;
+
+    expect(landmarks.leftEye, isNull);
+    expect(landmarks.nose, isNull);
+    expect(landmarks.mouth, isNull);
+    expect(result.trackId, isNull);
+  });
+
+  test('trackId round-trips through maps', () {
+    final result = FaceDetectionResult.fromMap({
+      'faces': [],
+      'trackId': 'remote-video',
+      'timestamp': 1,
+    });
+    expect(result.trackId, 'remote-video');
+    expect(result.toMap()['trackId'], 'remote-video');
+  });
+
+  test('decodes latest results in map and packed form', () {
+    final fromMap = LatestFaceDetection.fromMap({
+      'seq': 5,
+      'ageMs': 12.5,
+      'result': {'faces': [], 'frameWidth': 640, 'frameHeight': 480},
+    });
+    expect(fromMap.seq, 5);
+    expect(fromMap.ageMs, 12.5);
+    expect(fromMap.result.frameWidth, 640);
+    expect(fromMap.result.hasFaces, isFalse);
+
+    final packed = LatestFaceDetection.fromMap({
+      'seq': 6,
+      'ageMs': 1,
+      'result': _packedFrame(withLandmarks: false),
+    });
+    expect(packed.seq, 6);
+    expect(packed.result.faceCount, 1);
+  });
+
+  test('rejects unknown versions', () {
+    final data = _packedFrame(withLandmarks: true);
+    ByteData.sublistView(data).setInt32(0, 1, Endian.little);
+
+    expect(() => FaceDetectionResult.fromPacked(data), throwsFormatException);
+  });
+
+  test('landmarks are enabled by default', () {
+    expect(const FaceDetectionConfig().enableLandmarks, isTrue);
+    expect(FaceDetectionConfig.fromMap({}).enableLandmarks, isTrue);
+  });
+}
@@ -0,0 +1,162 @@
+import 'package:flutter/services.dart';
+
+import 'package:flutter_test/flutter_test.dart';
+import 'package:webrtc_interface/webrtc_interface.dart';
+
+import 'package:flutter_webrtc/src/native/media_stream_track_impl.dart';
+import 'package:flutter_webrtc/src/pre_roll_recorder.dart';
+
+void main() {
+  TestWidgetsFlutterBinding.ensureInitialized();
+  final channel = MethodChannel('FlutterWebRTC.Method');
+  final calls = <MethodCall>[];
+  final track =
+      MediaStreamTrackNative('video0', 'Video', 'video', true, 'pc1');
+
+  setUp(() {
+    calls.clear();
+    channel.setMockMethodCallHandler((MethodCall methodCall) async {
+      calls.add(methodCall);
+      switch (methodCall.method) {
+        case 'savePreRoll':
+          return {
+            'path': methodCall.arguments['path'],
+            'durationMs': 12500,
+            'bytes': 1048576,
+            'hasAudio': true,
+          };
+        case 'getPreRollStats':
+          return {'bufferedMs': 9000, 'bitrate': 1500000};
+      }
+      return null;
+    });
+  });
+
+  tearDown(() {
+    channel.setMockMethodCallHandler(null);
+  });
+
+  List<MethodCall> preRollCalls() =>
+      calls.where((call) => call.method != 'initialize').toList();
+
+  test('PreRollOptions.toMap uses the native keys', () {
+    const options = PreRollOptions(
+      duration: Duration(seconds: 15),
+      maxBytes: 4096,
+      eviction: PreRollEviction.reduceBitrate,
+      keyFrameInterval: Duration(milliseconds: 500),
+    );
+    final map = options.toMap();
+    expect(map['durationMs'], 15000);
+    expect(map['maxBytes'], 4096);
+    expect(map['eviction'], 'reduceBitrate');
+    expect(map['keyFrameIntervalMs'], 500);
+    expect(map['bitrate'], 2000000);
+  });
+
+  test('PreRollOptions defaults cover every native key', () {
+    expect(const PreRollOptions().toMap(), {
+      'durationMs': 10000,
+      'maxBytes': 8 * 1024 * 1024,
+      'eviction': 'dropOldest',
+      'bitrate': 2000000,
+      'minBitrate': 300000,
+      'keyFrameIntervalMs': 1000,
+      'maxDimension': 1280,
+    });
+  });
+
+  test('PreRollClip.fromMap accepts any numeric type', () {
+    final clip = PreRollClip.fromMap({
+      'path': '/tmp/clip.mp4',
+      'durationMs': 12500.0,
+      'bytes': 1048576,
+    });
+    expect(clip.path, '/tmp/clip.mp4');
+    expect(clip.duration, const Duration(milliseconds: 12500));
+    expect(clip.bytes, 1048576);
+    expect(clip.hasAudio, isFalse);
+  });
+
+  test('start sends the track, its peer connection and the options', () async {
+    final recorder = PreRollRecorder();
+    await recorder.start(track,
+        audioChannel: RecorderAudioChannel.OUTPUT,
+        options: const PreRollOptions(duration: Duration(seconds: 5)));
+
+    final start = preRollCalls().single;
+    expect(start.method, 'startPreRoll');
+    expect(start.arguments['preRollId'], isA<int>());
+    expect(start.arguments['videoTrackId'], 'video0');
+    expect(start.arguments['peerConnectionId'], 'pc1');
+    expect(start.arguments['audioChannel'], RecorderAudioChannel.OUTPUT.index);
+    expect(start.arguments['options']['durationMs'], 5000);
+  });
+
+  test('start leaves out the audio channel when there is none', () async {
+    await PreRollRecorder().start(track);
+    expect(
+        (preRollCalls().single.arguments as Map).containsKey('audioChannel'),
+        isFalse);
+  });
+
+  test('save, getStats and stop address the started pre-roll', () async {
+    final recorder = PreRollRecorder();
+    await recorder.start(track);
+    final clip = await recorder.save('/tmp/clip.mp4',
+        postRoll: const Duration(seconds: 3));
+    final stats = await recorder.getStats();
+    await recorder.stop();
+
+    final sent = preRollCalls();
+    expect(sent.map((call) => call.method),
+        ['startPreRoll', 'savePreRoll', 'getPreRollStats', 'stopPreRoll']);
+    final preRollId = sent.first.arguments['preRollId'];
+    for (final call in sent) {
+      expect(call.arguments['preRollId'], preRollId);
+    }
+    expect(sent[1].arguments['path'], '/tmp/clip.mp4');
+    expect(sent[1].arguments['postRollMs'], 3000);
+
+    expect(clip.path, '/tmp/clip.mp4');
+    expect(clip.duration, const Duration(milliseconds: 12500));
+    expect(clip.hasAudio, isTrue);
+    expect(stats['bufferedMs'], 9000);
+  });
+
+  test('save before start fails without calling the platform', () async {
+    final recorder = PreRollRecorder();
+    await expectLater(recorder.save('/tmp/clip.mp4'), throwsA(isA<String>()));
+    expect(preRollCalls(), isEmpty);
+  });
+
+  test('stop is a no-op unless started and only stops once', () async {
+    final recorder = PreRollRecorder();
+    await recorder.stop();
+    expect(preRollCalls(), isEmpty);
+
+    await recorder.start(track);
+    await recorder.stop();
+    await recorder.stop();
+    expect(preRollCalls().map((call) => call.method),
+        ['startPreRoll', 'stopPreRoll']);
+  });
+
+  test('a failed start leaves the recorder stopped', () async {
+    channel.setMockMethodCallHandler((MethodCall methodCall) async {
+      calls.add(methodCall);
+      if (methodCall.method == 'startPreRoll') {
+        throw PlatformException(
+            code: 'startPreRoll', message: 'Video track not found: video0');
+      }
+      return null;
+    });
+
+    final recorder = PreRollRecorder();
+    await expectLater(
+        recorder.start(track), throwsA(isA<PlatformException>()));
+    await expectLater(recorder.save('/tmp/clip.mp4'), throwsA(isA<String>()));
+    await recorder.stop();
+    expect(preRollCalls().map((call) => call.method), ['startPreRoll']);
+  });
+}